@@ -0,0 +1,56 @@
+package com.cookingfox.android.prefer.impl.pref;
+
+import com.cookingfox.android.prefer.api.pref.Pref;
+import com.cookingfox.android.prefer.impl.prefer.SharedPreferencesPrefer;
+import com.cookingfox.android.prefer_testing.fixtures.Key;
+import com.cookingfox.android.prefer_testing.shared_preferences.InMemorySharedPreferences;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link AndroidPrefGroup}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class AndroidPrefGroupBenchmark {
+
+    private SharedPreferencesPrefer prefer;
+    private AndroidPrefGroup<Key> group;
+
+    @Setup
+    public void setUp() {
+        prefer = new SharedPreferencesPrefer(new InMemorySharedPreferences());
+        prefer.initializePrefer();
+
+        group = prefer.addNewGroup(Key.class);
+        group.addNewInteger(Key.IntervalMs, 123);
+        group.addNewBoolean(Key.IsEnabled, true);
+        group.addNewString(Key.Username, "foo");
+    }
+
+    @TearDown
+    public void tearDown() {
+        prefer.disposePrefer();
+    }
+
+    @Benchmark
+    public Pref<Key, ?> findPref() {
+        return group.findPref(Key.Username);
+    }
+
+    @Benchmark
+    public Pref<Key, String> findPrefWithValueClass() {
+        return group.findPref(Key.Username, String.class);
+    }
+
+}
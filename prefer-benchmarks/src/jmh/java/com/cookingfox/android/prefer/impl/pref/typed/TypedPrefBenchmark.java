@@ -0,0 +1,69 @@
+package com.cookingfox.android.prefer.impl.pref.typed;
+
+import com.cookingfox.android.prefer.impl.prefer.SharedPreferencesPrefer;
+import com.cookingfox.android.prefer_testing.fixtures.Key;
+import com.cookingfox.android.prefer_testing.shared_preferences.InMemorySharedPreferences;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for reading typed Prefs: the boxed {@code getValue()} versus the primitive getters.
+ * Run with the gc profiler to compare the allocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class TypedPrefBenchmark {
+
+    private SharedPreferencesPrefer prefer;
+    private AndroidIntegerPref<Key> integerPref;
+    private AndroidLongPref<Key> longPref;
+
+    @Setup
+    public void setUp() {
+        prefer = new SharedPreferencesPrefer(new InMemorySharedPreferences());
+        prefer.initializePrefer();
+
+        // values outside the Integer and Long caches, so boxing allocates
+        integerPref = prefer.newInteger(Key.IntervalMs, 0);
+        integerPref.setValue(100000);
+
+        longPref = prefer.newLong(Key.Username, 0L);
+        longPref.setValue(System.currentTimeMillis());
+    }
+
+    @TearDown
+    public void tearDown() {
+        prefer.disposePrefer();
+    }
+
+    @Benchmark
+    public Integer getIntegerBoxed() {
+        return integerPref.getValue();
+    }
+
+    @Benchmark
+    public int getIntegerPrimitive() {
+        return integerPref.getInteger();
+    }
+
+    @Benchmark
+    public Long getLongBoxed() {
+        return longPref.getValue();
+    }
+
+    @Benchmark
+    public long getLongPrimitive() {
+        return longPref.getLong();
+    }
+
+}
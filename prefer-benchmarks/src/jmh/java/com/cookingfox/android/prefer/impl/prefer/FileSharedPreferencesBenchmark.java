@@ -0,0 +1,90 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import android.content.SharedPreferences;
+
+import com.cookingfox.android.prefer_testing.fixtures.Key;
+import com.cookingfox.android.prefer_testing.shared_preferences.FileSharedPreferences;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for persisting values through {@link SharedPreferencesPrefer}, using the file-backed
+ * {@link FileSharedPreferences}, which rewrites the whole file on every change like Android does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class FileSharedPreferencesBenchmark {
+
+    /**
+     * The number of other stored preferences, which determines the file size.
+     */
+    @Param({"10", "200"})
+    public int numPrefs;
+
+    private File file;
+    private FileSharedPreferences preferences;
+    private SharedPreferencesPrefer prefer;
+    private int counter;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("prefer", ".xml");
+
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+
+        preferences = new FileSharedPreferences(file);
+
+        final SharedPreferences.Editor editor = preferences.edit();
+
+        for (int i = 0; i < numPrefs; i++) {
+            editor.putString("other-" + i, "value-" + i);
+        }
+
+        editor.commit();
+
+        prefer = new SharedPreferencesPrefer(preferences, true);
+        prefer.initializePrefer();
+    }
+
+    @TearDown
+    public void tearDown() {
+        preferences.awaitWrites();
+        prefer.disposePrefer();
+
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    /**
+     * Stores a value with `apply`: the file is written in the background.
+     */
+    @Benchmark
+    public void putIntegerApply() {
+        prefer.putInteger(Key.IntervalMs, counter++);
+    }
+
+    /**
+     * Stores a value with `commit`: waits until the file is written.
+     */
+    @Benchmark
+    public boolean putIntegerCommit() {
+        return preferences.edit()
+                .putInt(PreferKeySerializer.serializeKey(Key.IntervalMs), counter++)
+                .commit();
+    }
+
+}
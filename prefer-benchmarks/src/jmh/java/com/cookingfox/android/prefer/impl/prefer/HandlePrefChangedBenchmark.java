@@ -0,0 +1,120 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import com.cookingfox.android.prefer.api.pref.OnValueChanged;
+import com.cookingfox.android.prefer.api.pref.typed.OnIntegerValueChanged;
+import com.cookingfox.android.prefer.impl.pref.typed.AndroidBooleanPref;
+import com.cookingfox.android.prefer.impl.pref.typed.AndroidIntegerPref;
+import com.cookingfox.android.prefer_testing.fixtures.Key;
+import com.cookingfox.android.prefer_testing.shared_preferences.InMemorySharedPreferences;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link AndroidPrefer#handlePrefChanged(String)}: dispatching a change to N value
+ * changed listeners.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class HandlePrefChangedBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int numListeners;
+
+    private SharedPreferencesPrefer prefer;
+    private SharedPreferencesPrefer boxedPrefer;
+    private SharedPreferencesPrefer primitivePrefer;
+    private String serializedKey;
+    private String integerKey;
+    private String unknownKey;
+    private int numCalls;
+
+    @Setup
+    public void setUp() {
+        prefer = new SharedPreferencesPrefer(new InMemorySharedPreferences());
+        prefer.initializePrefer();
+
+        AndroidBooleanPref<Key> pref = prefer.newBoolean(Key.IsEnabled, false);
+
+        for (int i = 0; i < numListeners; i++) {
+            pref.addValueChangedListener(new OnValueChanged<Boolean>() {
+                @Override
+                public void onValueChanged(Boolean value) {
+                    numCalls++;
+                }
+            });
+        }
+
+        serializedKey = pref.getSerializedKey();
+        unknownKey = "com.example.Unknown-Key";
+
+        // a value outside the Integer cache, so boxing allocates
+        boxedPrefer = new SharedPreferencesPrefer(new InMemorySharedPreferences());
+        boxedPrefer.initializePrefer();
+
+        AndroidIntegerPref<Key> boxedPref = boxedPrefer.newInteger(Key.IntervalMs, 0);
+        boxedPref.setValue(1000);
+
+        primitivePrefer = new SharedPreferencesPrefer(new InMemorySharedPreferences());
+        primitivePrefer.initializePrefer();
+
+        AndroidIntegerPref<Key> primitivePref = primitivePrefer.newInteger(Key.IntervalMs, 0);
+        primitivePref.setValue(1000);
+
+        for (int i = 0; i < numListeners; i++) {
+            boxedPref.addValueChangedListener(new OnValueChanged<Integer>() {
+                @Override
+                public void onValueChanged(Integer value) {
+                    numCalls += value;
+                }
+            });
+
+            primitivePref.addIntegerValueChangedListener(new OnIntegerValueChanged() {
+                @Override
+                public void onValueChanged(int value) {
+                    numCalls += value;
+                }
+            });
+        }
+
+        integerKey = boxedPref.getSerializedKey();
+    }
+
+    @TearDown
+    public void tearDown() {
+        prefer.disposePrefer();
+        boxedPrefer.disposePrefer();
+        primitivePrefer.disposePrefer();
+    }
+
+    @Benchmark
+    public void dispatchToListeners() {
+        prefer.handlePrefChanged(serializedKey);
+    }
+
+    @Benchmark
+    public void dispatchToBoxedIntegerListeners() {
+        boxedPrefer.handlePrefChanged(integerKey);
+    }
+
+    @Benchmark
+    public void dispatchToPrimitiveIntegerListeners() {
+        primitivePrefer.handlePrefChanged(integerKey);
+    }
+
+    @Benchmark
+    public void ignoreUnknownKey() {
+        prefer.handlePrefChanged(unknownKey);
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import com.cookingfox.android.prefer_testing.fixtures.Key;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link PreferKeySerializer}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class PreferKeySerializerBenchmark {
+
+    private final Key key = Key.Username;
+    private final String serializedKey = PreferKeySerializer.serializeKey(Key.Username);
+
+    @Benchmark
+    public String serializeKey() {
+        return PreferKeySerializer.serializeKey(key);
+    }
+
+    @Benchmark
+    public Enum deserializeKey() throws ClassNotFoundException {
+        return PreferKeySerializer.deserializeKey(serializedKey);
+    }
+
+}
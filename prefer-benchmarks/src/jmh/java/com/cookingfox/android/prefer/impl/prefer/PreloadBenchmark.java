@@ -0,0 +1,77 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import com.cookingfox.android.prefer.impl.pref.AndroidPrefGroup;
+import com.cookingfox.android.prefer.impl.pref.typed.AndroidBooleanPref;
+import com.cookingfox.android.prefer.impl.pref.typed.AndroidIntegerPref;
+import com.cookingfox.android.prefer.impl.pref.typed.AndroidStringPref;
+import com.cookingfox.android.prefer_testing.fixtures.Key;
+import com.cookingfox.android.prefer_testing.shared_preferences.InMemorySharedPreferences;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for reading the values of a group with an empty cache, e.g. on startup: one by one,
+ * or after {@link AndroidPrefer#preload()}. Reading from {@link InMemorySharedPreferences} has no
+ * locking or loading cost per read, unlike Android, so this measures the overhead of preloading.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class PreloadBenchmark {
+
+    private SharedPreferencesPrefer prefer;
+    private AndroidIntegerPref<Key> integerPref;
+    private AndroidBooleanPref<Key> booleanPref;
+    private AndroidStringPref<Key> stringPref;
+
+    @Setup
+    public void setUp() {
+        prefer = new SharedPreferencesPrefer(new InMemorySharedPreferences());
+        prefer.initializePrefer();
+
+        final AndroidPrefGroup<Key> group = prefer.addNewGroup(Key.class);
+        integerPref = group.addNewInteger(Key.IntervalMs, 0);
+        booleanPref = group.addNewBoolean(Key.IsEnabled, false);
+        stringPref = group.addNewString(Key.Username, "foo");
+
+        integerPref.setValue(123);
+        booleanPref.setValue(true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        prefer.disposePrefer();
+    }
+
+    @Benchmark
+    public void readOneByOne(Blackhole blackhole) {
+        prefer.getCachingHelper().invalidateAll();
+
+        readValues(blackhole);
+    }
+
+    @Benchmark
+    public void preloadAndRead(Blackhole blackhole) {
+        prefer.getCachingHelper().invalidateAll();
+        prefer.preload();
+
+        readValues(blackhole);
+    }
+
+    private void readValues(Blackhole blackhole) {
+        blackhole.consume(integerPref.getInteger());
+        blackhole.consume(booleanPref.getBoolean());
+        blackhole.consume(stringPref.getValue());
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import com.cookingfox.android.prefer_testing.fixtures.Key;
+import com.cookingfox.android.prefer_testing.shared_preferences.InMemorySharedPreferences;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for typed reads and writes through {@link SharedPreferencesPrefer}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class SharedPreferencesPreferBenchmark {
+
+    private SharedPreferencesPrefer prefer;
+    private int counter;
+
+    @Setup
+    public void setUp() {
+        prefer = new SharedPreferencesPrefer(new InMemorySharedPreferences());
+        prefer.initializePrefer();
+
+        prefer.putBoolean(Key.IsEnabled, true);
+        prefer.putInteger(Key.IntervalMs, 123);
+        prefer.putString(Key.Username, "foo");
+    }
+
+    @TearDown
+    public void tearDown() {
+        prefer.disposePrefer();
+    }
+
+    @Benchmark
+    public boolean getBoolean() {
+        return prefer.getBoolean(Key.IsEnabled, false);
+    }
+
+    @Benchmark
+    public int getInteger() {
+        return prefer.getInteger(Key.IntervalMs, 0);
+    }
+
+    @Benchmark
+    public String getString() {
+        return prefer.getString(Key.Username, null);
+    }
+
+    @Benchmark
+    public void putInteger() {
+        prefer.putInteger(Key.IntervalMs, counter++);
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.cookingfox.android.prefer_rx.impl.prefer;
+
+import com.cookingfox.android.prefer_rx.impl.pref.typed.AndroidBooleanRxPref;
+import com.cookingfox.android.prefer_testing.fixtures.Key;
+import com.cookingfox.android.prefer_testing.shared_preferences.InMemorySharedPreferences;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.Subscriber;
+
+/**
+ * Benchmarks for {@link AndroidRxPrefer} subscriptions. Run with the gc profiler: the allocation
+ * rate per operation stays flat when unsubscribed subscribers are not retained.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class AndroidRxPreferBenchmark {
+
+    private SharedPreferencesRxPrefer prefer;
+    private AndroidBooleanRxPref<Key> pref;
+
+    @Setup
+    public void setUp() {
+        prefer = new SharedPreferencesRxPrefer(new InMemorySharedPreferences());
+        prefer.initializePrefer();
+
+        pref = prefer.newBoolean(Key.IsEnabled, false);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (prefer.subscribers.hasSubscriptions()) {
+            throw new IllegalStateException("Unsubscribed subscribers are still tracked");
+        }
+
+        prefer.disposePrefer();
+    }
+
+    @Benchmark
+    public void subscribeUnsubscribe() {
+        pref.observeValueChanges().subscribe(new Subscriber<Boolean>() {
+            @Override
+            public void onCompleted() {
+            }
+
+            @Override
+            public void onError(Throwable e) {
+            }
+
+            @Override
+            public void onNext(Boolean value) {
+            }
+        }).unsubscribe();
+    }
+
+}
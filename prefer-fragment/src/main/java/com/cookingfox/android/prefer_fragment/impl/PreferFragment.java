@@ -23,7 +23,6 @@ import com.cookingfox.android.prefer.api.pref.typed.StringPref;
 import com.cookingfox.android.prefer.api.prefer.Prefer;
 import com.cookingfox.android.prefer.impl.pref.AbstractAndroidPref;
 import com.cookingfox.android.prefer.impl.pref.AndroidPrefGroup;
-import com.cookingfox.android.prefer.impl.prefer.PreferKeySerializer;
 
 import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
 
@@ -201,7 +200,7 @@ public class PreferFragment extends PreferenceFragment {
             }
 
             // set pref key
-            input.setKey(PreferKeySerializer.serializeKey(pref.getKey()));
+            input.setKey(pref.getSerializedKey());
 
             // add pref on change listener
             input.setOnPreferenceChangeListener(createPreferenceListener(pref));
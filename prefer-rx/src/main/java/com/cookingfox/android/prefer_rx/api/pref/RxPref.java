@@ -19,4 +19,20 @@ public interface RxPref<K extends Enum<K>, V> extends Pref<K, V> {
      */
     Observable<V> observeValueChanges();
 
+    /**
+     * Returns an Rx observable for value changes of this Pref that skips values equal to the
+     * previously emitted value, and only keeps the latest value for a slow subscriber.
+     *
+     * @return Rx observable for the latest value of this Pref.
+     */
+    Observable<V> observeLatestValueChanges();
+
+    /**
+     * Returns an Rx observable that emits the current value of this Pref, followed by its value
+     * changes, without missing a change in between.
+     *
+     * @return Rx observable for the value of this Pref.
+     */
+    Observable<V> observeValue();
+
 }
@@ -5,7 +5,11 @@ import com.cookingfox.android.prefer.api.pref.OnGroupValueChanged;
 import com.cookingfox.android.prefer.api.pref.Pref;
 import com.cookingfox.android.prefer.api.pref.PrefGroup;
 
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
 import rx.Observable;
+import rx.Scheduler;
 
 /**
  * Extends {@link PrefGroup} with Rx observable functionality.
@@ -23,4 +27,28 @@ public interface RxPrefGroup<K extends Enum<K>> extends PrefGroup<K> {
      */
     Observable<Pref<K, ?>> observeGroupValueChanges();
 
+    /**
+     * Creates a new observable that emits the set of keys of the group's Prefs that changed within
+     * a time window. The windows are closed on the computation scheduler.
+     *
+     * @param window The window duration.
+     * @param unit   The unit of the window duration.
+     * @return The changed keys observable.
+     * @throws PreferNotInitializedException when Prefer has not been initialized yet.
+     * @see #observeChangedKeys(long, TimeUnit, Scheduler)
+     */
+    Observable<Set<K>> observeChangedKeys(long window, TimeUnit unit);
+
+    /**
+     * Creates a new observable that emits the set of keys of the group's Prefs that changed within
+     * a time window.
+     *
+     * @param window    The window duration.
+     * @param unit      The unit of the window duration.
+     * @param scheduler The scheduler that closes the windows and emits the keys.
+     * @return The changed keys observable.
+     * @throws PreferNotInitializedException when Prefer has not been initialized yet.
+     */
+    Observable<Set<K>> observeChangedKeys(long window, TimeUnit unit, Scheduler scheduler);
+
 }
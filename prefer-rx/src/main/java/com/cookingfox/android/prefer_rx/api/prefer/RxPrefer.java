@@ -6,7 +6,11 @@ import com.cookingfox.android.prefer.api.pref.Pref;
 import com.cookingfox.android.prefer.api.pref.PrefGroup;
 import com.cookingfox.android.prefer.api.prefer.Prefer;
 
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
 import rx.Observable;
+import rx.Scheduler;
 
 /**
  * Extends {@link Prefer} with Rx observable functionality.
@@ -24,6 +28,63 @@ public interface RxPrefer extends Prefer {
      */
     <K extends Enum<K>> Observable<Pref<K, ?>> observeGroupValueChanges(PrefGroup<K> group);
 
+    /**
+     * Creates a new observable for the provided group's Pref values, which notifies its
+     * subscribers on the provided scheduler, in the order of the changes.
+     *
+     * @param group     The group for which to observe the pref value changes.
+     * @param scheduler The scheduler to notify the subscribers on.
+     * @param <K>       References the enum class for the Pref's key.
+     * @return The Pref group observable.
+     * @throws PreferNotInitializedException when Prefer has not been initialized yet.
+     * @see #observeGroupValueChanges(PrefGroup)
+     */
+    <K extends Enum<K>> Observable<Pref<K, ?>> observeGroupValueChanges(PrefGroup<K> group, Scheduler scheduler);
+
+    /**
+     * Creates a new observable that batches the group's value changes per time window: emits the
+     * set of keys of the Prefs that changed, when the window that started at the first change
+     * closes. Windows that close while the subscriber has no outstanding requests are merged.
+     *
+     * @param group     The group for which to observe the pref value changes.
+     * @param window    The window duration.
+     * @param unit      The unit of the window duration.
+     * @param scheduler The scheduler that closes the windows and emits the keys.
+     * @param <K>       References the enum class for the Pref's key.
+     * @return The changed keys observable.
+     * @throws PreferNotInitializedException when Prefer has not been initialized yet.
+     * @see #observeGroupValueChanges(PrefGroup)
+     */
+    <K extends Enum<K>> Observable<Set<K>> observeGroupChangedKeys(PrefGroup<K> group, long window, TimeUnit unit, Scheduler scheduler);
+
+    /**
+     * Creates a new observable for the provided Pref's value that coalesces changes: a value that
+     * equals the previously emitted value is not emitted, and only the latest value is kept while
+     * the subscriber has no outstanding requests.
+     *
+     * @param pref The Pref to observe for value changes.
+     * @param <K>  References the enum class for the Pref's key.
+     * @param <V>  Indicates the Pref's value type.
+     * @return The latest Pref value observable.
+     * @throws PreferNotInitializedException when Prefer has not been initialized yet.
+     * @see #observeValueChanges(Pref)
+     */
+    <K extends Enum<K>, V> Observable<V> observeLatestValueChanges(Pref<K, V> pref);
+
+    /**
+     * Creates a new observable that emits the provided Pref's current value, followed by its value
+     * changes. The current value is read once, after the change listener is added, so no change
+     * can be missed in between. Changes are coalesced like
+     * {@link #observeLatestValueChanges(Pref)}.
+     *
+     * @param pref The Pref to observe.
+     * @param <K>  References the enum class for the Pref's key.
+     * @param <V>  Indicates the Pref's value type.
+     * @return The Pref value observable.
+     * @throws PreferNotInitializedException when Prefer has not been initialized yet.
+     */
+    <K extends Enum<K>, V> Observable<V> observeValue(Pref<K, V> pref);
+
     /**
      * Creates a new observable for the provided Pref's value.
      *
@@ -36,4 +97,18 @@ public interface RxPrefer extends Prefer {
      */
     <K extends Enum<K>, V> Observable<V> observeValueChanges(Pref<K, V> pref);
 
+    /**
+     * Creates a new observable for the provided Pref's value, which notifies its subscribers on
+     * the provided scheduler, in the order of the changes.
+     *
+     * @param pref      The Pref to observe for value changes.
+     * @param scheduler The scheduler to notify the subscribers on.
+     * @param <K>       References the enum class for the Pref's key.
+     * @param <V>       Indicates the Pref's value type.
+     * @return The Pref value observable.
+     * @throws PreferNotInitializedException when Prefer has not been initialized yet.
+     * @see #observeValueChanges(Pref)
+     */
+    <K extends Enum<K>, V> Observable<V> observeValueChanges(Pref<K, V> pref, Scheduler scheduler);
+
 }
@@ -13,7 +13,12 @@ import com.cookingfox.android.prefer_rx.impl.pref.typed.AndroidIntegerRxPref;
 import com.cookingfox.android.prefer_rx.impl.pref.typed.AndroidLongRxPref;
 import com.cookingfox.android.prefer_rx.impl.pref.typed.AndroidStringRxPref;
 
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
 import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
 
 /**
  * Implementation of {@link PrefGroup} with {@link PrefMeta}.
@@ -55,6 +60,16 @@ public class AndroidRxPrefGroup<K extends Enum<K>>
         return ((RxPrefer) prefer).observeGroupValueChanges(this);
     }
 
+    @Override
+    public Observable<Set<K>> observeChangedKeys(long window, TimeUnit unit) {
+        return observeChangedKeys(window, unit, Schedulers.computation());
+    }
+
+    @Override
+    public Observable<Set<K>> observeChangedKeys(long window, TimeUnit unit, Scheduler scheduler) {
+        return rxPrefer.observeGroupChangedKeys(this, window, unit, scheduler);
+    }
+
     //----------------------------------------------------------------------------------------------
     // PUBLIC METHODS
     //----------------------------------------------------------------------------------------------
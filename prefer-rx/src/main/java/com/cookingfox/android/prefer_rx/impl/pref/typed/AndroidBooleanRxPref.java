@@ -29,4 +29,14 @@ public class AndroidBooleanRxPref<K extends Enum<K>>
         return rxPrefer.observeValueChanges(this);
     }
 
+    @Override
+    public Observable<Boolean> observeLatestValueChanges() {
+        return rxPrefer.observeLatestValueChanges(this);
+    }
+
+    @Override
+    public Observable<Boolean> observeValue() {
+        return rxPrefer.observeValue(this);
+    }
+
 }
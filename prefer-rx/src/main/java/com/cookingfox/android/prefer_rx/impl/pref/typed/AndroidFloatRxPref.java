@@ -29,4 +29,14 @@ public class AndroidFloatRxPref<K extends Enum<K>>
         return rxPrefer.observeValueChanges(this);
     }
 
+    @Override
+    public Observable<Float> observeLatestValueChanges() {
+        return rxPrefer.observeLatestValueChanges(this);
+    }
+
+    @Override
+    public Observable<Float> observeValue() {
+        return rxPrefer.observeValue(this);
+    }
+
 }
@@ -29,4 +29,14 @@ public class AndroidIntegerRxPref<K extends Enum<K>>
         return rxPrefer.observeValueChanges(this);
     }
 
+    @Override
+    public Observable<Integer> observeLatestValueChanges() {
+        return rxPrefer.observeLatestValueChanges(this);
+    }
+
+    @Override
+    public Observable<Integer> observeValue() {
+        return rxPrefer.observeValue(this);
+    }
+
 }
@@ -29,4 +29,14 @@ public class AndroidLongRxPref<K extends Enum<K>>
         return rxPrefer.observeValueChanges(this);
     }
 
+    @Override
+    public Observable<Long> observeLatestValueChanges() {
+        return rxPrefer.observeLatestValueChanges(this);
+    }
+
+    @Override
+    public Observable<Long> observeValue() {
+        return rxPrefer.observeValue(this);
+    }
+
 }
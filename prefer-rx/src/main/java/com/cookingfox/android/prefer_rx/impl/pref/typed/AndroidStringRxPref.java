@@ -29,4 +29,14 @@ public class AndroidStringRxPref<K extends Enum<K>>
         return rxPrefer.observeValueChanges(this);
     }
 
+    @Override
+    public Observable<String> observeLatestValueChanges() {
+        return rxPrefer.observeLatestValueChanges(this);
+    }
+
+    @Override
+    public Observable<String> observeValue() {
+        return rxPrefer.observeValue(this);
+    }
+
 }
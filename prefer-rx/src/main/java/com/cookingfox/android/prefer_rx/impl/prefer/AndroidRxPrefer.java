@@ -14,12 +14,20 @@ import com.cookingfox.android.prefer_rx.impl.pref.typed.AndroidIntegerRxPref;
 import com.cookingfox.android.prefer_rx.impl.pref.typed.AndroidLongRxPref;
 import com.cookingfox.android.prefer_rx.impl.pref.typed.AndroidStringRxPref;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
 import rx.Observable;
+import rx.Scheduler;
 import rx.Subscriber;
+import rx.Subscription;
 import rx.functions.Action0;
 import rx.subscriptions.CompositeSubscription;
 import rx.subscriptions.Subscriptions;
 
+import static com.cookingfox.guava_preconditions.Preconditions.checkArgument;
 import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
 
 /**
@@ -28,7 +36,18 @@ import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
 public abstract class AndroidRxPrefer extends AndroidPrefer implements RxPrefer {
 
     /**
-     * Track observable subscribers, so they can be cleared on dispose.
+     * Shared value change observables, by Pref: cleared on dispose.
+     */
+    protected final ConcurrentMap<Pref, Observable<?>> valueObservables = new ConcurrentHashMap<>();
+
+    /**
+     * Shared group value change observables, by group: cleared on dispose.
+     */
+    protected final ConcurrentMap<PrefGroup, Observable<?>> groupValueObservables = new ConcurrentHashMap<>();
+
+    /**
+     * Track the completion of the observable sources, so they can be completed on dispose.
+     * Completions are removed when the source is unsubscribed.
      */
     protected final CompositeSubscription subscribers = new CompositeSubscription();
 
@@ -36,7 +55,13 @@ public abstract class AndroidRxPrefer extends AndroidPrefer implements RxPrefer
     // IMPLEMENTATION: RxPrefer
     //----------------------------------------------------------------------------------------------
 
+    /**
+     * Returns an observable of the Pref's value changes, which is shared by all its subscribers:
+     * one listener is added when the first subscriber subscribes and it is removed when the last
+     * subscriber unsubscribes.
+     */
     @Override
+    @SuppressWarnings("unchecked")
     public <K extends Enum<K>, V> Observable<V> observeValueChanges(final Pref<K, V> pref) {
         checkNotNull(pref, "Pref can not be null");
 
@@ -44,34 +69,28 @@ public abstract class AndroidRxPrefer extends AndroidPrefer implements RxPrefer
             throw new PreferNotInitializedException("Can not observe Pref");
         }
 
-        return Observable.create(new Observable.OnSubscribe<V>() {
-            @Override
-            public void call(final Subscriber<? super V> subscriber) {
-                // create listener implementation that notifies Rx subscriber
-                final OnValueChanged<V> listener = new OnValueChanged<V>() {
-                    @Override
-                    public void onValueChanged(V value) {
-                        subscriber.onNext(value);
-                    }
-                };
+        Observable<V> observable = (Observable<V>) valueObservables.get(pref);
 
-                addValueChangedListener(pref, listener);
+        if (observable == null) {
+            observable = createValueObservable(pref).share();
 
-                // remove the listener when the Rx subscriber unsubscribes
-                subscriber.add(Subscriptions.create(new Action0() {
-                    @Override
-                    public void call() {
-                        removeValueChangedListener(pref, listener);
-                        subscriber.onCompleted();
-                    }
-                }));
+            final Observable<V> existing = (Observable<V>) valueObservables.putIfAbsent(pref, observable);
 
-                subscribers.add(subscriber);
+            if (existing != null) {
+                observable = existing;
             }
-        });
+        }
+
+        return observable;
     }
 
+    /**
+     * Returns an observable of the group's value changes, which is shared by all its subscribers:
+     * one listener is added when the first subscriber subscribes and it is removed when the last
+     * subscriber unsubscribes.
+     */
     @Override
+    @SuppressWarnings("unchecked")
     public <K extends Enum<K>> Observable<Pref<K, ?>> observeGroupValueChanges(final PrefGroup<K> group) {
         checkNotNull(group, "Group can not be null");
 
@@ -79,29 +98,83 @@ public abstract class AndroidRxPrefer extends AndroidPrefer implements RxPrefer
             throw new PreferNotInitializedException("Can not observe group");
         }
 
-        return Observable.create(new Observable.OnSubscribe<Pref<K, ?>>() {
+        Observable<Pref<K, ?>> observable = (Observable<Pref<K, ?>>) groupValueObservables.get(group);
+
+        if (observable == null) {
+            observable = createGroupValueObservable(group).share();
+
+            final Observable<Pref<K, ?>> existing =
+                    (Observable<Pref<K, ?>>) groupValueObservables.putIfAbsent(group, observable);
+
+            if (existing != null) {
+                observable = existing;
+            }
+        }
+
+        return observable;
+    }
+
+    @Override
+    public <K extends Enum<K>, V> Observable<V> observeValueChanges(Pref<K, V> pref, Scheduler scheduler) {
+        return notifyOn(observeValueChanges(pref), scheduler);
+    }
+
+    @Override
+    public <K extends Enum<K>> Observable<Pref<K, ?>> observeGroupValueChanges(PrefGroup<K> group, Scheduler scheduler) {
+        return notifyOn(observeGroupValueChanges(group), scheduler);
+    }
+
+    @Override
+    public <K extends Enum<K>, V> Observable<V> observeLatestValueChanges(Pref<K, V> pref) {
+        return createLatestValueObservable(pref, false);
+    }
+
+    @Override
+    public <K extends Enum<K>, V> Observable<V> observeValue(Pref<K, V> pref) {
+        return createLatestValueObservable(pref, true);
+    }
+
+    @Override
+    public <K extends Enum<K>> Observable<Set<K>> observeGroupChangedKeys(final PrefGroup<K> group,
+                                                                         final long window,
+                                                                         final TimeUnit unit,
+                                                                         final Scheduler scheduler) {
+        checkArgument(window >= 0, "Window can not be negative");
+        checkNotNull(unit, "Unit can not be null");
+        checkNotNull(scheduler, "Scheduler can not be null");
+
+        final Observable<Pref<K, ?>> groupValueChanges = observeGroupValueChanges(group);
+
+        return Observable.create(new Observable.OnSubscribe<Set<K>>() {
             @Override
-            public void call(final Subscriber<? super Pref<K, ?>> subscriber) {
-                // create listener implementation that notifies Rx subscriber
-                final OnGroupValueChanged<K> listener = new OnGroupValueChanged<K>() {
+            public void call(final Subscriber<? super Set<K>> child) {
+                final ChangedKeysProducer<K> producer =
+                        new ChangedKeysProducer<>(child, group.getKeyClass(), window, unit, scheduler);
+
+                final Subscriber<Pref<K, ?>> source = new Subscriber<Pref<K, ?>>() {
                     @Override
-                    public void onGroupValueChanged(Pref<K, ?> pref) {
-                        subscriber.onNext(pref);
+                    public void onCompleted() {
+                        producer.complete();
                     }
-                };
 
-                addGroupValueChangedListener(group, listener);
+                    @Override
+                    public void onError(Throwable e) {
+                        child.onError(e);
+                    }
 
-                // remove the listener when the Rx subscriber unsubscribes
-                subscriber.add(Subscriptions.create(new Action0() {
                     @Override
-                    public void call() {
-                        removeGroupValueChangedListener(group, listener);
-                        subscriber.onCompleted();
+                    public void onNext(Pref<K, ?> pref) {
+                        // the changed Pref is not part of the group
+                        if (pref != null) {
+                            producer.onKey(pref.getKey());
+                        }
                     }
-                }));
+                };
+
+                child.add(source);
+                child.setProducer(producer);
 
-                subscribers.add(subscriber);
+                groupValueChanges.unsafeSubscribe(source);
             }
         });
     }
@@ -116,8 +189,10 @@ public abstract class AndroidRxPrefer extends AndroidPrefer implements RxPrefer
             return;
         }
 
-        // clear subscribers
+        // complete the shared observables
         subscribers.clear();
+        valueObservables.clear();
+        groupValueObservables.clear();
 
         super.disposePrefer();
     }
@@ -161,4 +236,204 @@ public abstract class AndroidRxPrefer extends AndroidPrefer implements RxPrefer
         return new AndroidStringRxPref<>(this, key, defaultValue);
     }
 
+    //----------------------------------------------------------------------------------------------
+    // PROTECTED METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates the source of a shared value change observable: adds a value changed listener for
+     * every subscription.
+     *
+     * @param pref The Pref to observe.
+     * @return The source observable.
+     */
+    protected <K extends Enum<K>, V> Observable<V> createValueObservable(final Pref<K, V> pref) {
+        return Observable.create(new Observable.OnSubscribe<V>() {
+            @Override
+            public void call(final Subscriber<? super V> subscriber) {
+                // create listener implementation that notifies Rx subscriber
+                final OnValueChanged<V> listener = new OnValueChanged<V>() {
+                    @Override
+                    public void onValueChanged(V value) {
+                        subscriber.onNext(value);
+                    }
+                };
+
+                final Subscription completion = createCompletion(subscriber);
+
+                addValueChangedListener(pref, listener);
+
+                // remove the listener and stop tracking when the Rx subscriber unsubscribes
+                subscriber.add(Subscriptions.create(new Action0() {
+                    @Override
+                    public void call() {
+                        removeValueChangedListener(pref, listener);
+                        subscribers.remove(completion);
+                    }
+                }));
+            }
+        });
+    }
+
+    /**
+     * Creates the source of a shared group value change observable: adds a group value changed
+     * listener for every subscription.
+     *
+     * @param group The group to observe.
+     * @return The source observable.
+     */
+    protected <K extends Enum<K>> Observable<Pref<K, ?>> createGroupValueObservable(final PrefGroup<K> group) {
+        return Observable.create(new Observable.OnSubscribe<Pref<K, ?>>() {
+            @Override
+            public void call(final Subscriber<? super Pref<K, ?>> subscriber) {
+                // create listener implementation that notifies Rx subscriber
+                final OnGroupValueChanged<K> listener = new OnGroupValueChanged<K>() {
+                    @Override
+                    public void onGroupValueChanged(Pref<K, ?> pref) {
+                        subscriber.onNext(pref);
+                    }
+                };
+
+                final Subscription completion = createCompletion(subscriber);
+
+                addGroupValueChangedListener(group, listener);
+
+                // remove the listener and stop tracking when the Rx subscriber unsubscribes
+                subscriber.add(Subscriptions.create(new Action0() {
+                    @Override
+                    public void call() {
+                        removeGroupValueChangedListener(group, listener);
+                        subscribers.remove(completion);
+                    }
+                }));
+            }
+        });
+    }
+
+    /**
+     * Creates an observable that coalesces the Pref's value changes using a
+     * {@link LatestValueProducer}. When the current value is emitted, it is read once after the
+     * listener is added, so a change that happens in between can not be missed, and it is dropped
+     * if a change was already received.
+     *
+     * @param pref        The Pref to observe.
+     * @param emitCurrent Whether to emit the current value first.
+     * @return The latest value observable.
+     */
+    protected <K extends Enum<K>, V> Observable<V> createLatestValueObservable(final Pref<K, V> pref,
+                                                                              final boolean emitCurrent) {
+        final Observable<V> valueChanges = observeValueChanges(pref);
+
+        return Observable.create(new Observable.OnSubscribe<V>() {
+            @Override
+            public void call(final Subscriber<? super V> child) {
+                final LatestValueProducer<V> producer = new LatestValueProducer<>(child);
+
+                final Subscriber<V> source = new Subscriber<V>() {
+                    @Override
+                    public void onCompleted() {
+                        producer.complete();
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        child.onError(e);
+                    }
+
+                    @Override
+                    public void onNext(V value) {
+                        producer.onValue(value);
+                    }
+                };
+
+                child.add(source);
+                child.setProducer(producer);
+
+                valueChanges.unsafeSubscribe(source);
+
+                if (emitCurrent && !source.isUnsubscribed()) {
+                    producer.onCurrentValue(pref.getValue());
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns an observable that notifies its subscribers on a worker of the scheduler. Unlike
+     * {@link Observable#observeOn(Scheduler)}, notifications are not bounded by a buffer size:
+     * the change observables do not support backpressure, so a burst of changes must not fail a
+     * slow subscriber.
+     *
+     * @param source    The observable to notify from.
+     * @param scheduler The scheduler to notify the subscribers on.
+     * @return The observable.
+     */
+    protected <T> Observable<T> notifyOn(final Observable<T> source, final Scheduler scheduler) {
+        checkNotNull(scheduler, "Scheduler can not be null");
+
+        return Observable.create(new Observable.OnSubscribe<T>() {
+            @Override
+            public void call(final Subscriber<? super T> child) {
+                // a worker runs its actions one at a time, in order
+                final Scheduler.Worker worker = scheduler.createWorker();
+
+                child.add(worker);
+
+                source.unsafeSubscribe(new Subscriber<T>(child) {
+                    @Override
+                    public void onCompleted() {
+                        worker.schedule(new Action0() {
+                            @Override
+                            public void call() {
+                                child.onCompleted();
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onError(final Throwable e) {
+                        worker.schedule(new Action0() {
+                            @Override
+                            public void call() {
+                                child.onError(e);
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onNext(final T value) {
+                        worker.schedule(new Action0() {
+                            @Override
+                            public void call() {
+                                child.onNext(value);
+                            }
+                        });
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Creates and tracks a subscription that completes the subscriber when it is unsubscribed,
+     * which happens on dispose.
+     *
+     * @param subscriber The subscriber to complete.
+     * @return The tracked completion.
+     */
+    protected Subscription createCompletion(final Subscriber<?> subscriber) {
+        final Subscription completion = Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                if (!subscriber.isUnsubscribed()) {
+                    subscriber.onCompleted();
+                }
+            }
+        });
+
+        subscribers.add(completion);
+
+        return completion;
+    }
+
 }
@@ -0,0 +1,152 @@
+package com.cookingfox.android.prefer_rx.impl.prefer;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Action0;
+
+/**
+ * Batches the keys of changed group values per time window: the window starts at the first change
+ * and the set of changed keys is emitted when it closes. Windows that close while the subscriber
+ * has no outstanding requests are merged into the next emitted set.
+ *
+ * @param <K> References the enum class for the group's keys.
+ */
+class ChangedKeysProducer<K extends Enum<K>> extends CoalescingProducer<Set<K>> {
+
+    /**
+     * The keys that changed in the current window.
+     */
+    protected final Set<K> windowKeys;
+
+    /**
+     * The keys of closed windows that are not emitted yet.
+     */
+    protected final Set<K> readyKeys;
+
+    /**
+     * The window duration.
+     */
+    protected final long window;
+
+    /**
+     * The unit of the window duration.
+     */
+    protected final TimeUnit unit;
+
+    /**
+     * Closes the windows.
+     */
+    protected final Scheduler.Worker worker;
+
+    /**
+     * Whether a window is open.
+     */
+    protected boolean windowOpen;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    ChangedKeysProducer(Subscriber<? super Set<K>> child, Class<K> keyClass, long window,
+                        TimeUnit unit, Scheduler scheduler) {
+        super(child);
+
+        this.window = window;
+        this.unit = unit;
+
+        windowKeys = EnumSet.noneOf(keyClass);
+        readyKeys = EnumSet.noneOf(keyClass);
+        worker = scheduler.createWorker();
+
+        child.add(worker);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Adds the key to the current window and opens a window if there is none.
+     *
+     * @param key The key of the changed value.
+     */
+    public void onKey(K key) {
+        synchronized (this) {
+            windowKeys.add(key);
+
+            if (windowOpen) {
+                return;
+            }
+
+            windowOpen = true;
+        }
+
+        worker.schedule(new Action0() {
+            @Override
+            public void call() {
+                closeWindow();
+            }
+        }, window, unit);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // IMPLEMENTATION: CoalescingProducer
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Closes the current window before completing, so its keys are not lost.
+     */
+    @Override
+    protected void complete() {
+        synchronized (this) {
+            readyKeys.addAll(windowKeys);
+            windowKeys.clear();
+            windowOpen = false;
+        }
+
+        worker.unsubscribe();
+
+        super.complete();
+    }
+
+    @Override
+    protected synchronized boolean hasPending() {
+        return !readyKeys.isEmpty();
+    }
+
+    @Override
+    protected synchronized Object poll() {
+        if (readyKeys.isEmpty()) {
+            return NONE;
+        }
+
+        final Set<K> keys = EnumSet.copyOf(readyKeys);
+
+        readyKeys.clear();
+
+        return Collections.unmodifiableSet(keys);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PROTECTED METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Moves the keys of the current window to the ready keys and emits them if requested.
+     */
+    protected void closeWindow() {
+        synchronized (this) {
+            readyKeys.addAll(windowKeys);
+            windowKeys.clear();
+            windowOpen = false;
+        }
+
+        drain();
+    }
+
+}
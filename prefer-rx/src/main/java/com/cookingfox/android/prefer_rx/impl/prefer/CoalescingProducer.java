@@ -0,0 +1,143 @@
+package com.cookingfox.android.prefer_rx.impl.prefer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Producer;
+import rx.Subscriber;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkArgument;
+
+/**
+ * Producer that emits coalesced changes as far as the subscriber requested them: changes that
+ * arrive while the subscriber has no outstanding requests are merged instead of buffered, so a
+ * slow subscriber only receives the latest state.
+ *
+ * @param <T> Indicates the emitted value type.
+ */
+abstract class CoalescingProducer<T> implements Producer {
+
+    /**
+     * Returned by {@link #poll()} when there is nothing to emit.
+     */
+    static final Object NONE = new Object();
+
+    /**
+     * The subscriber to emit to.
+     */
+    protected final Subscriber<? super T> child;
+
+    /**
+     * The number of outstanding requests.
+     */
+    protected final AtomicLong requested = new AtomicLong();
+
+    /**
+     * Makes sure only one thread emits at a time.
+     */
+    protected final AtomicInteger wip = new AtomicInteger();
+
+    /**
+     * Whether the source completed.
+     */
+    protected volatile boolean done;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    CoalescingProducer(Subscriber<? super T> child) {
+        this.child = child;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // IMPLEMENTATION: Producer
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public void request(long n) {
+        checkArgument(n >= 0, "Request can not be negative");
+
+        if (n == 0) {
+            return;
+        }
+
+        while (true) {
+            final long current = requested.get();
+            final long updated = current + n < 0 ? Long.MAX_VALUE : current + n;
+
+            if (requested.compareAndSet(current, updated)) {
+                break;
+            }
+        }
+
+        drain();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PROTECTED METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Marks the source as completed: the subscriber completes once the pending changes are
+     * emitted.
+     */
+    protected void complete() {
+        done = true;
+        drain();
+    }
+
+    /**
+     * Emits the pending changes while there are outstanding requests.
+     */
+    @SuppressWarnings("unchecked")
+    protected void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+
+        do {
+            if (child.isUnsubscribed()) {
+                return;
+            }
+
+            while (requested.get() > 0) {
+                final Object next = poll();
+
+                if (next == NONE) {
+                    break;
+                }
+
+                child.onNext((T) next);
+
+                if (child.isUnsubscribed()) {
+                    return;
+                }
+
+                if (requested.get() != Long.MAX_VALUE) {
+                    requested.decrementAndGet();
+                }
+            }
+
+            if (done && !hasPending()) {
+                child.onCompleted();
+                return;
+            }
+        } while (wip.decrementAndGet() != 0);
+    }
+
+    /**
+     * Returns whether there is a pending change.
+     *
+     * @return Whether there is a pending change.
+     */
+    protected abstract boolean hasPending();
+
+    /**
+     * Removes and returns the pending change. Only called from {@link #drain()}.
+     *
+     * @return The pending change, or {@link #NONE}.
+     */
+    protected abstract Object poll();
+
+}
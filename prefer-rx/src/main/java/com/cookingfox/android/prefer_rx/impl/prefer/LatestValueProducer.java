@@ -0,0 +1,100 @@
+package com.cookingfox.android.prefer_rx.impl.prefer;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import rx.Subscriber;
+
+/**
+ * Coalesces value changes: only the latest value is kept while the subscriber has no outstanding
+ * requests, and a value that equals the previously emitted value is not emitted.
+ *
+ * @param <V> Indicates the Pref's value type.
+ */
+class LatestValueProducer<V> extends CoalescingProducer<V> {
+
+    /**
+     * The latest value that is not emitted yet, or {@link #NONE}.
+     */
+    protected final AtomicReference<Object> latest = new AtomicReference<>(NONE);
+
+    /**
+     * The previously emitted value: only accessed from {@link #drain()}.
+     */
+    protected Object lastEmitted = NONE;
+
+    /**
+     * Whether a value change was received.
+     */
+    protected boolean changed;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    LatestValueProducer(Subscriber<? super V> child) {
+        super(child);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Replaces the pending value and emits it if requested.
+     *
+     * @param value The new value.
+     */
+    public void onValue(V value) {
+        synchronized (this) {
+            changed = true;
+            latest.set(value);
+        }
+
+        drain();
+    }
+
+    /**
+     * Sets the current value as the pending value, unless a value change was already received:
+     * that value is newer, or equal.
+     *
+     * @param value The current value.
+     */
+    public void onCurrentValue(V value) {
+        synchronized (this) {
+            if (changed) {
+                return;
+            }
+
+            latest.set(value);
+        }
+
+        drain();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // IMPLEMENTATION: CoalescingProducer
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    protected boolean hasPending() {
+        return latest.get() != NONE;
+    }
+
+    @Override
+    protected Object poll() {
+        while (true) {
+            final Object value = latest.getAndSet(NONE);
+
+            if (value == NONE) {
+                return NONE;
+            }
+
+            if (value == null ? lastEmitted != null : !value.equals(lastEmitted)) {
+                lastEmitted = value;
+
+                return value;
+            }
+        }
+    }
+
+}
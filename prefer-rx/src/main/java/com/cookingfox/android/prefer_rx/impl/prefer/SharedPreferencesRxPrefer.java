@@ -3,6 +3,7 @@ package com.cookingfox.android.prefer_rx.impl.prefer;
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
 
+import com.cookingfox.android.prefer.impl.prefer.CachingPreferHelper;
 import com.cookingfox.android.prefer.impl.prefer.PreferHelper;
 import com.cookingfox.android.prefer.impl.prefer.SharedPreferencesHelper;
 import com.cookingfox.android.prefer_rx.api.prefer.RxPrefer;
@@ -14,6 +15,11 @@ import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
  */
 public class SharedPreferencesRxPrefer extends AndroidRxPrefer {
 
+    /**
+     * Whether integer, long and float values are stored natively, instead of as strings.
+     */
+    protected final boolean nativeNumberStorage;
+
     /**
      * References the actual shared preferences instance.
      */
@@ -24,21 +30,44 @@ public class SharedPreferencesRxPrefer extends AndroidRxPrefer {
     //----------------------------------------------------------------------------------------------
 
     public SharedPreferencesRxPrefer(SharedPreferences preferences) {
+        this(preferences, false);
+    }
+
+    /**
+     * Create a new Prefer instance.
+     *
+     * @param preferences         The shared preferences instance.
+     * @param nativeNumberStorage Whether integer, long and float values should be stored natively
+     *                            instead of as strings.
+     * @see SharedPreferencesHelper#SharedPreferencesHelper(SharedPreferences,
+     * OnSharedPreferenceChangeListener, boolean)
+     */
+    public SharedPreferencesRxPrefer(SharedPreferences preferences, boolean nativeNumberStorage) {
         this.preferences = checkNotNull(preferences, "Preferences can not be null");
+        this.nativeNumberStorage = nativeNumberStorage;
     }
 
     //----------------------------------------------------------------------------------------------
     // PROTECTED METHODS
     //----------------------------------------------------------------------------------------------
 
+    /**
+     * Creates a shared preferences helper, wrapped in a {@link CachingPreferHelper}. The change
+     * listener invalidates the cached values through `handlePrefChanged`.
+     *
+     * @return The helper instance.
+     */
     @Override
     protected PreferHelper createHelper() {
-        return new SharedPreferencesHelper(preferences, new OnSharedPreferenceChangeListener() {
+        final OnSharedPreferenceChangeListener listener = new OnSharedPreferenceChangeListener() {
             @Override
             public void onSharedPreferenceChanged(SharedPreferences ignored, String serializedKey) {
                 handlePrefChanged(serializedKey);
             }
-        });
+        };
+
+        return new CachingPreferHelper(
+                new SharedPreferencesHelper(preferences, listener, nativeNumberStorage));
     }
 
 }
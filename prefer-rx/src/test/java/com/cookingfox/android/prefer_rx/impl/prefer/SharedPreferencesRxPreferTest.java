@@ -1,9 +1,13 @@
 package com.cookingfox.android.prefer_rx.impl.prefer;
 
 import com.cookingfox.android.prefer.api.exception.PreferNotInitializedException;
+import com.cookingfox.android.prefer.api.pref.OnValueChanged;
 import com.cookingfox.android.prefer.api.pref.Pref;
 import com.cookingfox.android.prefer.impl.pref.typed.AndroidBooleanPref;
+import com.cookingfox.android.prefer.impl.pref.typed.AndroidIntegerPref;
 import com.cookingfox.android.prefer_rx.impl.pref.AndroidRxPrefGroup;
+import com.cookingfox.android.prefer_rx.impl.pref.typed.AndroidBooleanRxPref;
+import com.cookingfox.android.prefer_rx.impl.pref.typed.AndroidIntegerRxPref;
 import com.cookingfox.android.prefer_testing.fixtures.Key;
 import com.cookingfox.android.prefer_testing.shared_preferences.InMemorySharedPreferences;
 
@@ -11,8 +15,20 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import rx.Subscription;
 import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Unit tests for {@link SharedPreferencesRxPrefer}.
@@ -116,6 +132,50 @@ public class SharedPreferencesRxPreferTest {
         subscriber.assertValueCount(1);
     }
 
+    @Test
+    public void observeValueChanges_should_notify_on_scheduler() throws Exception {
+        TestScheduler scheduler = new TestScheduler();
+        TestSubscriber<Integer> subscriber = TestSubscriber.create();
+
+        AndroidIntegerPref<Key> pref = prefer.newInteger(Key.IntervalMs, 0);
+        prefer.observeValueChanges(pref, scheduler).subscribe(subscriber);
+
+        for (int i = 1; i <= 1000; i++) {
+            pref.setValue(i);
+        }
+
+        subscriber.assertNoValues();
+
+        scheduler.triggerActions();
+
+        subscriber.assertNoErrors();
+        subscriber.assertValueCount(1000);
+        assertEquals(Integer.valueOf(1000), subscriber.getOnNextEvents().get(999));
+
+        prefer.disposePrefer();
+        scheduler.triggerActions();
+
+        subscriber.assertCompleted();
+    }
+
+    @Test
+    public void observeGroupValueChanges_should_notify_on_scheduler() throws Exception {
+        TestScheduler scheduler = new TestScheduler();
+        TestSubscriber<Pref<Key, ?>> subscriber = TestSubscriber.create();
+
+        AndroidRxPrefGroup<Key> group = prefer.addNewGroup(Key.class);
+        AndroidBooleanRxPref<Key> pref = group.addNewBoolean(Key.IsEnabled, false);
+        prefer.observeGroupValueChanges(group, scheduler).subscribe(subscriber);
+
+        pref.setValue(true);
+
+        subscriber.assertNoValues();
+
+        scheduler.triggerActions();
+
+        subscriber.assertValueCount(1);
+    }
+
     //----------------------------------------------------------------------------------------------
     // TESTS: observeGroupValueChanges
     //----------------------------------------------------------------------------------------------
@@ -167,4 +227,302 @@ public class SharedPreferencesRxPreferTest {
         subscriber.assertValueCount(1);
     }
 
+    //----------------------------------------------------------------------------------------------
+    // TESTS: observeLatestValueChanges
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void observeLatestValueChanges_should_skip_equal_values() throws Exception {
+        TestSubscriber<Integer> subscriber = TestSubscriber.create();
+
+        AndroidIntegerPref<Key> pref = prefer.newInteger(Key.IntervalMs, 0);
+        prefer.observeLatestValueChanges(pref).subscribe(subscriber);
+
+        pref.setValue(1);
+        pref.setValue(1);
+        pref.setValue(2);
+        pref.setValue(1);
+
+        subscriber.assertValues(1, 2, 1);
+    }
+
+    @Test
+    public void observeLatestValueChanges_should_keep_latest_value_until_requested() throws Exception {
+        TestSubscriber<Integer> subscriber = TestSubscriber.create(0);
+
+        AndroidIntegerPref<Key> pref = prefer.newInteger(Key.IntervalMs, 0);
+        prefer.observeLatestValueChanges(pref).subscribe(subscriber);
+
+        for (int i = 1; i <= 100; i++) {
+            pref.setValue(i);
+        }
+
+        subscriber.assertNoValues();
+
+        subscriber.requestMore(1);
+        subscriber.assertValues(100);
+
+        pref.setValue(101);
+        pref.setValue(102);
+        subscriber.requestMore(5);
+
+        subscriber.assertValues(100, 102);
+    }
+
+    @Test
+    public void observeLatestValueChanges_should_complete_on_dispose() throws Exception {
+        TestSubscriber<Integer> subscriber = TestSubscriber.create();
+
+        AndroidIntegerPref<Key> pref = prefer.newInteger(Key.IntervalMs, 0);
+        prefer.observeLatestValueChanges(pref).subscribe(subscriber);
+
+        prefer.disposePrefer();
+
+        subscriber.assertCompleted();
+        assertFalse(prefer.subscribers.hasSubscriptions());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: observeValue
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void observeValue_should_emit_current_value_then_changes() throws Exception {
+        TestSubscriber<Integer> subscriber = TestSubscriber.create();
+
+        AndroidIntegerPref<Key> pref = prefer.newInteger(Key.IntervalMs, 0);
+        pref.setValue(1);
+
+        prefer.observeValue(pref).subscribe(subscriber);
+
+        pref.setValue(2);
+
+        subscriber.assertValues(1, 2);
+    }
+
+    @Test
+    public void observeValue_should_not_emit_current_value_older_than_change() throws Exception {
+        TestSubscriber<Integer> subscriber = TestSubscriber.create();
+
+        // changes the value right after the current value is read
+        AndroidIntegerPref<Key> pref = new AndroidIntegerPref<Key>(prefer, Key.IntervalMs, 0) {
+            boolean first = true;
+
+            @Override
+            public Integer getValue() {
+                final Integer value = super.getValue();
+
+                if (first) {
+                    first = false;
+                    setValue(value + 1);
+                }
+
+                return value;
+            }
+        };
+
+        prefer.observeValue(pref).subscribe(subscriber);
+
+        subscriber.assertValues(1);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: observeGroupChangedKeys
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = IllegalArgumentException.class)
+    public void observeGroupChangedKeys_should_throw_if_window_negative() throws Exception {
+        prefer.observeGroupChangedKeys(prefer.newGroup(Key.class), -1, TimeUnit.SECONDS, Schedulers.immediate());
+    }
+
+    @Test
+    public void observeGroupChangedKeys_should_batch_keys_per_window() throws Exception {
+        TestScheduler scheduler = new TestScheduler();
+        TestSubscriber<Set<Key>> subscriber = TestSubscriber.create();
+
+        AndroidRxPrefGroup<Key> group = prefer.addNewGroup(Key.class);
+        AndroidBooleanRxPref<Key> isEnabled = group.addNewBoolean(Key.IsEnabled, false);
+        AndroidIntegerRxPref<Key> intervalMs = group.addNewInteger(Key.IntervalMs, 0);
+
+        group.observeChangedKeys(100, TimeUnit.MILLISECONDS, scheduler).subscribe(subscriber);
+
+        isEnabled.setValue(true);
+        intervalMs.setValue(1);
+        intervalMs.setValue(2);
+
+        subscriber.assertNoValues();
+
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+
+        subscriber.assertValues(EnumSet.of(Key.IsEnabled, Key.IntervalMs));
+
+        intervalMs.setValue(3);
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+
+        subscriber.assertValueCount(2);
+        assertEquals(EnumSet.of(Key.IntervalMs), subscriber.getOnNextEvents().get(1));
+    }
+
+    @Test
+    public void observeGroupChangedKeys_should_merge_windows_until_requested() throws Exception {
+        TestScheduler scheduler = new TestScheduler();
+        TestSubscriber<Set<Key>> subscriber = TestSubscriber.create(0);
+
+        AndroidRxPrefGroup<Key> group = prefer.addNewGroup(Key.class);
+        AndroidBooleanRxPref<Key> isEnabled = group.addNewBoolean(Key.IsEnabled, false);
+        AndroidIntegerRxPref<Key> intervalMs = group.addNewInteger(Key.IntervalMs, 0);
+
+        group.observeChangedKeys(100, TimeUnit.MILLISECONDS, scheduler).subscribe(subscriber);
+
+        isEnabled.setValue(true);
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        intervalMs.setValue(1);
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+
+        subscriber.assertNoValues();
+
+        subscriber.requestMore(1);
+
+        subscriber.assertValues(EnumSet.of(Key.IsEnabled, Key.IntervalMs));
+    }
+
+    @Test
+    public void observeGroupChangedKeys_should_emit_open_window_on_dispose() throws Exception {
+        TestScheduler scheduler = new TestScheduler();
+        TestSubscriber<Set<Key>> subscriber = TestSubscriber.create();
+
+        AndroidRxPrefGroup<Key> group = prefer.addNewGroup(Key.class);
+        AndroidBooleanRxPref<Key> isEnabled = group.addNewBoolean(Key.IsEnabled, false);
+
+        group.observeChangedKeys(100, TimeUnit.MILLISECONDS, scheduler).subscribe(subscriber);
+
+        isEnabled.setValue(true);
+        prefer.disposePrefer();
+
+        subscriber.assertValues(EnumSet.of(Key.IsEnabled));
+        subscriber.assertCompleted();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: subscription tracking
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void observeValueChanges_should_not_track_unsubscribed_subscribers() throws Exception {
+        AndroidBooleanPref<Key> pref = prefer.newBoolean(Key.IsEnabled, true);
+
+        // subscribe and unsubscribe repeatedly, like a screen that is opened and closed
+        for (int i = 0; i < 10000; i++) {
+            Subscription subscription = prefer.observeValueChanges(pref)
+                    .subscribe(TestSubscriber.<Boolean>create());
+
+            assertTrue(prefer.subscribers.hasSubscriptions());
+
+            subscription.unsubscribe();
+        }
+
+        assertFalse(prefer.subscribers.hasSubscriptions());
+    }
+
+    @Test
+    public void observeGroupValueChanges_should_not_track_unsubscribed_subscribers() throws Exception {
+        AndroidRxPrefGroup<Key> group = prefer.addNewGroup(Key.class);
+
+        for (int i = 0; i < 10000; i++) {
+            prefer.observeGroupValueChanges(group)
+                    .subscribe(TestSubscriber.<Pref<Key, ?>>create())
+                    .unsubscribe();
+        }
+
+        assertFalse(prefer.subscribers.hasSubscriptions());
+    }
+
+    @Test
+    public void observeValueChanges_should_not_track_subscriber_that_unsubscribes_on_value() throws Exception {
+        AndroidBooleanPref<Key> pref = prefer.newBoolean(Key.IsEnabled, true);
+
+        prefer.observeValueChanges(pref).first().subscribe(TestSubscriber.<Boolean>create());
+
+        pref.setValue(false);
+
+        assertFalse(prefer.subscribers.hasSubscriptions());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: shared observables
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void observeValueChanges_should_share_one_listener() throws Exception {
+        final AtomicInteger numListeners = new AtomicInteger();
+
+        prefer.disposePrefer();
+        prefer = new SharedPreferencesRxPrefer(new InMemorySharedPreferences()) {
+            @Override
+            public <K extends Enum<K>, V> void addValueChangedListener(Pref<K, V> pref, OnValueChanged<V> listener) {
+                numListeners.incrementAndGet();
+                super.addValueChangedListener(pref, listener);
+            }
+        };
+        prefer.initializePrefer();
+
+        AndroidBooleanPref<Key> pref = prefer.newBoolean(Key.IsEnabled, true);
+        TestSubscriber<Boolean> first = TestSubscriber.create();
+        TestSubscriber<Boolean> second = TestSubscriber.create();
+
+        assertSame(prefer.observeValueChanges(pref), prefer.observeValueChanges(pref));
+
+        Subscription firstSubscription = prefer.observeValueChanges(pref).subscribe(first);
+        Subscription secondSubscription = prefer.observeValueChanges(pref).subscribe(second);
+
+        pref.setValue(false);
+
+        first.assertValues(false);
+        second.assertValues(false);
+        assertEquals(1, numListeners.get());
+
+        firstSubscription.unsubscribe();
+        secondSubscription.unsubscribe();
+
+        assertFalse(prefer.subscribers.hasSubscriptions());
+
+        // subscribing again adds a new listener
+        prefer.observeValueChanges(pref).subscribe(TestSubscriber.<Boolean>create());
+
+        assertEquals(2, numListeners.get());
+    }
+
+    @Test
+    public void observeGroupValueChanges_should_share_observable() throws Exception {
+        AndroidRxPrefGroup<Key> group = prefer.addNewGroup(Key.class);
+        AndroidBooleanPref<Key> pref = prefer.newBoolean(Key.IsEnabled, true);
+        group.addPref(pref);
+
+        TestSubscriber<Pref<Key, ?>> first = TestSubscriber.create();
+        TestSubscriber<Pref<Key, ?>> second = TestSubscriber.create();
+
+        assertSame(prefer.observeGroupValueChanges(group), prefer.observeGroupValueChanges(group));
+
+        prefer.observeGroupValueChanges(group).subscribe(first);
+        prefer.observeGroupValueChanges(group).subscribe(second);
+
+        pref.setValue(false);
+
+        first.assertValueCount(1);
+        second.assertValueCount(1);
+    }
+
+    @Test
+    public void disposePrefer_should_clear_shared_observables() throws Exception {
+        AndroidBooleanPref<Key> pref = prefer.newBoolean(Key.IsEnabled, true);
+        prefer.observeValueChanges(pref).subscribe(TestSubscriber.<Boolean>create());
+        prefer.observeGroupValueChanges(prefer.newGroup(Key.class));
+
+        prefer.disposePrefer();
+
+        assertTrue(prefer.valueObservables.isEmpty());
+        assertTrue(prefer.groupValueObservables.isEmpty());
+        assertFalse(prefer.subscribers.hasSubscriptions());
+    }
+
 }
@@ -0,0 +1,708 @@
+package com.cookingfox.android.prefer_testing.shared_preferences;
+
+import android.content.SharedPreferences;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * File-backed implementation of {@link SharedPreferences} that mimics the Android implementation,
+ * so persistence can be measured and tested on a plain JVM:
+ * <ul>
+ * <li>The file is loaded on a background thread; reads and edits wait until it is loaded.</li>
+ * <li>Values are stored in the same XML format, with their native types.</li>
+ * <li>Each {@link Editor} stages its own changes, which are applied to memory on
+ * {@link Editor#apply()} or {@link Editor#commit()}. Change listeners are notified per changed
+ * key on the calling thread, and with a null key when the preferences were cleared.</li>
+ * <li>The file is rewritten on a shared writer thread, through a temporary file that is synced and
+ * renamed over the file. A write is skipped when a newer state was already written, or will be
+ * written by a later apply.</li>
+ * <li>{@link Editor#commit()} waits for the write and returns whether it succeeded.</li>
+ * </ul>
+ * Listeners are referenced weakly, like on Android.
+ */
+public class FileSharedPreferences implements SharedPreferences {
+
+    /**
+     * Writes the files of all instances, in order.
+     */
+    protected static final ExecutorService writer =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "FileSharedPreferences-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /**
+     * The preferences file.
+     */
+    protected final File file;
+
+    /**
+     * The file that is written first and then renamed to the preferences file.
+     */
+    protected final File temporaryFile;
+
+    /**
+     * Guards the values, the listeners and the write state.
+     */
+    protected final Object lock = new Object();
+
+    /**
+     * Guards the file writes.
+     */
+    protected final Object writeLock = new Object();
+
+    /**
+     * Counted down when the file is loaded.
+     */
+    protected final CountDownLatch loaded = new CountDownLatch(1);
+
+    /**
+     * Registered change listeners, which are referenced weakly.
+     */
+    protected final Map<OnSharedPreferenceChangeListener, Object> listeners = new WeakHashMap<>();
+
+    /**
+     * The current values. Replaced by a copy when it is changed while a write is in flight, since
+     * the writer reads it without locking.
+     */
+    protected Map<String, Object> values = new HashMap<>();
+
+    /**
+     * The error that occurred while loading the file, or null.
+     */
+    protected volatile Exception loadError = null;
+
+    /**
+     * The number of writes that were enqueued but not finished.
+     */
+    protected int writesInFlight = 0;
+
+    /**
+     * Incremented when the values are changed.
+     */
+    protected long memoryGeneration = 0;
+
+    /**
+     * The generation of the values in the file.
+     */
+    protected long fileGeneration = 0;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Create a new instance and start loading the file on a background thread.
+     *
+     * @param file The preferences file, which is created on the first write.
+     */
+    public FileSharedPreferences(File file) {
+        if (file == null) {
+            throw new NullPointerException("File can not be null");
+        }
+
+        this.file = file;
+        this.temporaryFile = new File(file.getPath() + ".tmp");
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        }, "FileSharedPreferences-load").start();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public Map<String, ?> getAll() {
+        awaitLoaded();
+
+        synchronized (lock) {
+            return new HashMap<>(values);
+        }
+    }
+
+    @Override
+    public String getString(String key, String defValue) {
+        final String value = (String) get(key);
+
+        return value == null ? defValue : value;
+    }
+
+    @Override
+    public Set<String> getStringSet(String key, Set<String> defValues) {
+        @SuppressWarnings("unchecked")
+        final Set<String> value = (Set<String>) get(key);
+
+        return value == null ? defValues : value;
+    }
+
+    @Override
+    public int getInt(String key, int defValue) {
+        final Integer value = (Integer) get(key);
+
+        return value == null ? defValue : value;
+    }
+
+    @Override
+    public long getLong(String key, long defValue) {
+        final Long value = (Long) get(key);
+
+        return value == null ? defValue : value;
+    }
+
+    @Override
+    public float getFloat(String key, float defValue) {
+        final Float value = (Float) get(key);
+
+        return value == null ? defValue : value;
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defValue) {
+        final Boolean value = (Boolean) get(key);
+
+        return value == null ? defValue : value;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Editor edit() {
+        awaitLoaded();
+
+        return new FileEditor();
+    }
+
+    @Override
+    public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        synchronized (lock) {
+            listeners.put(listener, lock);
+        }
+    }
+
+    @Override
+    public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        synchronized (lock) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Returns the error that occurred while loading the file, after which the preferences are
+     * empty. Waits until the file is loaded.
+     *
+     * @return The load error, or null if the file was loaded or did not exist.
+     */
+    public Exception getLoadError() {
+        awaitLoaded();
+
+        return loadError;
+    }
+
+    /**
+     * Waits until all writes that were enqueued before, by any instance, are finished.
+     */
+    public void awaitWrites() {
+        final CountDownLatch done = new CountDownLatch(1);
+
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+
+        await(done);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PROTECTED METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the current value of the key, after the file is loaded.
+     *
+     * @param key The preference key.
+     * @return The current value, or null.
+     */
+    protected Object get(String key) {
+        awaitLoaded();
+
+        synchronized (lock) {
+            return values.get(key);
+        }
+    }
+
+    /**
+     * Waits until the file is loaded.
+     */
+    protected void awaitLoaded() {
+        await(loaded);
+    }
+
+    /**
+     * Reads the file. A missing or unreadable file results in empty preferences, like on Android:
+     * the error is kept for {@link #getLoadError()}.
+     */
+    protected void load() {
+        final Map<String, Object> loadedValues = new HashMap<>();
+
+        if (file.exists()) {
+            try {
+                readXml(loadedValues);
+            } catch (Exception e) {
+                loadError = e;
+                loadedValues.clear();
+            }
+        }
+
+        synchronized (lock) {
+            values = loadedValues;
+        }
+
+        loaded.countDown();
+    }
+
+    /**
+     * Parses the XML file into the map.
+     *
+     * @param target The map to add the values to.
+     * @throws Exception when the file could not be parsed.
+     */
+    protected void readXml(Map<String, Object> target) throws Exception {
+        final DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+
+        // the default handler prints the errors: only report them through `getLoadError`
+        builder.setErrorHandler(new ErrorHandler() {
+            @Override
+            public void warning(SAXParseException exception) {
+            }
+
+            @Override
+            public void error(SAXParseException exception) throws SAXException {
+                throw exception;
+            }
+
+            @Override
+            public void fatalError(SAXParseException exception) throws SAXException {
+                throw exception;
+            }
+        });
+
+        final Document document = builder.parse(file);
+        final NodeList nodes = document.getDocumentElement().getChildNodes();
+
+        for (int i = 0; i < nodes.getLength(); i++) {
+            final Node node = nodes.item(i);
+
+            if (node.getNodeType() != Node.ELEMENT_NODE) {
+                continue;
+            }
+
+            final Element element = (Element) node;
+            final String name = element.getAttribute("name");
+            final String value = element.getAttribute("value");
+
+            switch (element.getTagName()) {
+                case "string":
+                    target.put(name, element.getTextContent());
+                    break;
+                case "int":
+                    target.put(name, Integer.parseInt(value));
+                    break;
+                case "long":
+                    target.put(name, Long.parseLong(value));
+                    break;
+                case "float":
+                    target.put(name, Float.parseFloat(value));
+                    break;
+                case "boolean":
+                    target.put(name, Boolean.parseBoolean(value));
+                    break;
+                case "set":
+                    final Set<String> set = new HashSet<>();
+                    final NodeList strings = element.getElementsByTagName("string");
+
+                    for (int j = 0; j < strings.getLength(); j++) {
+                        set.add(strings.item(j).getTextContent());
+                    }
+
+                    target.put(name, Collections.unmodifiableSet(set));
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Writes the values to the temporary file, syncs it and renames it to the preferences file.
+     * Skipped when a newer state was already written, or when a later apply will write it.
+     *
+     * @param request The write request.
+     * @return Whether the file contains the state of the request.
+     */
+    protected boolean write(WriteRequest request) {
+        synchronized (writeLock) {
+            if (request.generation <= fileGeneration) {
+                return true;
+            }
+
+            if (!request.isCommit) {
+                synchronized (lock) {
+                    if (request.generation < memoryGeneration) {
+                        return true;
+                    }
+                }
+            }
+
+            try {
+                final FileOutputStream output = new FileOutputStream(temporaryFile);
+
+                try {
+                    final Writer xml = new BufferedWriter(new OutputStreamWriter(output, "UTF-8"));
+                    writeXml(xml, request.values);
+                    xml.flush();
+                    output.getFD().sync();
+                } finally {
+                    output.close();
+                }
+
+                if (!temporaryFile.renameTo(file)) {
+                    throw new IOException("Could not rename " + temporaryFile + " to " + file);
+                }
+            } catch (IOException e) {
+                // reported by `commit`
+                return false;
+            }
+
+            fileGeneration = request.generation;
+
+            return true;
+        }
+    }
+
+    /**
+     * Writes the values in the XML format of Android's shared preferences.
+     *
+     * @param xml    The output.
+     * @param target The values to write.
+     * @throws IOException when the values could not be written.
+     */
+    protected void writeXml(Writer xml, Map<String, Object> target) throws IOException {
+        xml.write("<?xml version='1.0' encoding='utf-8' standalone='yes' ?>\n<map>\n");
+
+        for (Map.Entry<String, Object> entry : target.entrySet()) {
+            final String name = escape(entry.getKey());
+            final Object value = entry.getValue();
+
+            if (value instanceof String) {
+                xml.write("    <string name=\"" + name + "\">" + escape((String) value) +
+                        "</string>\n");
+            } else if (value instanceof Set) {
+                xml.write("    <set name=\"" + name + "\">\n");
+
+                for (Object string : (Set) value) {
+                    xml.write("        <string>" + escape((String) string) + "</string>\n");
+                }
+
+                xml.write("    </set>\n");
+            } else {
+                final String tag;
+
+                if (value instanceof Integer) {
+                    tag = "int";
+                } else if (value instanceof Long) {
+                    tag = "long";
+                } else if (value instanceof Float) {
+                    tag = "float";
+                } else {
+                    tag = "boolean";
+                }
+
+                xml.write("    <" + tag + " name=\"" + name + "\" value=\"" + value + "\" />\n");
+            }
+        }
+
+        xml.write("</map>\n");
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PRIVATE METHODS
+    //----------------------------------------------------------------------------------------------
+
+    private static void await(CountDownLatch latch) {
+        boolean interrupted = false;
+
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String escape(String value) {
+        final StringBuilder builder = new StringBuilder(value.length());
+
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+
+            switch (c) {
+                case '&':
+                    builder.append("&amp;");
+                    break;
+                case '<':
+                    builder.append("&lt;");
+                    break;
+                case '>':
+                    builder.append("&gt;");
+                    break;
+                case '"':
+                    builder.append("&quot;");
+                    break;
+                default:
+                    builder.append(c);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // INNER CLASSES
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * The values to write, and the changes to notify.
+     */
+    protected static final class WriteRequest {
+        final long generation;
+        final boolean isCommit;
+        final Map<String, Object> values;
+        final List<String> changedKeys;
+        final List<OnSharedPreferenceChangeListener> listeners;
+        final CountDownLatch written = new CountDownLatch(1);
+        volatile boolean success = false;
+
+        WriteRequest(long generation, boolean isCommit, Map<String, Object> values,
+                     List<String> changedKeys, List<OnSharedPreferenceChangeListener> listeners) {
+            this.generation = generation;
+            this.isCommit = isCommit;
+            this.values = values;
+            this.changedKeys = changedKeys;
+            this.listeners = listeners;
+        }
+    }
+
+    /**
+     * Stages the changes until they are applied or committed.
+     */
+    protected class FileEditor implements Editor {
+
+        /**
+         * Staged value of a removed key.
+         */
+        final Object removed = new Object();
+
+        final Map<String, Object> modified = new HashMap<>();
+        boolean clear = false;
+
+        @Override
+        public Editor putString(String key, String value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor putStringSet(String key, Set<String> values) {
+            return put(key, values == null ? null :
+                    Collections.unmodifiableSet(new HashSet<>(values)));
+        }
+
+        @Override
+        public Editor putInt(String key, int value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor putLong(String key, long value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor putFloat(String key, float value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor putBoolean(String key, boolean value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor remove(String key) {
+            return put(key, null);
+        }
+
+        @Override
+        public synchronized Editor clear() {
+            clear = true;
+            return this;
+        }
+
+        @Override
+        public void apply() {
+            final WriteRequest request = commitToMemory(false);
+
+            enqueue(request);
+            notifyListeners(request);
+        }
+
+        @Override
+        public boolean commit() {
+            final WriteRequest request = commitToMemory(true);
+
+            enqueue(request);
+            await(request.written);
+            notifyListeners(request);
+
+            return request.success;
+        }
+
+        synchronized Editor put(String key, Object value) {
+            // like Android: a null value removes the key
+            modified.put(key, value == null ? removed : value);
+            return this;
+        }
+
+        /**
+         * Applies the staged changes to the values.
+         *
+         * @param isCommit Whether the changes are committed.
+         * @return The write request.
+         */
+        WriteRequest commitToMemory(boolean isCommit) {
+            synchronized (lock) {
+                if (writesInFlight > 0) {
+                    // the writer still uses the current map
+                    values = new HashMap<>(values);
+                }
+
+                writesInFlight++;
+
+                final List<String> changedKeys = new ArrayList<>();
+
+                synchronized (this) {
+                    if (clear && !values.isEmpty()) {
+                        values.clear();
+                        changedKeys.add(null);
+                    }
+
+                    clear = false;
+
+                    for (Map.Entry<String, Object> entry : modified.entrySet()) {
+                        final String key = entry.getKey();
+                        final Object value = entry.getValue();
+
+                        final Object previous = value == removed ?
+                                values.remove(key) : values.put(key, value);
+
+                        if (value == removed ? previous != null : !value.equals(previous)) {
+                            changedKeys.add(key);
+                        }
+                    }
+
+                    modified.clear();
+                }
+
+                List<OnSharedPreferenceChangeListener> listenersToNotify = Collections.emptyList();
+
+                if (!changedKeys.isEmpty()) {
+                    memoryGeneration++;
+                    listenersToNotify = new ArrayList<>(listeners.keySet());
+                }
+
+                return new WriteRequest(memoryGeneration, isCommit, values, changedKeys,
+                        listenersToNotify);
+            }
+        }
+
+        /**
+         * Writes the file on the writer thread.
+         *
+         * @param request The write request.
+         */
+        void enqueue(final WriteRequest request) {
+            writer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    request.success = write(request);
+
+                    synchronized (lock) {
+                        writesInFlight--;
+                    }
+
+                    request.written.countDown();
+                }
+            });
+        }
+
+        /**
+         * Notifies the listeners of the changed keys.
+         *
+         * @param request The write request.
+         */
+        void notifyListeners(WriteRequest request) {
+            for (String key : request.changedKeys) {
+                for (OnSharedPreferenceChangeListener listener : request.listeners) {
+                    listener.onSharedPreferenceChanged(FileSharedPreferences.this, key);
+                }
+            }
+        }
+
+    }
+
+}
@@ -2,33 +2,44 @@ package com.cookingfox.android.prefer_testing.shared_preferences;
 
 import android.content.SharedPreferences;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
- * Implementation of {@link SharedPreferences} and {@link Editor} that uses a simple map for the
- * values.
+ * Thread-safe implementation of {@link SharedPreferences} that keeps the values in memory, e.g.
+ * for tests or for preferences that only last for a session.
+ * <p>
+ * Values are stored with their native types: like the Android implementation, reading a value
+ * with another type throws a {@link ClassCastException}. Every {@link #edit()} returns a new
+ * {@link Editor} that stages its changes until {@link Editor#apply()} or {@link Editor#commit()},
+ * which store them at once. Listeners are then notified once per changed key, on the calling
+ * thread, and with a null key when {@link Editor#clear()} removed values. Reads do not lock.
  */
-public class InMemorySharedPreferences implements SharedPreferences, SharedPreferences.Editor {
+public class InMemorySharedPreferences implements SharedPreferences {
 
     /**
-     * The current preference key for the {@link #put(String, Object)} and {@link #apply()}
-     * operations.
+     * Staged value of a removed key.
      */
-    protected String currentKeyForPut;
+    protected static final Object REMOVED = new Object();
 
     /**
-     * A map of the stored preference values, as strings.
+     * The stored preference values, by key.
      */
-    public final Map<String, String> values = new LinkedHashMap<>();
+    public final Map<String, Object> values = new ConcurrentHashMap<>();
 
     /**
      * Registered preference change listeners.
      */
-    public final List<OnSharedPreferenceChangeListener> onChangeListeners = new LinkedList<>();
+    public final List<OnSharedPreferenceChangeListener> onChangeListeners =
+            new CopyOnWriteArrayList<>();
 
     //----------------------------------------------------------------------------------------------
     // PUBLIC METHODS
@@ -36,37 +47,50 @@ public class InMemorySharedPreferences implements SharedPreferences, SharedPrefe
 
     @Override
     public Map<String, ?> getAll() {
-        return values;
+        return new HashMap<>(values);
     }
 
     @Override
     public String getString(String key, String defValue) {
-        return get(key, defValue);
+        final String value = (String) values.get(key);
+
+        return value == null ? defValue : value;
     }
 
     @Override
     public Set<String> getStringSet(String key, Set<String> defValues) {
-        throw new UnsupportedOperationException();
+        @SuppressWarnings("unchecked")
+        final Set<String> value = (Set<String>) values.get(key);
+
+        return value == null ? defValues : value;
     }
 
     @Override
     public int getInt(String key, int defValue) {
-        return Integer.parseInt(get(key, defValue));
+        final Integer value = (Integer) values.get(key);
+
+        return value == null ? defValue : value;
     }
 
     @Override
     public long getLong(String key, long defValue) {
-        return Long.parseLong(get(key, defValue));
+        final Long value = (Long) values.get(key);
+
+        return value == null ? defValue : value;
     }
 
     @Override
     public float getFloat(String key, float defValue) {
-        return Float.parseFloat(get(key, defValue));
+        final Float value = (Float) values.get(key);
+
+        return value == null ? defValue : value;
     }
 
     @Override
     public boolean getBoolean(String key, boolean defValue) {
-        return Boolean.parseBoolean(get(key, defValue));
+        final Boolean value = (Boolean) values.get(key);
+
+        return value == null ? defValue : value;
     }
 
     @Override
@@ -76,12 +100,14 @@ public class InMemorySharedPreferences implements SharedPreferences, SharedPrefe
 
     @Override
     public Editor edit() {
-        return this;
+        return new InMemoryEditor();
     }
 
     @Override
-    public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
-        onChangeListeners.add(listener);
+    public synchronized void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        if (!onChangeListeners.contains(listener)) {
+            onChangeListeners.add(listener);
+        }
     }
 
     @Override
@@ -89,103 +115,145 @@ public class InMemorySharedPreferences implements SharedPreferences, SharedPrefe
         onChangeListeners.remove(listener);
     }
 
-    @Override
-    public Editor putString(String key, String value) {
-        put(key, String.valueOf(value));
-        return this;
-    }
+    //----------------------------------------------------------------------------------------------
+    // PROTECTED METHODS
+    //----------------------------------------------------------------------------------------------
 
-    @Override
-    public Editor putStringSet(String key, Set<String> values) {
-        throw new UnsupportedOperationException();
-    }
+    /**
+     * Stores the changes of an editor at once and notifies the listeners of the changed keys.
+     *
+     * @param changes The new values by key, where {@link #REMOVED} removes the key.
+     *                Applied after clearing.
+     * @param clear   Whether to remove all values first.
+     */
+    protected void store(Map<String, Object> changes, boolean clear) {
+        final List<String> changedKeys = new ArrayList<>();
+
+        synchronized (this) {
+            if (clear && !values.isEmpty()) {
+                values.clear();
+                changedKeys.add(null);
+            }
+
+            for (Map.Entry<String, Object> entry : changes.entrySet()) {
+                final String key = entry.getKey();
+                final Object value = entry.getValue();
+                final Object previous = value == REMOVED ?
+                        values.remove(key) : values.put(key, value);
+
+                if (value == REMOVED ? previous != null : !value.equals(previous)) {
+                    changedKeys.add(key);
+                }
+            }
+        }
 
-    @Override
-    public Editor putInt(String key, int value) {
-        put(key, String.valueOf(value));
-        return this;
+        for (String key : changedKeys) {
+            for (OnSharedPreferenceChangeListener listener : onChangeListeners) {
+                listener.onSharedPreferenceChanged(this, key);
+            }
+        }
     }
 
-    @Override
-    public Editor putLong(String key, long value) {
-        put(key, String.valueOf(value));
-        return this;
-    }
+    //----------------------------------------------------------------------------------------------
+    // EDITOR
+    //----------------------------------------------------------------------------------------------
 
-    @Override
-    public Editor putFloat(String key, float value) {
-        put(key, String.valueOf(value));
-        return this;
-    }
+    /**
+     * Stages the changes until they are applied or committed.
+     */
+    protected class InMemoryEditor implements Editor {
 
-    @Override
-    public Editor putBoolean(String key, boolean value) {
-        put(key, String.valueOf(value));
-        return this;
-    }
+        /**
+         * The staged values by key, in order of change.
+         */
+        final Map<String, Object> changes = new LinkedHashMap<>();
 
-    @Override
-    public Editor remove(String key) {
-        throw new UnsupportedOperationException();
-    }
+        /**
+         * Whether all values should be removed first.
+         */
+        boolean clear = false;
 
-    @Override
-    public Editor clear() {
-        throw new UnsupportedOperationException();
-    }
+        @Override
+        public Editor putString(String key, String value) {
+            return put(key, value);
+        }
 
-    @Override
-    public boolean commit() {
-        throw new UnsupportedOperationException();
-    }
+        @Override
+        public Editor putStringSet(String key, Set<String> values) {
+            return put(key, values == null ? null :
+                    Collections.unmodifiableSet(new HashSet<>(values)));
+        }
 
-    @Override
-    public void apply() {
-        if (currentKeyForPut == null) {
-            new RuntimeException("Current key for put is empty").printStackTrace();
-            return;
+        @Override
+        public Editor putInt(String key, int value) {
+            return put(key, value);
         }
 
-        for (OnSharedPreferenceChangeListener listener : onChangeListeners) {
-            listener.onSharedPreferenceChanged(this, currentKeyForPut);
+        @Override
+        public Editor putLong(String key, long value) {
+            return put(key, value);
         }
 
-        currentKeyForPut = null;
-    }
+        @Override
+        public Editor putFloat(String key, float value) {
+            return put(key, value);
+        }
 
-    //----------------------------------------------------------------------------------------------
-    // PROTECTED METHODS
-    //----------------------------------------------------------------------------------------------
+        @Override
+        public Editor putBoolean(String key, boolean value) {
+            return put(key, value);
+        }
 
-    /**
-     * Retrieves the value from the map and uses `defValue` if no value is available.
-     *
-     * @param key      The preference key.
-     * @param defValue The default value to use when no value is available.
-     * @return The stored value as a String.
-     */
-    protected String get(String key, Object defValue) {
-        String defValueString = String.valueOf(defValue);
-        String value = values.get(key);
+        @Override
+        public Editor remove(String key) {
+            return put(key, null);
+        }
 
-        return value == null ? defValueString : value;
-    }
+        @Override
+        public synchronized Editor clear() {
+            clear = true;
+            return this;
+        }
 
-    /**
-     * Converts the value to a string (more straight-forward storage) and saves it in the values
-     * map.
-     *
-     * @param key   The preference key.
-     * @param value The preference value.
-     */
-    protected void put(String key, Object value) {
-        String previous = values.get(key);
-        String valueString = String.valueOf(value);
+        @Override
+        public boolean commit() {
+            apply();
 
-        if (previous == null || !valueString.equals(String.valueOf(previous))) {
-            currentKeyForPut = key;
-            values.put(key, valueString);
+            return true;
         }
+
+        @Override
+        public void apply() {
+            final Map<String, Object> staged;
+            final boolean stagedClear;
+
+            synchronized (this) {
+                staged = new LinkedHashMap<>(changes);
+                stagedClear = clear;
+
+                changes.clear();
+                clear = false;
+            }
+
+            store(staged, stagedClear);
+        }
+
+        /**
+         * Stages the value: like Android, a null value removes the key.
+         *
+         * @param key   The preference key.
+         * @param value The preference value.
+         * @return The editor, for chaining.
+         */
+        synchronized Editor put(String key, Object value) {
+            if (key == null) {
+                throw new NullPointerException("Key can not be null");
+            }
+
+            changes.put(key, value == null ? REMOVED : value);
+            return this;
+        }
+
     }
 
 }
@@ -0,0 +1,15 @@
+package com.cookingfox.android.prefer.api.exception;
+
+/**
+ * Thrown when the preferences that are loaded in the background could not be loaded.
+ */
+public class PreferLoadException extends PreferException {
+
+    /**
+     * @param cause The reason the preferences could not be loaded.
+     */
+    public PreferLoadException(Throwable cause) {
+        super("Could not load the preferences", cause);
+    }
+
+}
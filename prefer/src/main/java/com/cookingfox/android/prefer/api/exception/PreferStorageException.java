@@ -0,0 +1,16 @@
+package com.cookingfox.android.prefer.api.exception;
+
+/**
+ * Thrown when preference values could not be read from or written to storage.
+ */
+public class PreferStorageException extends PreferException {
+
+    /**
+     * @param message Explain which storage operation failed.
+     * @param cause   The reason the operation failed.
+     */
+    public PreferStorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.cookingfox.android.prefer.api.pref;
+
+/**
+ * A changed {@link Pref} value that is only read when it is requested, and then remembered.
+ *
+ * @param <V> Indicates the Pref's value type.
+ */
+public interface LazyValue<V> {
+
+    /**
+     * Returns the value: the first call reads it, later calls return the same value.
+     *
+     * @return The value.
+     */
+    V get();
+
+}
@@ -0,0 +1,18 @@
+package com.cookingfox.android.prefer.api.pref;
+
+/**
+ * Listener interface for when a {@link Pref}'s value changes, which receives the new value as a
+ * {@link LazyValue}: the value is not read if the listener does not request it.
+ *
+ * @param <V> Indicates the Pref's value type.
+ */
+public interface OnLazyValueChanged<V> {
+
+    /**
+     * Called when the Pref's value has changed.
+     *
+     * @param value The new value, which is read when it is first requested.
+     */
+    void onValueChanged(LazyValue<V> value);
+
+}
@@ -8,4 +8,28 @@ import com.cookingfox.android.prefer.api.pref.Pref;
  * @param <K> References the enum class for this Pref's key.
  */
 public interface BooleanPref<K extends Enum<K>> extends Pref<K, Boolean> {
+
+    /**
+     * Returns the current value as a primitive, so it is not boxed.
+     *
+     * @return The current value.
+     * @see #getValue()
+     */
+    boolean getBoolean();
+
+    /**
+     * Adds a listener which is notified of the new value as a primitive, when the value of this
+     * preference changes.
+     *
+     * @param listener The listener to add.
+     */
+    void addBooleanValueChangedListener(OnBooleanValueChanged listener);
+
+    /**
+     * Stops notifying this listener when this preference's value changes.
+     *
+     * @param listener The listener to remove.
+     */
+    void removeBooleanValueChangedListener(OnBooleanValueChanged listener);
+
 }
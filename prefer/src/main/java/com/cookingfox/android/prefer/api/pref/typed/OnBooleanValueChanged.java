@@ -0,0 +1,16 @@
+package com.cookingfox.android.prefer.api.pref.typed;
+
+/**
+ * Listener interface for when a {@link BooleanPref}'s value changes, which receives the value as a
+ * primitive, so it is not boxed.
+ */
+public interface OnBooleanValueChanged {
+
+    /**
+     * Called when the Pref's value has changed.
+     *
+     * @param value The new value.
+     */
+    void onValueChanged(boolean value);
+
+}
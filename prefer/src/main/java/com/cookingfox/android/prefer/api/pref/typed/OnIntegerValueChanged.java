@@ -0,0 +1,16 @@
+package com.cookingfox.android.prefer.api.pref.typed;
+
+/**
+ * Listener interface for when a {@link IntegerPref}'s value changes, which receives the value as a
+ * primitive, so it is not boxed.
+ */
+public interface OnIntegerValueChanged {
+
+    /**
+     * Called when the Pref's value has changed.
+     *
+     * @param value The new value.
+     */
+    void onValueChanged(int value);
+
+}
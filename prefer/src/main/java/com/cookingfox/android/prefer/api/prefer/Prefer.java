@@ -1,12 +1,23 @@
 package com.cookingfox.android.prefer.api.prefer;
 
+import com.cookingfox.android.prefer.api.pref.LazyValue;
 import com.cookingfox.android.prefer.api.pref.OnGroupValueChanged;
+import com.cookingfox.android.prefer.api.pref.OnLazyValueChanged;
 import com.cookingfox.android.prefer.api.pref.OnValueChanged;
 import com.cookingfox.android.prefer.api.pref.Pref;
 import com.cookingfox.android.prefer.api.pref.PrefGroup;
+import com.cookingfox.android.prefer.api.pref.typed.BooleanPref;
+import com.cookingfox.android.prefer.api.pref.typed.FloatPref;
+import com.cookingfox.android.prefer.api.pref.typed.IntegerPref;
+import com.cookingfox.android.prefer.api.pref.typed.LongPref;
+import com.cookingfox.android.prefer.api.pref.typed.OnBooleanValueChanged;
+import com.cookingfox.android.prefer.api.pref.typed.OnFloatValueChanged;
+import com.cookingfox.android.prefer.api.pref.typed.OnIntegerValueChanged;
+import com.cookingfox.android.prefer.api.pref.typed.OnLongValueChanged;
 import com.cookingfox.android.prefer.impl.prefer.PreferHelper;
 
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * Manages groups of Prefs, by providing hooks to retrieve, set and observe the Pref values.
@@ -21,6 +32,50 @@ public interface Prefer extends PreferHelper {
      */
     <K extends Enum<K>> void addGroup(PrefGroup<K> group);
 
+    /**
+     * Adds a listener which is notified of the new value as a primitive, when the value of this
+     * preference changes.
+     *
+     * @param pref     The Pref to add a listener for.
+     * @param listener The listener to add.
+     * @param <K>      References the enum class for the Pref's key.
+     * @see BooleanPref#addBooleanValueChangedListener(OnBooleanValueChanged)
+     */
+    <K extends Enum<K>> void addBooleanValueChangedListener(Pref<K, Boolean> pref, OnBooleanValueChanged listener);
+
+    /**
+     * Adds a listener which is notified of the new value as a primitive, when the value of this
+     * preference changes.
+     *
+     * @param pref     The Pref to add a listener for.
+     * @param listener The listener to add.
+     * @param <K>      References the enum class for the Pref's key.
+     * @see FloatPref#addFloatValueChangedListener(OnFloatValueChanged)
+     */
+    <K extends Enum<K>> void addFloatValueChangedListener(Pref<K, Float> pref, OnFloatValueChanged listener);
+
+    /**
+     * Adds a listener which is notified of the new value as a primitive, when the value of this
+     * preference changes.
+     *
+     * @param pref     The Pref to add a listener for.
+     * @param listener The listener to add.
+     * @param <K>      References the enum class for the Pref's key.
+     * @see IntegerPref#addIntegerValueChangedListener(OnIntegerValueChanged)
+     */
+    <K extends Enum<K>> void addIntegerValueChangedListener(Pref<K, Integer> pref, OnIntegerValueChanged listener);
+
+    /**
+     * Adds a listener which is notified of the new value as a primitive, when the value of this
+     * preference changes.
+     *
+     * @param pref     The Pref to add a listener for.
+     * @param listener The listener to add.
+     * @param <K>      References the enum class for the Pref's key.
+     * @see LongPref#addLongValueChangedListener(OnLongValueChanged)
+     */
+    <K extends Enum<K>> void addLongValueChangedListener(Pref<K, Long> pref, OnLongValueChanged listener);
+
     /**
      * Adds a listener for when the value changes of any of the provided group's Prefs.
      *
@@ -30,6 +85,19 @@ public interface Prefer extends PreferHelper {
      */
     <K extends Enum<K>> void addGroupValueChangedListener(PrefGroup<K> group, OnGroupValueChanged<K> listener);
 
+    /**
+     * Adds a listener for when the value changes of any of the provided group's Prefs, which is
+     * notified on the provided executor. The listener is notified of one change at a time, in the
+     * order of the changes. Remove it using
+     * {@link #removeGroupValueChangedListener(PrefGroup, OnGroupValueChanged)}.
+     *
+     * @param group    The group for which the changes should be notified.
+     * @param listener The listener that should be called.
+     * @param executor The executor to notify the listener on.
+     * @param <K>      Indicates the group's key class.
+     */
+    <K extends Enum<K>> void addGroupValueChangedListener(PrefGroup<K> group, OnGroupValueChanged<K> listener, Executor executor);
+
     /**
      * Adds a listener which is notified when the value of this preference changes.
      *
@@ -41,6 +109,38 @@ public interface Prefer extends PreferHelper {
      */
     <K extends Enum<K>, V> void addValueChangedListener(Pref<K, V> pref, OnValueChanged<V> listener);
 
+    /**
+     * Adds a listener which is notified on the provided executor when the value of this preference
+     * changes. The listener is notified of one value at a time, in the order of the changes.
+     * Remove it using {@link #removeValueChangedListener(Pref, OnValueChanged)}.
+     *
+     * @param pref     The Pref to add a listener for.
+     * @param listener The listener to add.
+     * @param executor The executor to notify the listener on.
+     * @param <K>      References the enum class for the Pref's key.
+     * @param <V>      Indicates the Pref's value type.
+     */
+    <K extends Enum<K>, V> void addValueChangedListener(Pref<K, V> pref, OnValueChanged<V> listener, Executor executor);
+
+    /**
+     * Adds a listener which is notified when the value of this preference changes, and receives
+     * the new value as a {@link LazyValue}: the value is only read when the listener requests it,
+     * and it is read once for all listeners of the Pref.
+     *
+     * @param pref     The Pref to add a listener for.
+     * @param listener The listener to add.
+     * @param <K>      References the enum class for the Pref's key.
+     * @param <V>      Indicates the Pref's value type.
+     */
+    <K extends Enum<K>, V> void addLazyValueChangedListener(Pref<K, V> pref, OnLazyValueChanged<V> listener);
+
+    /**
+     * Begin a transaction, to set the values of multiple Prefs at once.
+     *
+     * @return A new transaction.
+     */
+    PreferTransaction beginTransaction();
+
     /**
      * Find a Pref group by its enum key class.
      *
@@ -57,6 +157,42 @@ public interface Prefer extends PreferHelper {
      */
     Set<PrefGroup<? extends Enum>> getGroups();
 
+    /**
+     * Stops notifying this primitive listener when this preference's value changes.
+     *
+     * @param pref     The Pref to remove the listener for.
+     * @param listener The listener to remove.
+     * @param <K>      References the enum class for the Pref's key.
+     */
+    <K extends Enum<K>> void removeBooleanValueChangedListener(Pref<K, Boolean> pref, OnBooleanValueChanged listener);
+
+    /**
+     * Stops notifying this primitive listener when this preference's value changes.
+     *
+     * @param pref     The Pref to remove the listener for.
+     * @param listener The listener to remove.
+     * @param <K>      References the enum class for the Pref's key.
+     */
+    <K extends Enum<K>> void removeFloatValueChangedListener(Pref<K, Float> pref, OnFloatValueChanged listener);
+
+    /**
+     * Stops notifying this primitive listener when this preference's value changes.
+     *
+     * @param pref     The Pref to remove the listener for.
+     * @param listener The listener to remove.
+     * @param <K>      References the enum class for the Pref's key.
+     */
+    <K extends Enum<K>> void removeIntegerValueChangedListener(Pref<K, Integer> pref, OnIntegerValueChanged listener);
+
+    /**
+     * Stops notifying this primitive listener when this preference's value changes.
+     *
+     * @param pref     The Pref to remove the listener for.
+     * @param listener The listener to remove.
+     * @param <K>      References the enum class for the Pref's key.
+     */
+    <K extends Enum<K>> void removeLongValueChangedListener(Pref<K, Long> pref, OnLongValueChanged listener);
+
     /**
      * Removes the listener for changes to the provided group's Prefs.
      *
@@ -66,6 +202,16 @@ public interface Prefer extends PreferHelper {
      */
     <K extends Enum<K>> void removeGroupValueChangedListener(PrefGroup<K> group, OnGroupValueChanged<K> listener);
 
+    /**
+     * Stops notifying this lazy listener when this preference's value changes.
+     *
+     * @param pref     The Pref to remove the listener for.
+     * @param listener The listener to remove.
+     * @param <K>      References the enum class for the Pref's key.
+     * @param <V>      Indicates the Pref's value type.
+     */
+    <K extends Enum<K>, V> void removeLazyValueChangedListener(Pref<K, V> pref, OnLazyValueChanged<V> listener);
+
     /**
      * Stops notifying this listener when this preference's value changes.
      *
@@ -0,0 +1,40 @@
+package com.cookingfox.android.prefer.api.prefer;
+
+import com.cookingfox.android.prefer.api.exception.InvalidPrefValueException;
+import com.cookingfox.android.prefer.api.pref.Pref;
+
+/**
+ * Sets the values of multiple Prefs at once: the values are stored together when the transaction
+ * is applied or committed, after which the value changed listeners are notified.
+ *
+ * @see Prefer#beginTransaction()
+ */
+public interface PreferTransaction {
+
+    /**
+     * Set a new value for the Pref. The value is validated immediately, using the Pref's
+     * validator.
+     *
+     * @param pref  The Pref to set the value for.
+     * @param value The new value to set.
+     * @param <K>   References the enum class for the Pref's key.
+     * @param <V>   Indicates the Pref's value type.
+     * @return The transaction, for chaining.
+     * @throws InvalidPrefValueException when `value` is considered invalid by the validator.
+     */
+    <K extends Enum<K>, V> PreferTransaction setValue(Pref<K, V> pref, V value)
+            throws InvalidPrefValueException;
+
+    /**
+     * Stores the values asynchronously. The transaction can not be used afterwards.
+     */
+    void apply();
+
+    /**
+     * Stores the values synchronously. The transaction can not be used afterwards.
+     *
+     * @return Whether the values were stored successfully.
+     */
+    boolean commit();
+
+}
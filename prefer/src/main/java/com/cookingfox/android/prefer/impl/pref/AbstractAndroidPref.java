@@ -8,6 +8,7 @@ import com.cookingfox.android.prefer.api.pref.Pref;
 import com.cookingfox.android.prefer.api.pref.PrefMeta;
 import com.cookingfox.android.prefer.api.pref.PrefValidator;
 import com.cookingfox.android.prefer.api.prefer.Prefer;
+import com.cookingfox.android.prefer.impl.prefer.PreferKeySerializer;
 
 import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
 
@@ -40,6 +41,11 @@ public abstract class AbstractAndroidPref<K extends Enum<K>, V>
      */
     protected final Prefer prefer;
 
+    /**
+     * Serialized Pref key, as used by the storage implementation.
+     */
+    protected final String serializedKey;
+
     /**
      * Android Preference component modifier.
      */
@@ -65,6 +71,7 @@ public abstract class AbstractAndroidPref<K extends Enum<K>, V>
     public AbstractAndroidPref(Prefer prefer, K key, V defaultValue) {
         this.key = checkNotNull(key, "Key can not be null");
         this.prefer = checkNotNull(prefer, "Prefer can not be null");
+        this.serializedKey = PreferKeySerializer.serializeKey(key);
 
         try {
             validate(defaultValue);
@@ -126,6 +133,20 @@ public abstract class AbstractAndroidPref<K extends Enum<K>, V>
                 preferenceModifier.modifyPreference(generated);
     }
 
+    //----------------------------------------------------------------------------------------------
+    // GETTERS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the serialized Pref key, as used by the storage implementation.
+     *
+     * @return The serialized Pref key.
+     * @see PreferKeySerializer#serializeKey(Enum)
+     */
+    public String getSerializedKey() {
+        return serializedKey;
+    }
+
     //----------------------------------------------------------------------------------------------
     // SETTERS
     //----------------------------------------------------------------------------------------------
@@ -3,9 +3,12 @@ package com.cookingfox.android.prefer.impl.pref.typed;
 import com.cookingfox.android.prefer.api.exception.InvalidPrefValueException;
 import com.cookingfox.android.prefer.api.pref.Pref;
 import com.cookingfox.android.prefer.api.pref.typed.BooleanPref;
+import com.cookingfox.android.prefer.api.pref.typed.OnBooleanValueChanged;
 import com.cookingfox.android.prefer.api.prefer.Prefer;
 import com.cookingfox.android.prefer.impl.pref.AbstractAndroidPref;
 
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
 /**
  * {@link Pref} implementation with a boolean value.
  *
@@ -24,6 +27,11 @@ public class AndroidBooleanPref<K extends Enum<K>>
         return prefer.getBoolean(key, defaultValue);
     }
 
+    @Override
+    public boolean getBoolean() {
+        return prefer.getBoolean(key, defaultValue);
+    }
+
     @Override
     public void setValue(Boolean value) throws InvalidPrefValueException {
         try {
@@ -34,4 +42,14 @@ public class AndroidBooleanPref<K extends Enum<K>>
         }
     }
 
+    @Override
+    public void addBooleanValueChangedListener(OnBooleanValueChanged listener) {
+        prefer.addBooleanValueChangedListener(this, checkNotNull(listener, "Listener can not be null"));
+    }
+
+    @Override
+    public void removeBooleanValueChangedListener(OnBooleanValueChanged listener) {
+        prefer.removeBooleanValueChangedListener(this, listener);
+    }
+
 }
@@ -3,9 +3,12 @@ package com.cookingfox.android.prefer.impl.pref.typed;
 import com.cookingfox.android.prefer.api.exception.InvalidPrefValueException;
 import com.cookingfox.android.prefer.api.pref.Pref;
 import com.cookingfox.android.prefer.api.pref.typed.FloatPref;
+import com.cookingfox.android.prefer.api.pref.typed.OnFloatValueChanged;
 import com.cookingfox.android.prefer.api.prefer.Prefer;
 import com.cookingfox.android.prefer.impl.pref.AbstractAndroidPref;
 
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
 /**
  * {@link Pref} implementation with a float value.
  *
@@ -24,6 +27,11 @@ public class AndroidFloatPref<K extends Enum<K>>
         return prefer.getFloat(key, defaultValue);
     }
 
+    @Override
+    public float getFloat() {
+        return prefer.getFloat(key, defaultValue);
+    }
+
     @Override
     public void setValue(Float value) throws InvalidPrefValueException {
         try {
@@ -34,4 +42,14 @@ public class AndroidFloatPref<K extends Enum<K>>
         }
     }
 
+    @Override
+    public void addFloatValueChangedListener(OnFloatValueChanged listener) {
+        prefer.addFloatValueChangedListener(this, checkNotNull(listener, "Listener can not be null"));
+    }
+
+    @Override
+    public void removeFloatValueChangedListener(OnFloatValueChanged listener) {
+        prefer.removeFloatValueChangedListener(this, listener);
+    }
+
 }
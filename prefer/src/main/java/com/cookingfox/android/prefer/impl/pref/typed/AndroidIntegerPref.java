@@ -3,9 +3,12 @@ package com.cookingfox.android.prefer.impl.pref.typed;
 import com.cookingfox.android.prefer.api.exception.InvalidPrefValueException;
 import com.cookingfox.android.prefer.api.pref.Pref;
 import com.cookingfox.android.prefer.api.pref.typed.IntegerPref;
+import com.cookingfox.android.prefer.api.pref.typed.OnIntegerValueChanged;
 import com.cookingfox.android.prefer.api.prefer.Prefer;
 import com.cookingfox.android.prefer.impl.pref.AbstractAndroidPref;
 
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
 /**
  * {@link Pref} implementation with an integer value.
  *
@@ -24,6 +27,11 @@ public class AndroidIntegerPref<K extends Enum<K>>
         return prefer.getInteger(key, defaultValue);
     }
 
+    @Override
+    public int getInteger() {
+        return prefer.getInteger(key, defaultValue);
+    }
+
     @Override
     public void setValue(Integer value) throws InvalidPrefValueException {
         try {
@@ -34,4 +42,14 @@ public class AndroidIntegerPref<K extends Enum<K>>
         }
     }
 
+    @Override
+    public void addIntegerValueChangedListener(OnIntegerValueChanged listener) {
+        prefer.addIntegerValueChangedListener(this, checkNotNull(listener, "Listener can not be null"));
+    }
+
+    @Override
+    public void removeIntegerValueChangedListener(OnIntegerValueChanged listener) {
+        prefer.removeIntegerValueChangedListener(this, listener);
+    }
+
 }
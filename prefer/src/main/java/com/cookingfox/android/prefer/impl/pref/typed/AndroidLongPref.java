@@ -3,9 +3,12 @@ package com.cookingfox.android.prefer.impl.pref.typed;
 import com.cookingfox.android.prefer.api.exception.InvalidPrefValueException;
 import com.cookingfox.android.prefer.api.pref.Pref;
 import com.cookingfox.android.prefer.api.pref.typed.LongPref;
+import com.cookingfox.android.prefer.api.pref.typed.OnLongValueChanged;
 import com.cookingfox.android.prefer.api.prefer.Prefer;
 import com.cookingfox.android.prefer.impl.pref.AbstractAndroidPref;
 
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
 /**
  * {@link Pref} implementation with a long value.
  *
@@ -24,6 +27,11 @@ public class AndroidLongPref<K extends Enum<K>>
         return prefer.getLong(key, defaultValue);
     }
 
+    @Override
+    public long getLong() {
+        return prefer.getLong(key, defaultValue);
+    }
+
     @Override
     public void setValue(Long value) throws InvalidPrefValueException {
         try {
@@ -34,4 +42,14 @@ public class AndroidLongPref<K extends Enum<K>>
         }
     }
 
+    @Override
+    public void addLongValueChangedListener(OnLongValueChanged listener) {
+        prefer.addLongValueChangedListener(this, checkNotNull(listener, "Listener can not be null"));
+    }
+
+    @Override
+    public void removeLongValueChangedListener(OnLongValueChanged listener) {
+        prefer.removeLongValueChangedListener(this, listener);
+    }
+
 }
@@ -3,10 +3,16 @@ package com.cookingfox.android.prefer.impl.prefer;
 import com.cookingfox.android.prefer.api.exception.GroupAlreadyAddedException;
 import com.cookingfox.android.prefer.api.exception.PreferNotInitializedException;
 import com.cookingfox.android.prefer.api.pref.OnGroupValueChanged;
+import com.cookingfox.android.prefer.api.pref.OnLazyValueChanged;
 import com.cookingfox.android.prefer.api.pref.OnValueChanged;
 import com.cookingfox.android.prefer.api.pref.Pref;
 import com.cookingfox.android.prefer.api.pref.PrefGroup;
+import com.cookingfox.android.prefer.api.pref.typed.OnBooleanValueChanged;
+import com.cookingfox.android.prefer.api.pref.typed.OnFloatValueChanged;
+import com.cookingfox.android.prefer.api.pref.typed.OnIntegerValueChanged;
+import com.cookingfox.android.prefer.api.pref.typed.OnLongValueChanged;
 import com.cookingfox.android.prefer.api.prefer.Prefer;
+import com.cookingfox.android.prefer.api.prefer.PreferTransaction;
 import com.cookingfox.android.prefer.impl.pref.AndroidPrefGroup;
 import com.cookingfox.android.prefer.impl.pref.typed.AndroidBooleanPref;
 import com.cookingfox.android.prefer.impl.pref.typed.AndroidFloatPref;
@@ -14,49 +20,94 @@ import com.cookingfox.android.prefer.impl.pref.typed.AndroidIntegerPref;
 import com.cookingfox.android.prefer.impl.pref.typed.AndroidLongPref;
 import com.cookingfox.android.prefer.impl.pref.typed.AndroidStringPref;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
+import static com.cookingfox.guava_preconditions.Preconditions.checkArgument;
 import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+import static com.cookingfox.guava_preconditions.Preconditions.checkState;
 
 /**
  * Base implementation of {@link Prefer}.
+ * <p>
+ * Safe to use from multiple threads: reading values and notifying listeners never take a lock,
+ * while adding and removing groups and listeners is synchronized. Listeners are stored in
+ * {@link CopyOnWriteArray}s, so listeners can be added or removed while changes are dispatched.
  */
 public abstract class AndroidPrefer implements Prefer {
 
     /**
-     * Pref groups by key class.
+     * Pref groups by key class. Replaced by an updated copy when a group is added, so it can be
+     * read without locking.
      */
-    protected final Map<Class, PrefGroup<? extends Enum>> groups = new LinkedHashMap<>();
+    protected volatile Map<Class, PrefGroup<? extends Enum>> groups = Collections.emptyMap();
+
+    /**
+     * Enum keys by their serialized key, for all constants of the registered key classes. Used to
+     * match changed preferences to their key without reflection.
+     *
+     * @see #registerKeyClass(Class)
+     */
+    protected final Map<String, Enum> keysBySerializedKey = new ConcurrentHashMap<>();
 
     /**
      * Helper class.
      */
-    protected PreferHelper helper;
+    protected volatile PreferHelper helper;
 
     /**
      * Whether this Prefer is initialized: call {@link #initializePrefer()} first.
      */
-    protected boolean initialized = false;
+    protected volatile boolean initialized = false;
+
+    /**
+     * Whether the values of the registered groups are preloaded on initialization.
+     *
+     * @see #setPreloadOnInitialize(boolean)
+     */
+    protected boolean preloadOnInitialize = false;
+
+    /**
+     * Write-behind flush interval in milliseconds, or 0 when write-behind mode is disabled.
+     *
+     * @see #setWriteBehind(long, TimeUnit)
+     */
+    protected long writeBehindIntervalMs = 0;
 
     /**
      * Value changed listeners per Pref.
      */
-    protected final Map<Pref, Set<OnValueChanged>> prefValueChangedListeners = new LinkedHashMap<>();
+    protected final Map<Pref, CopyOnWriteArray<OnValueChanged>> prefValueChangedListeners = new ConcurrentHashMap<>();
 
     /**
      * Group value changed listeners per group.
      */
-    protected final Map<PrefGroup, Set<OnGroupValueChanged>> prefGroupValueChangedListeners = new LinkedHashMap<>();
+    protected final Map<PrefGroup, CopyOnWriteArray<OnGroupValueChanged>> prefGroupValueChangedListeners = new ConcurrentHashMap<>();
+
+    /**
+     * Prefs with value changed listeners, indexed by Pref key for dispatching changes.
+     */
+    protected final Map<Enum, CopyOnWriteArray<Pref>> listenedPrefsByKey = new ConcurrentHashMap<>();
+
+    /**
+     * Groups with value changed listeners, indexed by key class for dispatching changes.
+     */
+    protected final Map<Class, CopyOnWriteArray<PrefGroup>> listenedGroupsByKeyClass = new ConcurrentHashMap<>();
 
     //----------------------------------------------------------------------------------------------
     // IMPLEMENTATION: PreferLifecycle
     //----------------------------------------------------------------------------------------------
 
     @Override
-    public void initializePrefer() {
+    public synchronized void initializePrefer() {
         if (initialized) {
             return;
         }
@@ -64,19 +115,26 @@ public abstract class AndroidPrefer implements Prefer {
         getHelper().initializePrefer();
 
         initialized = true;
+
+        if (preloadOnInitialize) {
+            preload();
+        }
     }
 
     @Override
-    public void disposePrefer() {
+    public synchronized void disposePrefer() {
         if (!initialized) {
             return;
         }
 
         getHelper().disposePrefer();
 
-        groups.clear();
+        groups = Collections.emptyMap();
+        keysBySerializedKey.clear();
         prefValueChangedListeners.clear();
         prefGroupValueChangedListeners.clear();
+        listenedPrefsByKey.clear();
+        listenedGroupsByKeyClass.clear();
 
         initialized = false;
     }
@@ -151,12 +209,26 @@ public abstract class AndroidPrefer implements Prefer {
         getHelper().putString(key, value);
     }
 
+    //----------------------------------------------------------------------------------------------
+    // TRANSACTIONS
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public PreferEditor edit() {
+        return getHelper().edit();
+    }
+
+    @Override
+    public PreferTransaction beginTransaction() {
+        return new AndroidPreferTransaction(edit());
+    }
+
     //----------------------------------------------------------------------------------------------
     // PREF LISTENERS
     //----------------------------------------------------------------------------------------------
 
     @Override
-    public <K extends Enum<K>, V> void addValueChangedListener(Pref<K, V> pref, OnValueChanged<V> listener) {
+    public synchronized <K extends Enum<K>, V> void addValueChangedListener(Pref<K, V> pref, OnValueChanged<V> listener) {
         checkNotNull(pref, "Pref can not be null");
         checkNotNull(listener, "Listener can not be null");
 
@@ -164,30 +236,90 @@ public abstract class AndroidPrefer implements Prefer {
             throw new PreferNotInitializedException("Can not add listener");
         }
 
-        Set<OnValueChanged> listeners = this.prefValueChangedListeners.get(pref);
+        registerKeyClass(pref.getKey().getDeclaringClass());
+
+        CopyOnWriteArray<OnValueChanged> listeners = this.prefValueChangedListeners.get(pref);
 
         if (listeners == null) {
-            listeners = new LinkedHashSet<>();
+            listeners = new CopyOnWriteArray<>();
             prefValueChangedListeners.put(pref, listeners);
+            addToIndex(listenedPrefsByKey, pref.getKey(), pref);
         }
 
         listeners.add(listener);
     }
 
     @Override
-    public <K extends Enum<K>, V> void removeValueChangedListener(Pref<K, V> pref, OnValueChanged<V> listener) {
-        checkNotNull(pref, "Pref can not be null");
+    public <K extends Enum<K>, V> void addValueChangedListener(Pref<K, V> pref, OnValueChanged<V> listener, Executor executor) {
         checkNotNull(listener, "Listener can not be null");
+        checkNotNull(executor, "Executor can not be null");
 
-        if (!initialized) {
-            throw new PreferNotInitializedException("Can not add listener");
-        }
+        addValueChangedListener(pref, new ExecutorValueChangedListener<>(listener, executor));
+    }
 
-        final Set<OnValueChanged> listeners = this.prefValueChangedListeners.get(pref);
+    @Override
+    public <K extends Enum<K>> void addBooleanValueChangedListener(Pref<K, Boolean> pref, OnBooleanValueChanged listener) {
+        checkNotNull(listener, "Listener can not be null");
 
-        if (listeners != null) {
-            listeners.remove(listener);
-        }
+        addValueChangedListener(pref, new PrimitiveValueChangedListener.BooleanListener(listener));
+    }
+
+    @Override
+    public <K extends Enum<K>> void addFloatValueChangedListener(Pref<K, Float> pref, OnFloatValueChanged listener) {
+        checkNotNull(listener, "Listener can not be null");
+
+        addValueChangedListener(pref, new PrimitiveValueChangedListener.FloatListener(listener));
+    }
+
+    @Override
+    public <K extends Enum<K>> void addIntegerValueChangedListener(Pref<K, Integer> pref, OnIntegerValueChanged listener) {
+        checkNotNull(listener, "Listener can not be null");
+
+        addValueChangedListener(pref, new PrimitiveValueChangedListener.IntegerListener(listener));
+    }
+
+    @Override
+    public <K extends Enum<K>> void addLongValueChangedListener(Pref<K, Long> pref, OnLongValueChanged listener) {
+        checkNotNull(listener, "Listener can not be null");
+
+        addValueChangedListener(pref, new PrimitiveValueChangedListener.LongListener(listener));
+    }
+
+    @Override
+    public <K extends Enum<K>, V> void addLazyValueChangedListener(Pref<K, V> pref, OnLazyValueChanged<V> listener) {
+        checkNotNull(listener, "Listener can not be null");
+
+        addValueChangedListener(pref, new LazyValueChangedListener<>(listener));
+    }
+
+    @Override
+    public <K extends Enum<K>, V> void removeValueChangedListener(Pref<K, V> pref, OnValueChanged<V> listener) {
+        removeStoredValueChangedListener(pref, listener);
+    }
+
+    @Override
+    public <K extends Enum<K>, V> void removeLazyValueChangedListener(Pref<K, V> pref, OnLazyValueChanged<V> listener) {
+        removeStoredValueChangedListener(pref, listener);
+    }
+
+    @Override
+    public <K extends Enum<K>> void removeBooleanValueChangedListener(Pref<K, Boolean> pref, OnBooleanValueChanged listener) {
+        removeStoredValueChangedListener(pref, listener);
+    }
+
+    @Override
+    public <K extends Enum<K>> void removeFloatValueChangedListener(Pref<K, Float> pref, OnFloatValueChanged listener) {
+        removeStoredValueChangedListener(pref, listener);
+    }
+
+    @Override
+    public <K extends Enum<K>> void removeIntegerValueChangedListener(Pref<K, Integer> pref, OnIntegerValueChanged listener) {
+        removeStoredValueChangedListener(pref, listener);
+    }
+
+    @Override
+    public <K extends Enum<K>> void removeLongValueChangedListener(Pref<K, Long> pref, OnLongValueChanged listener) {
+        removeStoredValueChangedListener(pref, listener);
     }
 
     //----------------------------------------------------------------------------------------------
@@ -195,7 +327,7 @@ public abstract class AndroidPrefer implements Prefer {
     //----------------------------------------------------------------------------------------------
 
     @Override
-    public <K extends Enum<K>> void addGroup(PrefGroup<K> group) {
+    public synchronized <K extends Enum<K>> void addGroup(PrefGroup<K> group) {
         checkNotNull(group, "Group can not be null");
 
         Class<K> keyClass = group.getKeyClass();
@@ -204,11 +336,16 @@ public abstract class AndroidPrefer implements Prefer {
             throw new GroupAlreadyAddedException(group);
         }
 
-        groups.put(keyClass, group);
+        // publish an updated copy
+        final Map<Class, PrefGroup<? extends Enum>> updated = new LinkedHashMap<>(groups);
+        updated.put(keyClass, group);
+        groups = Collections.unmodifiableMap(updated);
+
+        registerKeyClass(keyClass);
     }
 
     @Override
-    public <K extends Enum<K>> void addGroupValueChangedListener(PrefGroup<K> group, OnGroupValueChanged<K> listener) {
+    public synchronized <K extends Enum<K>> void addGroupValueChangedListener(PrefGroup<K> group, OnGroupValueChanged<K> listener) {
         checkNotNull(group, "Pref can not be null");
         checkNotNull(listener, "Listener can not be null");
 
@@ -216,16 +353,28 @@ public abstract class AndroidPrefer implements Prefer {
             throw new PreferNotInitializedException("Can not add group listener");
         }
 
-        Set<OnGroupValueChanged> listeners = this.prefGroupValueChangedListeners.get(group);
+        registerKeyClass(group.getKeyClass());
+
+        CopyOnWriteArray<OnGroupValueChanged> listeners =
+                this.prefGroupValueChangedListeners.get(group);
 
         if (listeners == null) {
-            listeners = new LinkedHashSet<>();
+            listeners = new CopyOnWriteArray<>();
             prefGroupValueChangedListeners.put(group, listeners);
+            addToIndex(listenedGroupsByKeyClass, group.getKeyClass(), group);
         }
 
         listeners.add(listener);
     }
 
+    @Override
+    public <K extends Enum<K>> void addGroupValueChangedListener(PrefGroup<K> group, OnGroupValueChanged<K> listener, Executor executor) {
+        checkNotNull(listener, "Listener can not be null");
+        checkNotNull(executor, "Executor can not be null");
+
+        addGroupValueChangedListener(group, new ExecutorGroupValueChangedListener<>(listener, executor));
+    }
+
     @Override
     public <K extends Enum<K>> PrefGroup<K> findGroup(Class<K> keyClass) {
         // noinspection unchecked
@@ -238,7 +387,7 @@ public abstract class AndroidPrefer implements Prefer {
     }
 
     @Override
-    public <K extends Enum<K>> void removeGroupValueChangedListener(PrefGroup<K> group, OnGroupValueChanged<K> listener) {
+    public synchronized <K extends Enum<K>> void removeGroupValueChangedListener(PrefGroup<K> group, OnGroupValueChanged<K> listener) {
         checkNotNull(group, "Pref can not be null");
         checkNotNull(listener, "Listener can not be null");
 
@@ -246,10 +395,12 @@ public abstract class AndroidPrefer implements Prefer {
             throw new PreferNotInitializedException("Can not add listener");
         }
 
-        final Set<OnGroupValueChanged> listeners = this.prefGroupValueChangedListeners.get(group);
+        final CopyOnWriteArray<OnGroupValueChanged> listeners =
+                this.prefGroupValueChangedListeners.get(group);
 
-        if (listeners != null) {
-            listeners.remove(listener);
+        if (listeners != null && listeners.remove(findListener(listeners, listener)) && listeners.isEmpty()) {
+            prefGroupValueChangedListeners.remove(group);
+            removeFromIndex(listenedGroupsByKeyClass, group.getKeyClass(), group);
         }
     }
 
@@ -273,6 +424,68 @@ public abstract class AndroidPrefer implements Prefer {
         return group;
     }
 
+    /**
+     * Reads the values of all Prefs in the registered groups at once, so they are served from
+     * memory afterwards instead of being read from the storage one by one. Useful on startup, when
+     * many Prefs are read. Implementations that can not read all values at once ignore this.
+     *
+     * @throws PreferNotInitializedException when Prefer is not initialized.
+     * @see #preloadPrefs(List)
+     */
+    public void preload() {
+        if (!initialized) {
+            throw new PreferNotInitializedException("Can not preload");
+        }
+
+        final List<Pref<?, ?>> prefs = new ArrayList<>();
+
+        for (PrefGroup<? extends Enum> group : groups.values()) {
+            for (Pref<?, ?> pref : group) {
+                prefs.add(pref);
+            }
+        }
+
+        if (!prefs.isEmpty()) {
+            preloadPrefs(prefs);
+        }
+    }
+
+    /**
+     * Enables write-behind mode: changed values are kept in memory and stored together after the
+     * flush interval, or when Prefer is disposed. Useful for preferences that change very often.
+     * Must be called before {@link #initializePrefer()}.
+     *
+     * @param flushInterval The time to wait after a value changed, before it is stored.
+     * @param unit          The unit of the flush interval.
+     * @throws IllegalStateException when Prefer is already initialized.
+     * @see WriteBehindPreferHelper
+     */
+    public synchronized void setWriteBehind(long flushInterval, TimeUnit unit) {
+        checkState(!initialized, "Write-behind mode must be set before initialization");
+        checkArgument(flushInterval > 0, "Flush interval must be positive");
+
+        writeBehindIntervalMs = checkNotNull(unit, "Unit can not be null").toMillis(flushInterval);
+
+        // helper already created: wrap it now
+        if (helper != null && !(helper instanceof WriteBehindPreferHelper)) {
+            helper = createWriteBehindHelper(helper);
+        }
+    }
+
+    /**
+     * Sets whether the values of the registered groups are preloaded on initialization. Only groups
+     * that are added before {@link #initializePrefer()} are preloaded.
+     *
+     * @param preloadOnInitialize Whether to preload on initialization.
+     * @throws IllegalStateException when Prefer is already initialized.
+     * @see #preload()
+     */
+    public synchronized void setPreloadOnInitialize(boolean preloadOnInitialize) {
+        checkState(!initialized, "Preloading must be set before initialization");
+
+        this.preloadOnInitialize = preloadOnInitialize;
+    }
+
     /**
      * Creates a new Pref group for this key class.
      *
@@ -358,68 +571,300 @@ public abstract class AndroidPrefer implements Prefer {
 
     /**
      * Returns the helper instance. Creates a new helper using {@link #createHelper()} if it doesn't
-     * exist yet.
+     * exist yet, which is wrapped in a {@link WriteBehindPreferHelper} in write-behind mode.
      *
      * @return The Prefer helper instance.
      */
     protected PreferHelper getHelper() {
-        if (helper == null) {
-            helper = checkNotNull(createHelper(), "`createHelper` returned null");
+        PreferHelper current = helper;
+
+        if (current == null) {
+            synchronized (this) {
+                current = helper;
+
+                if (current == null) {
+                    current = checkNotNull(createHelper(), "`createHelper` returned null");
+
+                    if (writeBehindIntervalMs > 0) {
+                        current = createWriteBehindHelper(current);
+                    }
+
+                    helper = current;
+                }
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Returns the {@link CachingPreferHelper}, when it is the helper or the helper that is wrapped
+     * for write-behind mode.
+     *
+     * @return The caching helper, or null if the helper does not cache.
+     */
+    protected CachingPreferHelper getCachingHelper() {
+        PreferHelper current = helper;
+
+        if (current instanceof WriteBehindPreferHelper) {
+            current = ((WriteBehindPreferHelper) current).helper;
+        }
+
+        return current instanceof CachingPreferHelper ? (CachingPreferHelper) current : null;
+    }
+
+    /**
+     * Reads the values of these Prefs at once and keeps them in memory. When the
+     * {@link CachingPreferHelper} wraps a {@link SharedPreferencesHelper}, the values are decoded
+     * from one {@link SharedPreferencesHelper#readAll(List)} snapshot into the cache.
+     * Otherwise this does nothing: override it for other helpers that can read all values at once.
+     *
+     * @param prefs The Prefs of the registered groups.
+     * @see #preload()
+     */
+    protected void preloadPrefs(List<Pref<?, ?>> prefs) {
+        final CachingPreferHelper cachingHelper = getCachingHelper();
+
+        if (cachingHelper == null || !(cachingHelper.helper instanceof SharedPreferencesHelper)) {
+            return;
+        }
+
+        // taken before reading: values that change while reading are not kept
+        final int generation = cachingHelper.getGeneration();
+
+        final Object[] values = ((SharedPreferencesHelper) cachingHelper.helper).readAll(prefs);
+
+        cachingHelper.preload(prefs, values, generation);
+    }
+
+    /**
+     * Wraps the helper for write-behind mode.
+     *
+     * @param helper The helper to wrap.
+     * @return The write-behind helper.
+     */
+    protected PreferHelper createWriteBehindHelper(PreferHelper helper) {
+        return new WriteBehindPreferHelper(helper, writeBehindIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers the serialized keys of all constants of the enum key class, so that changed
+     * preferences can be matched to their key. Must be called while holding the lock.
+     *
+     * @param keyClass The enum key class to register.
+     * @see #handlePrefChanged(String)
+     */
+    protected void registerKeyClass(Class<? extends Enum> keyClass) {
+        final String[] serializedKeys = PreferKeySerializer.getSerializedKeys(keyClass);
+
+        // no constants or already registered
+        if (serializedKeys.length == 0 || keysBySerializedKey.containsKey(serializedKeys[0])) {
+            return;
+        }
+
+        final Enum[] constants = keyClass.getEnumConstants();
+
+        for (int i = 0; i < constants.length; i++) {
+            keysBySerializedKey.put(serializedKeys[i], constants[i]);
+        }
+    }
+
+    /**
+     * Removes the stored value changed listener for the provided listener.
+     *
+     * @param pref     The Pref to remove the listener for.
+     * @param listener The listener to remove.
+     * @see #findListener(CopyOnWriteArray, Object)
+     */
+    protected synchronized void removeStoredValueChangedListener(Pref<?, ?> pref, Object listener) {
+        checkNotNull(pref, "Pref can not be null");
+        checkNotNull(listener, "Listener can not be null");
+
+        if (!initialized) {
+            throw new PreferNotInitializedException("Can not remove listener");
+        }
+
+        final CopyOnWriteArray<OnValueChanged> listeners = this.prefValueChangedListeners.get(pref);
+
+        if (listeners != null && listeners.remove(findListener(listeners, listener)) && listeners.isEmpty()) {
+            prefValueChangedListeners.remove(pref);
+            removeFromIndex(listenedPrefsByKey, pref.getKey(), pref);
+        }
+    }
+
+    /**
+     * Returns the stored listener for the provided listener: the listener itself, or the
+     * {@link ListenerWrapper} that was stored for it.
+     *
+     * @param listeners The stored listeners.
+     * @param listener  The listener to look for.
+     * @return The stored listener, or the provided listener if it is not found.
+     */
+    protected Object findListener(CopyOnWriteArray<?> listeners, Object listener) {
+        final Object[] snapshot = listeners.snapshot();
+
+        for (int i = 0; i < snapshot.length; i++) {
+            final Object stored = snapshot[i];
+
+            if (stored.equals(listener) || (stored instanceof ListenerWrapper
+                    && ((ListenerWrapper) stored).getWrappedListener().equals(listener))) {
+                return stored;
+            }
+        }
+
+        return listener;
+    }
+
+    /**
+     * Adds the value to the set for this index key.
+     *
+     * @param index    The index to add to.
+     * @param indexKey The index key.
+     * @param value    The value to add.
+     * @param <I>      Indicates the index key type.
+     * @param <T>      Indicates the value type.
+     */
+    protected <I, T> void addToIndex(Map<I, CopyOnWriteArray<T>> index, I indexKey, T value) {
+        CopyOnWriteArray<T> values = index.get(indexKey);
+
+        if (values == null) {
+            values = new CopyOnWriteArray<>();
+            index.put(indexKey, values);
         }
 
-        return helper;
+        values.add(value);
     }
 
     /**
-     * Notify listeners of a changed Pref value.
+     * Removes the value from the set for this index key, and removes the set if it is empty.
+     *
+     * @param index    The index to remove from.
+     * @param indexKey The index key.
+     * @param value    The value to remove.
+     * @param <I>      Indicates the index key type.
+     * @param <T>      Indicates the value type.
+     */
+    protected <I, T> void removeFromIndex(Map<I, CopyOnWriteArray<T>> index, I indexKey, T value) {
+        final CopyOnWriteArray<T> values = index.get(indexKey);
+
+        if (values != null && values.remove(value) && values.isEmpty()) {
+            index.remove(indexKey);
+        }
+    }
+
+    /**
+     * Notify listeners of a changed Pref value. Invalidates the cached value first, when the helper
+     * (or the helper wrapped for write-behind mode) is a {@link CachingPreferHelper}.
+     * <p>
+     * The Pref value listeners share a value that is read once per Pref. The group value listeners
+     * receive the Pref and read its value themselves: with the caching helper only the first read
+     * hits the storage, without it every read does.
      *
      * @param serializedKey The serialized Pref key.
      */
     @SuppressWarnings("unchecked")
     protected void handlePrefChanged(String serializedKey) {
-        Enum key;
+        final CachingPreferHelper cachingHelper = getCachingHelper();
+
+        // no key: all preferences were cleared
+        if (serializedKey == null) {
+            if (cachingHelper != null) {
+                cachingHelper.invalidateAll();
+            }
+
+            return;
+        }
 
-        try {
-            key = PreferKeySerializer.deserializeKey(serializedKey);
-        } catch (ClassNotFoundException error) {
-            // ignore unknown key
+        if (cachingHelper != null) {
+            cachingHelper.invalidate(serializedKey);
+        }
+
+        final Enum key = keysBySerializedKey.get(serializedKey);
+
+        // ignore unknown key, e.g. a preference of another library
+        if (key == null) {
             return;
         }
 
         // notify pref value changed listeners
-        for (Map.Entry<Pref, Set<OnValueChanged>> entry : prefValueChangedListeners.entrySet()) {
-            Pref pref = entry.getKey();
+        final CopyOnWriteArray<Pref> prefs = listenedPrefsByKey.get(key);
 
-            // match pref by key
-            if (pref.getKey().equals(key)) {
-                Object value = pref.getValue();
+        if (prefs != null) {
+            final Object[] prefsSnapshot = prefs.snapshot();
 
-                // pass new value to listeners
-                for (OnValueChanged listener : entry.getValue()) {
-                    listener.onValueChanged(value);
+            for (int i = 0; i < prefsSnapshot.length; i++) {
+                final Pref pref = (Pref) prefsSnapshot[i];
+                final CopyOnWriteArray<OnValueChanged> listeners =
+                        prefValueChangedListeners.get(pref);
+
+                // listeners removed concurrently
+                if (listeners == null) {
+                    continue;
                 }
 
-                break;
+                final Object[] listenersSnapshot = listeners.snapshot();
+
+                // the value is read once, and only when a listener needs it
+                MemoizedValue value = null;
+                long primitiveBits = 0;
+                boolean primitiveRead = false;
+
+                // pass new value to listeners
+                for (int j = 0; j < listenersSnapshot.length; j++) {
+                    final Object listener = listenersSnapshot[j];
+
+                    // the first primitive listener reads the value for all of them, without boxing
+                    if (listener instanceof PrimitiveValueChangedListener) {
+                        final PrimitiveValueChangedListener primitiveListener =
+                                (PrimitiveValueChangedListener) listener;
+
+                        if (!primitiveRead) {
+                            primitiveBits = primitiveListener.read(this, pref);
+                            primitiveRead = true;
+                        }
+
+                        primitiveListener.onValueChanged(primitiveBits);
+                        continue;
+                    }
+
+                    if (value == null) {
+                        value = new MemoizedValue(pref);
+                    }
+
+                    if (listener instanceof LazyValueChangedListener) {
+                        ((LazyValueChangedListener) listener).onLazyValueChanged(value);
+                    } else {
+                        ((OnValueChanged) listener).onValueChanged(value.get());
+                    }
+                }
             }
         }
 
-        // key class for groups
-        final Class<? extends Enum> keyClass = key.getClass();
-
         // notify pref group value changed listeners
-        for (Map.Entry<PrefGroup, Set<OnGroupValueChanged>> entry : prefGroupValueChangedListeners.entrySet()) {
-            PrefGroup group = entry.getKey();
+        final CopyOnWriteArray<PrefGroup> groups =
+                listenedGroupsByKeyClass.get(key.getDeclaringClass());
 
-            // match group by key class
-            if (group.getKeyClass().equals(keyClass)) {
-                Pref pref = group.findPref(key);
+        if (groups != null) {
+            final Object[] groupsSnapshot = groups.snapshot();
 
-                // pass pref with new value to listeners
-                for (OnGroupValueChanged listener : entry.getValue()) {
-                    listener.onGroupValueChanged(pref);
+            for (int i = 0; i < groupsSnapshot.length; i++) {
+                final PrefGroup group = (PrefGroup) groupsSnapshot[i];
+                final CopyOnWriteArray<OnGroupValueChanged> listeners =
+                        prefGroupValueChangedListeners.get(group);
+
+                // listeners removed concurrently
+                if (listeners == null) {
+                    continue;
                 }
 
-                break;
+                final Object[] listenersSnapshot = listeners.snapshot();
+                final Pref pref = group.findPref(key);
+
+                // pass pref with new value to listeners: they read the value through the pref, so
+                // only the caching helper prevents a storage read per listener
+                for (int j = 0; j < listenersSnapshot.length; j++) {
+                    ((OnGroupValueChanged) listenersSnapshot[j]).onGroupValueChanged(pref);
+                }
             }
         }
     }
@@ -6,6 +6,13 @@ import android.preference.PreferenceManager;
 
 import com.cookingfox.android.prefer.api.prefer.Prefer;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
 import static com.cookingfox.guava_preconditions.Preconditions.checkState;
 
@@ -19,6 +26,13 @@ public final class AndroidPreferProvider {
      */
     protected static AndroidPrefer defaultInstance;
 
+    /**
+     * Future of the default instance's shared preferences, when they are loaded by
+     * {@link #getDefaultAsync(Context, Executor)}. Null if the default instance is not set, or was
+     * not created by that method.
+     */
+    protected static Future<SharedPreferences> defaultLoading;
+
     /**
      * Not supposed to be instantiated.
      */
@@ -30,11 +44,12 @@ public final class AndroidPreferProvider {
      *
      * @see Prefer#disposePrefer()
      */
-    public static void disposeDefault() {
+    public static synchronized void disposeDefault() {
         checkNotNull(defaultInstance, "The default instance is not set").disposePrefer();
 
         // unset default instance
         defaultInstance = null;
+        defaultLoading = null;
     }
 
     /**
@@ -45,7 +60,7 @@ public final class AndroidPreferProvider {
      * @param context The context from which to get the default shared preferences.
      * @return The default Prefer instance.
      */
-    public static AndroidPrefer getDefault(Context context) {
+    public static synchronized AndroidPrefer getDefault(Context context) {
         checkNotNull(context, "Context can not be null");
 
         // default instance not set yet: create using context
@@ -59,13 +74,83 @@ public final class AndroidPreferProvider {
         return defaultInstance;
     }
 
+    /**
+     * Returns the default Prefer instance, like {@link #getDefault(Context)}, but loads the default
+     * shared preferences on a new background thread.
+     *
+     * @param context The context from which to get the default shared preferences.
+     * @return The future of the default Prefer instance, which is done when the preferences are
+     * loaded.
+     * @see #getDefaultAsync(Context, Executor)
+     */
+    public static Future<AndroidPrefer> getDefaultAsync(Context context) {
+        return getDefaultAsync(context, new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "Prefer-init");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        });
+    }
+
+    /**
+     * Returns the default Prefer instance, like {@link #getDefault(Context)}, but loads the default
+     * shared preferences on the executor. The default instance is set and initialized immediately,
+     * so groups and listeners can be added right away: only the first read or write blocks until
+     * the preferences are loaded. Use the returned future to wait for the preferences explicitly.
+     *
+     * @param context  The context from which to get the default shared preferences.
+     * @param executor The executor to load the preferences on.
+     * @return The future of the default Prefer instance, which is done when the preferences are
+     * loaded.
+     */
+    public static Future<AndroidPrefer> getDefaultAsync(final Context context, Executor executor) {
+        checkNotNull(context, "Context can not be null");
+
+        return getDefaultAsync(new Callable<SharedPreferences>() {
+            @Override
+            public SharedPreferences call() throws Exception {
+                return PreferenceManager.getDefaultSharedPreferences(context);
+            }
+        }, executor);
+    }
+
+    /**
+     * Returns the default Prefer instance, and creates it with preferences that are loaded on the
+     * executor if it is not set yet. While the preferences are loading, every call returns a future
+     * of the same load.
+     *
+     * @param loader   Loads the default shared preferences.
+     * @param executor The executor to load the preferences on.
+     * @return The future of the default Prefer instance, which is done when the preferences are
+     * loaded.
+     * @see #getDefaultAsync(Context, Executor)
+     */
+    static synchronized Future<AndroidPrefer> getDefaultAsync(Callable<SharedPreferences> loader,
+                                                              Executor executor) {
+        checkNotNull(executor, "Executor can not be null");
+
+        // default instance not set yet: create using loader
+        if (defaultInstance == null) {
+            final DeferredSharedPreferences preferences =
+                    new DeferredSharedPreferences(loader, executor);
+
+            defaultInstance = new SharedPreferencesPrefer(preferences);
+            defaultInstance.initializePrefer();
+            defaultLoading = preferences.getFuture();
+        }
+
+        return new LoadedPreferFuture(defaultInstance, defaultLoading);
+    }
+
     /**
      * Set the default Prefer instance.
      *
      * @param prefer The Prefer instance to set as default.
      * @throws IllegalStateException when the default instance was already set.
      */
-    public static void setDefault(AndroidPrefer prefer) {
+    public static synchronized void setDefault(AndroidPrefer prefer) {
         checkState(defaultInstance == null, "Default instance was already set");
 
         AndroidPreferProvider.defaultInstance =
@@ -77,4 +162,66 @@ public final class AndroidPreferProvider {
         }
     }
 
+    //----------------------------------------------------------------------------------------------
+    // LOADED PREFER FUTURE
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Future of a Prefer instance, which is done when its shared preferences are loaded. Can not be
+     * cancelled: the loading preferences are shared by all users of the default instance.
+     */
+    static final class LoadedPreferFuture implements Future<AndroidPrefer> {
+
+        /**
+         * The Prefer instance.
+         */
+        final AndroidPrefer prefer;
+
+        /**
+         * The future of the loading preferences, or null if they were not loaded asynchronously.
+         */
+        final Future<SharedPreferences> loading;
+
+        LoadedPreferFuture(AndroidPrefer prefer, Future<SharedPreferences> loading) {
+            this.prefer = prefer;
+            this.loading = loading;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            // not owned by the caller: see class doc
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return loading == null || loading.isDone();
+        }
+
+        @Override
+        public AndroidPrefer get() throws InterruptedException, ExecutionException {
+            if (loading != null) {
+                loading.get();
+            }
+
+            return prefer;
+        }
+
+        @Override
+        public AndroidPrefer get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            if (loading != null) {
+                loading.get(timeout, unit);
+            }
+
+            return prefer;
+        }
+
+    }
+
 }
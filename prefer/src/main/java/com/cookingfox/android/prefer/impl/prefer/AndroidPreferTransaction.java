@@ -0,0 +1,96 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import com.cookingfox.android.prefer.api.exception.InvalidPrefValueException;
+import com.cookingfox.android.prefer.api.pref.Pref;
+import com.cookingfox.android.prefer.api.pref.typed.BooleanPref;
+import com.cookingfox.android.prefer.api.pref.typed.FloatPref;
+import com.cookingfox.android.prefer.api.pref.typed.IntegerPref;
+import com.cookingfox.android.prefer.api.pref.typed.LongPref;
+import com.cookingfox.android.prefer.api.pref.typed.StringPref;
+import com.cookingfox.android.prefer.api.prefer.PreferTransaction;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+import static com.cookingfox.guava_preconditions.Preconditions.checkState;
+
+/**
+ * {@link PreferTransaction} implementation that collects the values in one {@link PreferEditor}.
+ */
+public class AndroidPreferTransaction implements PreferTransaction {
+
+    /**
+     * The editor that collects the values.
+     */
+    protected final PreferEditor editor;
+
+    /**
+     * Whether the transaction was applied or committed.
+     */
+    protected boolean finished = false;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Create a new transaction.
+     *
+     * @param editor The editor to collect the values in.
+     */
+    public AndroidPreferTransaction(PreferEditor editor) {
+        this.editor = checkNotNull(editor, "Editor can not be null");
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // IMPLEMENTATION: PreferTransaction
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public <K extends Enum<K>, V> PreferTransaction setValue(Pref<K, V> pref, V value)
+            throws InvalidPrefValueException {
+        checkNotNull(pref, "Pref can not be null");
+        checkState(!finished, "Transaction is already finished");
+
+        final K key = pref.getKey();
+
+        try {
+            pref.validate(value);
+        } catch (Exception e) {
+            throw new InvalidPrefValueException("Invalid value for " + key + ": " + value, e);
+        }
+
+        if (pref instanceof BooleanPref) {
+            editor.putBoolean(key, (Boolean) value);
+        } else if (pref instanceof FloatPref) {
+            editor.putFloat(key, (Float) value);
+        } else if (pref instanceof IntegerPref) {
+            editor.putInteger(key, (Integer) value);
+        } else if (pref instanceof LongPref) {
+            editor.putLong(key, (Long) value);
+        } else if (pref instanceof StringPref) {
+            editor.putString(key, (String) value);
+        } else {
+            throw new InvalidPrefValueException("Unsupported Pref type: " + pref.getClass());
+        }
+
+        return this;
+    }
+
+    @Override
+    public void apply() {
+        checkState(!finished, "Transaction is already finished");
+
+        finished = true;
+
+        editor.apply();
+    }
+
+    @Override
+    public boolean commit() {
+        checkState(!finished, "Transaction is already finished");
+
+        finished = true;
+
+        return editor.commit();
+    }
+
+}
@@ -0,0 +1,753 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import com.cookingfox.android.prefer.api.pref.Pref;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * {@link PreferHelper} decorator that caches the decoded values of the wrapped helper, so repeated
+ * reads of a preference do not hit the storage. The values are cached per serialized key, in slots
+ * that are specialized per value type, so cached primitives are not boxed.
+ * <p>
+ * Writes through this helper update the cache. A write of a value that is known to be stored
+ * already is skipped, so it does not cause a storage write and change notifications. Changes that
+ * are made directly in the storage must be reported using {@link #invalidate(String)}. The cache
+ * is only used while the helper is initialized: when disposed, the storage changes are no longer
+ * observed, so all operations are passed to the wrapped helper.
+ */
+public class CachingPreferHelper implements PreferHelper {
+
+    /**
+     * Cached values by serialized key.
+     */
+    protected final Map<String, Object> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented on every invalidation, so a value that was read while it was invalidated is not
+     * cached.
+     */
+    protected final AtomicInteger generation = new AtomicInteger();
+
+    /**
+     * Incremented when a write through this helper starts, and when a write invalidates its key,
+     * so a write that overlapped another write does not cache its value.
+     *
+     * @see #cacheStored(Enum, Object, int)
+     */
+    protected final AtomicInteger writeGeneration = new AtomicInteger();
+
+    /**
+     * The wrapped helper.
+     */
+    protected final PreferHelper helper;
+
+    /**
+     * Whether the cache is used: only while initialized.
+     */
+    protected volatile boolean enabled = false;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Create a new caching helper.
+     *
+     * @param helper The helper to wrap.
+     */
+    public CachingPreferHelper(PreferHelper helper) {
+        this.helper = checkNotNull(helper, "Helper can not be null");
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // LIFECYCLE
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public void initializePrefer() {
+        helper.initializePrefer();
+
+        enabled = true;
+    }
+
+    @Override
+    public void disposePrefer() {
+        enabled = false;
+
+        invalidateAll();
+
+        helper.disposePrefer();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // BOOLEAN
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public boolean getBoolean(Enum key, boolean defaultValue) {
+        if (!enabled) {
+            return helper.getBoolean(key, defaultValue);
+        }
+
+        final String serializedKey = serializeKey(key);
+        final Object cached = cache.get(serializedKey);
+
+        if (cached instanceof BooleanValue) {
+            final BooleanValue slot = (BooleanValue) cached;
+
+            if (slot.stored || slot.defaultValue == defaultValue) {
+                return slot.value;
+            }
+        }
+
+        final int generation = this.generation.get();
+        final boolean value = helper.getBoolean(key, defaultValue);
+
+        cacheLoaded(serializedKey, new BooleanValue(value, defaultValue, false), generation);
+
+        return value;
+    }
+
+    @Override
+    public void putBoolean(Enum key, boolean value) {
+        if (isStored(key, value)) {
+            return;
+        }
+
+        final int write = beginWrite();
+
+        helper.putBoolean(key, value);
+
+        cacheStored(key, new BooleanValue(value, value, true), write);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // FLOAT
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public float getFloat(Enum key, float defaultValue) {
+        if (!enabled) {
+            return helper.getFloat(key, defaultValue);
+        }
+
+        final String serializedKey = serializeKey(key);
+        final Object cached = cache.get(serializedKey);
+
+        if (cached instanceof FloatValue) {
+            final FloatValue slot = (FloatValue) cached;
+
+            if (slot.stored ||
+                    Float.floatToIntBits(slot.defaultValue) == Float.floatToIntBits(defaultValue)) {
+                return slot.value;
+            }
+        }
+
+        final int generation = this.generation.get();
+        final float value = helper.getFloat(key, defaultValue);
+
+        cacheLoaded(serializedKey, new FloatValue(value, defaultValue, false), generation);
+
+        return value;
+    }
+
+    @Override
+    public void putFloat(Enum key, float value) {
+        if (isStored(key, value)) {
+            return;
+        }
+
+        final int write = beginWrite();
+
+        helper.putFloat(key, value);
+
+        cacheStored(key, new FloatValue(value, value, true), write);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // INTEGER
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public int getInteger(Enum key, int defaultValue) {
+        if (!enabled) {
+            return helper.getInteger(key, defaultValue);
+        }
+
+        final String serializedKey = serializeKey(key);
+        final Object cached = cache.get(serializedKey);
+
+        if (cached instanceof IntegerValue) {
+            final IntegerValue slot = (IntegerValue) cached;
+
+            if (slot.stored || slot.defaultValue == defaultValue) {
+                return slot.value;
+            }
+        }
+
+        final int generation = this.generation.get();
+        final int value = helper.getInteger(key, defaultValue);
+
+        cacheLoaded(serializedKey, new IntegerValue(value, defaultValue, false), generation);
+
+        return value;
+    }
+
+    @Override
+    public void putInteger(Enum key, int value) {
+        if (isStored(key, value)) {
+            return;
+        }
+
+        final int write = beginWrite();
+
+        helper.putInteger(key, value);
+
+        cacheStored(key, new IntegerValue(value, value, true), write);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // LONG
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public long getLong(Enum key, long defaultValue) {
+        if (!enabled) {
+            return helper.getLong(key, defaultValue);
+        }
+
+        final String serializedKey = serializeKey(key);
+        final Object cached = cache.get(serializedKey);
+
+        if (cached instanceof LongValue) {
+            final LongValue slot = (LongValue) cached;
+
+            if (slot.stored || slot.defaultValue == defaultValue) {
+                return slot.value;
+            }
+        }
+
+        final int generation = this.generation.get();
+        final long value = helper.getLong(key, defaultValue);
+
+        cacheLoaded(serializedKey, new LongValue(value, defaultValue, false), generation);
+
+        return value;
+    }
+
+    @Override
+    public void putLong(Enum key, long value) {
+        if (isStored(key, value)) {
+            return;
+        }
+
+        final int write = beginWrite();
+
+        helper.putLong(key, value);
+
+        cacheStored(key, new LongValue(value, value, true), write);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // STRING
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public String getString(Enum key, String defaultValue) {
+        if (!enabled) {
+            return helper.getString(key, defaultValue);
+        }
+
+        final String serializedKey = serializeKey(key);
+        final Object cached = cache.get(serializedKey);
+
+        if (cached instanceof StringValue) {
+            final StringValue slot = (StringValue) cached;
+
+            if (slot.stored || (slot.defaultValue == null ?
+                    defaultValue == null : slot.defaultValue.equals(defaultValue))) {
+                return slot.value;
+            }
+        }
+
+        final int generation = this.generation.get();
+        final String value = helper.getString(key, defaultValue);
+
+        cacheLoaded(serializedKey, new StringValue(value, defaultValue, false), generation);
+
+        return value;
+    }
+
+    @Override
+    public void putString(Enum key, String value) {
+        if (isStored(key, value)) {
+            return;
+        }
+
+        final int write = beginWrite();
+
+        helper.putString(key, value);
+
+        cacheStored(key, createStoredSlot(value), write);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // EDITOR
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns an editor of the wrapped helper, which updates the cache once the changes are stored.
+     * Values that equal the stored values are skipped, and nothing is stored if all values are
+     * skipped.
+     *
+     * @return A new editor.
+     */
+    @Override
+    public PreferEditor edit() {
+        final PreferEditor editor = helper.edit();
+        final Map<Enum, Object> slots = new LinkedHashMap<>();
+
+        return new PreferEditor() {
+            @Override
+            public PreferEditor putBoolean(Enum key, boolean value) {
+                if (isStored(key, value)) {
+                    return this;
+                }
+
+                editor.putBoolean(key, value);
+                slots.put(key, new BooleanValue(value, value, true));
+                return this;
+            }
+
+            @Override
+            public PreferEditor putFloat(Enum key, float value) {
+                if (isStored(key, value)) {
+                    return this;
+                }
+
+                editor.putFloat(key, value);
+                slots.put(key, new FloatValue(value, value, true));
+                return this;
+            }
+
+            @Override
+            public PreferEditor putInteger(Enum key, int value) {
+                if (isStored(key, value)) {
+                    return this;
+                }
+
+                editor.putInteger(key, value);
+                slots.put(key, new IntegerValue(value, value, true));
+                return this;
+            }
+
+            @Override
+            public PreferEditor putLong(Enum key, long value) {
+                if (isStored(key, value)) {
+                    return this;
+                }
+
+                editor.putLong(key, value);
+                slots.put(key, new LongValue(value, value, true));
+                return this;
+            }
+
+            @Override
+            public PreferEditor putString(Enum key, String value) {
+                if (isStored(key, value)) {
+                    return this;
+                }
+
+                editor.putString(key, value);
+                slots.put(key, createStoredSlot(value));
+                return this;
+            }
+
+            @Override
+            public void apply() {
+                // nothing changed: do not store
+                if (slots.isEmpty()) {
+                    return;
+                }
+
+                final int write = beginWrite();
+
+                editor.apply();
+
+                for (Map.Entry<Enum, Object> slot : slots.entrySet()) {
+                    cacheStored(slot.getKey(), slot.getValue(), write);
+                }
+            }
+
+            @Override
+            public boolean commit() {
+                // nothing changed: do not store
+                if (slots.isEmpty()) {
+                    return true;
+                }
+
+                final int write = beginWrite();
+                final boolean committed = editor.commit();
+
+                for (Map.Entry<Enum, Object> slot : slots.entrySet()) {
+                    // not committed: the stored value is unknown
+                    cacheStored(slot.getKey(), committed ? slot.getValue() : null, write);
+                }
+
+                return committed;
+            }
+        };
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Removes the cached value for this key, so it is read from the wrapped helper on next access.
+     * Call this when the stored value has changed.
+     *
+     * @param serializedKey The serialized key of the changed preference.
+     */
+    public void invalidate(String serializedKey) {
+        // increment first: see `cacheLoaded`
+        generation.incrementAndGet();
+
+        cache.remove(serializedKey);
+    }
+
+    /**
+     * Removes all cached values.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+
+        cache.clear();
+    }
+
+    /**
+     * Returns the current invalidation generation. Take it before reading the values to
+     * {@link #preload(List, Object[], int)}.
+     *
+     * @return The invalidation generation.
+     */
+    public int getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Caches the values of these Prefs as if they were read with their default values, e.g. values
+     * that were decoded from one snapshot of the storage, so the Prefs are not read one by one. If
+     * the cache was invalidated since the generation was taken, the values may be outdated and are
+     * not kept. Ignored when the helper is not initialized.
+     *
+     * @param prefs      The Prefs to cache the values for.
+     * @param values     The values in the order of the Prefs, boxed in the value type of the Pref,
+     *                   or null to skip a Pref.
+     * @param generation The invalidation generation from before the values were read.
+     * @see #getGeneration()
+     */
+    public void preload(List<? extends Pref<?, ?>> prefs, Object[] values, int generation) {
+        if (!enabled) {
+            return;
+        }
+
+        for (int i = 0; i < values.length; i++) {
+            final Pref<?, ?> pref = prefs.get(i);
+            final Object slot = createLoadedSlot(pref, values[i]);
+
+            if (slot != null) {
+                cacheLoaded(serializeKey(pref.getKey()), slot, generation);
+            }
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PROTECTED METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Caches a value that was read from the wrapped helper. If the cache was invalidated while the
+     * value was read, the value may be outdated and is not kept.
+     *
+     * @param serializedKey The serialized preference key.
+     * @param slot          The value slot to cache.
+     * @param generation    The invalidation generation from before the value was read.
+     */
+    protected void cacheLoaded(String serializedKey, Object slot, int generation) {
+        if (generation != this.generation.get()) {
+            return;
+        }
+
+        cache.put(serializedKey, slot);
+
+        // invalidated after the check above: the invalidation may have missed this slot
+        if (generation != this.generation.get()) {
+            cache.remove(serializedKey, slot);
+        }
+    }
+
+    /**
+     * Creates a value slot for a value that was read with the default value of the Pref.
+     *
+     * @param pref  The Pref of the value.
+     * @param value The value, boxed in the value type of the Pref.
+     * @return The value slot, or null if the value is null or its type is not supported.
+     */
+    protected Object createLoadedSlot(Pref<?, ?> pref, Object value) {
+        // the value classes are final, so these checks are cheap
+        if (value instanceof Boolean) {
+            return new BooleanValue((Boolean) value, (Boolean) pref.getDefaultValue(), false);
+        } else if (value instanceof Float) {
+            return new FloatValue((Float) value, (Float) pref.getDefaultValue(), false);
+        } else if (value instanceof Integer) {
+            return new IntegerValue((Integer) value, (Integer) pref.getDefaultValue(), false);
+        } else if (value instanceof Long) {
+            return new LongValue((Long) value, (Long) pref.getDefaultValue(), false);
+        } else if (value instanceof String) {
+            return new StringValue((String) value, (String) pref.getDefaultValue(), false);
+        }
+
+        return null;
+    }
+
+    /**
+     * Starts a write through this helper: values that are being read may be outdated by the write,
+     * so they are not cached.
+     *
+     * @return The write generation, to pass to {@link #cacheStored(Enum, Object, int)}.
+     */
+    protected int beginWrite() {
+        generation.incrementAndGet();
+
+        return writeGeneration.incrementAndGet();
+    }
+
+    /**
+     * Caches a value that was written through this helper. If another write started since this
+     * write, the writes may have reached the storage in another order, so the key is invalidated
+     * instead: also when that write already cached its value.
+     *
+     * @param key   The preference key.
+     * @param slot  The value slot to cache, or null to invalidate the key.
+     * @param write The write generation from {@link #beginWrite()}.
+     */
+    protected void cacheStored(Enum key, Object slot, int write) {
+        if (!enabled) {
+            return;
+        }
+
+        final String serializedKey = serializeKey(key);
+
+        if (slot == null) {
+            invalidate(serializedKey);
+        } else if (write != writeGeneration.get()) {
+            invalidateWrite(serializedKey);
+        } else {
+            cache.put(serializedKey, slot);
+
+            // another write started after the check above
+            if (write != writeGeneration.get()) {
+                invalidateWrite(serializedKey);
+            }
+        }
+    }
+
+    /**
+     * Creates a value slot for a string that was written through this helper. A null string is
+     * not cached, since the wrapped helper may store it differently, e.g. as "null".
+     *
+     * @param value The written string.
+     * @return The value slot, or null if the value is null.
+     */
+    protected Object createStoredSlot(String value) {
+        return value == null ? null : new StringValue(value, value, true);
+    }
+
+    /**
+     * Invalidates the key of a write that overlapped another write. Increments the write
+     * generation first, so an overlapping write that caches its value afterwards invalidates it
+     * as well.
+     *
+     * @param serializedKey The serialized key of the written preference.
+     */
+    protected void invalidateWrite(String serializedKey) {
+        writeGeneration.incrementAndGet();
+
+        invalidate(serializedKey);
+    }
+
+    /**
+     * Returns whether the cache knows this value to be the stored value: either it was written
+     * through this helper, or it was read and differs from the default value used to read it.
+     *
+     * @param key   The preference key.
+     * @param value The value to write.
+     * @return Whether the value is stored already.
+     */
+    protected boolean isStored(Enum key, boolean value) {
+        final Object cached = enabled ? cache.get(serializeKey(key)) : null;
+
+        if (cached instanceof BooleanValue) {
+            final BooleanValue slot = (BooleanValue) cached;
+
+            return (slot.stored || slot.value != slot.defaultValue) && slot.value == value;
+        }
+
+        return false;
+    }
+
+    /**
+     * @see #isStored(Enum, boolean)
+     */
+    protected boolean isStored(Enum key, float value) {
+        final Object cached = enabled ? cache.get(serializeKey(key)) : null;
+
+        if (cached instanceof FloatValue) {
+            final FloatValue slot = (FloatValue) cached;
+            final int bits = Float.floatToIntBits(slot.value);
+
+            return (slot.stored || bits != Float.floatToIntBits(slot.defaultValue))
+                    && bits == Float.floatToIntBits(value);
+        }
+
+        return false;
+    }
+
+    /**
+     * @see #isStored(Enum, boolean)
+     */
+    protected boolean isStored(Enum key, int value) {
+        final Object cached = enabled ? cache.get(serializeKey(key)) : null;
+
+        if (cached instanceof IntegerValue) {
+            final IntegerValue slot = (IntegerValue) cached;
+
+            return (slot.stored || slot.value != slot.defaultValue) && slot.value == value;
+        }
+
+        return false;
+    }
+
+    /**
+     * @see #isStored(Enum, boolean)
+     */
+    protected boolean isStored(Enum key, long value) {
+        final Object cached = enabled ? cache.get(serializeKey(key)) : null;
+
+        if (cached instanceof LongValue) {
+            final LongValue slot = (LongValue) cached;
+
+            return (slot.stored || slot.value != slot.defaultValue) && slot.value == value;
+        }
+
+        return false;
+    }
+
+    /**
+     * @see #isStored(Enum, boolean)
+     */
+    protected boolean isStored(Enum key, String value) {
+        final Object cached = enabled ? cache.get(serializeKey(key)) : null;
+
+        if (cached instanceof StringValue) {
+            final StringValue slot = (StringValue) cached;
+
+            if (slot.value == null) {
+                // null is never stored
+                return false;
+            }
+
+            return (slot.stored || !slot.value.equals(slot.defaultValue))
+                    && slot.value.equals(value);
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the serialized key for the enum key.
+     *
+     * @param key The enum key.
+     * @return The serialized key.
+     */
+    protected String serializeKey(Enum key) {
+        return PreferKeySerializer.serializeKey(checkNotNull(key, "Pref key can not be null"));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // VALUE SLOTS
+    //----------------------------------------------------------------------------------------------
+
+    /*
+     * A slot contains the value and the default value that was used to read it. When `stored` is
+     * true, the value is known to be stored, so it is valid for any default value.
+     */
+
+    protected static final class BooleanValue {
+        final boolean value;
+        final boolean defaultValue;
+        final boolean stored;
+
+        BooleanValue(boolean value, boolean defaultValue, boolean stored) {
+            this.value = value;
+            this.defaultValue = defaultValue;
+            this.stored = stored;
+        }
+    }
+
+    protected static final class FloatValue {
+        final float value;
+        final float defaultValue;
+        final boolean stored;
+
+        FloatValue(float value, float defaultValue, boolean stored) {
+            this.value = value;
+            this.defaultValue = defaultValue;
+            this.stored = stored;
+        }
+    }
+
+    protected static final class IntegerValue {
+        final int value;
+        final int defaultValue;
+        final boolean stored;
+
+        IntegerValue(int value, int defaultValue, boolean stored) {
+            this.value = value;
+            this.defaultValue = defaultValue;
+            this.stored = stored;
+        }
+    }
+
+    protected static final class LongValue {
+        final long value;
+        final long defaultValue;
+        final boolean stored;
+
+        LongValue(long value, long defaultValue, boolean stored) {
+            this.value = value;
+            this.defaultValue = defaultValue;
+            this.stored = stored;
+        }
+    }
+
+    protected static final class StringValue {
+        final String value;
+        final String defaultValue;
+        final boolean stored;
+
+        StringValue(String value, String defaultValue, boolean stored) {
+            this.value = value;
+            this.defaultValue = defaultValue;
+            this.stored = stored;
+        }
+    }
+
+}
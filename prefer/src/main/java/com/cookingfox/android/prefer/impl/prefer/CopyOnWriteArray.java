@@ -0,0 +1,138 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Set of unique elements that is backed by an immutable array, which is replaced by a copy on every
+ * change. Use {@link #snapshot()} to iterate the elements by index: the snapshot never changes, so
+ * elements can be added and removed while iterating, without allocating an iterator.
+ *
+ * @param <T> Indicates the element type.
+ */
+public final class CopyOnWriteArray<T> {
+
+    /**
+     * Shared empty array.
+     */
+    private static final Object[] EMPTY = new Object[0];
+
+    /**
+     * The current elements: never modified, only replaced.
+     */
+    private volatile Object[] elements = EMPTY;
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Adds the element if it is not present yet.
+     *
+     * @param element The element to add.
+     * @return Whether the element was added.
+     */
+    public synchronized boolean add(T element) {
+        checkNotNull(element, "Element can not be null");
+
+        final Object[] current = elements;
+
+        if (indexOf(current, element) >= 0) {
+            return false;
+        }
+
+        final Object[] updated = new Object[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = element;
+
+        elements = updated;
+
+        return true;
+    }
+
+    /**
+     * Removes the element if it is present.
+     *
+     * @param element The element to remove.
+     * @return Whether the element was removed.
+     */
+    public synchronized boolean remove(Object element) {
+        final Object[] current = elements;
+        final int index = indexOf(current, element);
+
+        if (index < 0) {
+            return false;
+        }
+
+        if (current.length == 1) {
+            elements = EMPTY;
+        } else {
+            final Object[] updated = new Object[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+
+            elements = updated;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns whether the element is present.
+     *
+     * @param element The element to look for.
+     * @return Whether the element is present.
+     */
+    public boolean contains(Object element) {
+        return indexOf(elements, element) >= 0;
+    }
+
+    /**
+     * Returns whether there are no elements.
+     *
+     * @return Whether there are no elements.
+     */
+    public boolean isEmpty() {
+        return elements.length == 0;
+    }
+
+    /**
+     * Returns the number of elements.
+     *
+     * @return The number of elements.
+     */
+    public int size() {
+        return elements.length;
+    }
+
+    /**
+     * Returns the current elements, in order of addition. The returned array is not modified by
+     * later changes and must not be modified by the caller.
+     *
+     * @return The current elements.
+     */
+    public Object[] snapshot() {
+        return elements;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PRIVATE METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the index of the element in the array, or -1 if it is not found.
+     *
+     * @param array   The array to search.
+     * @param element The element to look for.
+     * @return The index of the element, or -1.
+     */
+    private static int indexOf(Object[] array, Object element) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i].equals(element)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+}
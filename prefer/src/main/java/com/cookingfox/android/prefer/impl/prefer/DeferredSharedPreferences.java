@@ -0,0 +1,221 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import android.content.SharedPreferences;
+
+import com.cookingfox.android.prefer.api.exception.PreferLoadException;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * {@link SharedPreferences} proxy for preferences that are loaded in the background. Change
+ * listeners can be registered before the preferences are loaded, while reads and edits block
+ * until they are loaded.
+ */
+public final class DeferredSharedPreferences implements SharedPreferences {
+
+    /**
+     * Loads the preferences.
+     */
+    private final FutureTask<SharedPreferences> future;
+
+    /**
+     * Change listeners that were registered before the preferences were loaded.
+     */
+    private final Set<OnSharedPreferenceChangeListener> pendingListeners = new LinkedHashSet<>();
+
+    /**
+     * The loaded preferences.
+     */
+    private volatile SharedPreferences preferences;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Create a new proxy and start loading the preferences on the executor.
+     *
+     * @param loader   Loads the preferences, e.g. using
+     *                 {@link android.preference.PreferenceManager#getDefaultSharedPreferences}.
+     * @param executor The executor to load the preferences on.
+     */
+    public DeferredSharedPreferences(final Callable<SharedPreferences> loader, Executor executor) {
+        checkNotNull(loader, "Loader can not be null");
+        checkNotNull(executor, "Executor can not be null");
+
+        future = new FutureTask<>(new Callable<SharedPreferences>() {
+            @Override
+            public SharedPreferences call() throws Exception {
+                final SharedPreferences loaded =
+                        checkNotNull(loader.call(), "Loaded preferences can not be null");
+
+                onLoaded(loaded);
+
+                return loaded;
+            }
+        });
+
+        executor.execute(future);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the future of the loaded preferences: done when the pending change listeners are
+     * registered.
+     *
+     * @return The future of the loaded preferences.
+     */
+    public Future<SharedPreferences> getFuture() {
+        return future;
+    }
+
+    /**
+     * Returns whether the preferences are loaded.
+     *
+     * @return Whether the preferences are loaded.
+     */
+    public boolean isLoaded() {
+        return preferences != null;
+    }
+
+    /**
+     * Returns the loaded preferences, and waits for them to be loaded if necessary.
+     *
+     * @return The loaded preferences.
+     * @throws PreferLoadException when the preferences could not be loaded.
+     */
+    public SharedPreferences await() {
+        final SharedPreferences loaded = preferences;
+
+        if (loaded != null) {
+            return loaded;
+        }
+
+        boolean interrupted = false;
+
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    // keep waiting: the preferences are required
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new PreferLoadException(e.getCause());
+                } catch (CancellationException e) {
+                    throw new PreferLoadException(e);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // IMPLEMENTATION: SharedPreferences
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public Map<String, ?> getAll() {
+        return await().getAll();
+    }
+
+    @Override
+    public String getString(String key, String defValue) {
+        return await().getString(key, defValue);
+    }
+
+    @Override
+    public Set<String> getStringSet(String key, Set<String> defValues) {
+        return await().getStringSet(key, defValues);
+    }
+
+    @Override
+    public int getInt(String key, int defValue) {
+        return await().getInt(key, defValue);
+    }
+
+    @Override
+    public long getLong(String key, long defValue) {
+        return await().getLong(key, defValue);
+    }
+
+    @Override
+    public float getFloat(String key, float defValue) {
+        return await().getFloat(key, defValue);
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defValue) {
+        return await().getBoolean(key, defValue);
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return await().contains(key);
+    }
+
+    @Override
+    public Editor edit() {
+        return await().edit();
+    }
+
+    @Override
+    public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        synchronized (this) {
+            if (preferences == null) {
+                pendingListeners.add(listener);
+                return;
+            }
+        }
+
+        preferences.registerOnSharedPreferenceChangeListener(listener);
+    }
+
+    @Override
+    public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        synchronized (this) {
+            if (preferences == null) {
+                pendingListeners.remove(listener);
+                return;
+            }
+        }
+
+        preferences.unregisterOnSharedPreferenceChangeListener(listener);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PRIVATE METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Sets the loaded preferences and registers the pending change listeners.
+     *
+     * @param preferences The loaded preferences.
+     */
+    private synchronized void onLoaded(SharedPreferences preferences) {
+        for (OnSharedPreferenceChangeListener listener : pendingListeners) {
+            preferences.registerOnSharedPreferenceChangeListener(listener);
+        }
+
+        pendingListeners.clear();
+
+        this.preferences = preferences;
+    }
+
+}
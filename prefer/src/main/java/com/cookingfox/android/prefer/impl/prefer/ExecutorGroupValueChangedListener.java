@@ -0,0 +1,77 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import com.cookingfox.android.prefer.api.pref.OnGroupValueChanged;
+import com.cookingfox.android.prefer.api.pref.Pref;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Notifies the wrapped group listener on an executor, one change at a time and in order of the
+ * changes.
+ *
+ * @param <K> Indicates the group's key class.
+ */
+final class ExecutorGroupValueChangedListener<K extends Enum<K>>
+        implements OnGroupValueChanged<K>, ListenerWrapper {
+
+    /**
+     * The wrapped listener.
+     */
+    final OnGroupValueChanged<K> listener;
+
+    /**
+     * The executor that was added with the listener.
+     */
+    final Executor executor;
+
+    /**
+     * Runs the notifications in order.
+     */
+    private final SerialExecutor serialExecutor;
+
+    ExecutorGroupValueChangedListener(OnGroupValueChanged<K> listener, Executor executor) {
+        this.listener = listener;
+        this.executor = executor;
+        this.serialExecutor = new SerialExecutor(executor);
+    }
+
+    /**
+     * Equal to a wrapper of the same listener and executor, so it is not added twice.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ExecutorGroupValueChangedListener)) {
+            return false;
+        }
+
+        final ExecutorGroupValueChangedListener<?> that = (ExecutorGroupValueChangedListener<?>) o;
+
+        return listener.equals(that.listener) && executor.equals(that.executor);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * listener.hashCode() + executor.hashCode();
+    }
+
+    @Override
+    public Object getWrappedListener() {
+        return listener;
+    }
+
+    @Override
+    public void onGroupValueChanged(final Pref<K, ?> pref) {
+        try {
+            serialExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onGroupValueChanged(pref);
+                }
+            });
+        } catch (RuntimeException e) {
+            // a rejected notification should not stop the notification of the other listeners
+            SerialExecutor.report(e);
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import com.cookingfox.android.prefer.api.pref.OnValueChanged;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Notifies the wrapped listener on an executor, one value at a time and in order of the changes.
+ *
+ * @param <V> Indicates the Pref's value type.
+ */
+final class ExecutorValueChangedListener<V> implements OnValueChanged<V>, ListenerWrapper {
+
+    /**
+     * The wrapped listener.
+     */
+    final OnValueChanged<V> listener;
+
+    /**
+     * The executor that was added with the listener.
+     */
+    final Executor executor;
+
+    /**
+     * Runs the notifications in order.
+     */
+    private final SerialExecutor serialExecutor;
+
+    ExecutorValueChangedListener(OnValueChanged<V> listener, Executor executor) {
+        this.listener = listener;
+        this.executor = executor;
+        this.serialExecutor = new SerialExecutor(executor);
+    }
+
+    /**
+     * Equal to a wrapper of the same listener and executor, so it is not added twice.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ExecutorValueChangedListener)) {
+            return false;
+        }
+
+        final ExecutorValueChangedListener<?> that = (ExecutorValueChangedListener<?>) o;
+
+        return listener.equals(that.listener) && executor.equals(that.executor);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * listener.hashCode() + executor.hashCode();
+    }
+
+    @Override
+    public Object getWrappedListener() {
+        return listener;
+    }
+
+    @Override
+    public void onValueChanged(final V value) {
+        try {
+            serialExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onValueChanged(value);
+                }
+            });
+        } catch (RuntimeException e) {
+            // a rejected notification should not stop the notification of the other listeners
+            SerialExecutor.report(e);
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import com.cookingfox.android.prefer.api.pref.LazyValue;
+import com.cookingfox.android.prefer.api.pref.OnLazyValueChanged;
+import com.cookingfox.android.prefer.api.pref.OnValueChanged;
+
+/**
+ * Stores an {@link OnLazyValueChanged} listener with the value changed listeners: the dispatch
+ * passes it the shared lazy value instead of the read value.
+ *
+ * @param <V> Indicates the Pref's value type.
+ */
+final class LazyValueChangedListener<V> implements OnValueChanged<V>, ListenerWrapper {
+
+    /**
+     * The wrapped listener.
+     */
+    final OnLazyValueChanged<V> listener;
+
+    LazyValueChangedListener(OnLazyValueChanged<V> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Notifies the wrapped listener of the lazy value.
+     *
+     * @param value The lazy value.
+     */
+    void onLazyValueChanged(LazyValue<V> value) {
+        listener.onValueChanged(value);
+    }
+
+    /**
+     * Equal to a wrapper of the same listener, so it is not added twice.
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof LazyValueChangedListener &&
+                listener.equals(((LazyValueChangedListener<?>) o).listener);
+    }
+
+    @Override
+    public int hashCode() {
+        return listener.hashCode();
+    }
+
+    @Override
+    public Object getWrappedListener() {
+        return listener;
+    }
+
+    @Override
+    public void onValueChanged(final V value) {
+        listener.onValueChanged(new LazyValue<V>() {
+            @Override
+            public V get() {
+                return value;
+            }
+        });
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+/**
+ * A listener that is stored in place of a listener that was added, e.g. to notify it on an
+ * executor. Used to find the stored listener when the added listener is removed.
+ */
+interface ListenerWrapper {
+
+    /**
+     * Returns the listener that was added.
+     *
+     * @return The wrapped listener.
+     */
+    Object getWrappedListener();
+
+}
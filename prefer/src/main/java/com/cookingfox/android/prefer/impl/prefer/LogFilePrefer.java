@@ -0,0 +1,69 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import com.cookingfox.android.prefer.api.prefer.Prefer;
+
+import java.io.File;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkArgument;
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Log-structured file implementation of {@link Prefer}, for preferences that change very often.
+ *
+ * @see LogFilePreferHelper
+ */
+public class LogFilePrefer extends AndroidPrefer {
+
+    /**
+     * The log size in bytes, after which the log is compacted.
+     */
+    protected final long compactionThreshold;
+
+    /**
+     * The log file.
+     */
+    protected final File file;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    public LogFilePrefer(File file) {
+        this(file, LogFilePreferHelper.DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Create a new Prefer instance.
+     *
+     * @param file                The log file, e.g. in `Context#getFilesDir()`. It is created when
+     *                            it does not exist yet.
+     * @param compactionThreshold The log size in bytes, after which the log is compacted.
+     */
+    public LogFilePrefer(File file, long compactionThreshold) {
+        checkArgument(compactionThreshold > 0, "Compaction threshold must be positive");
+
+        this.file = checkNotNull(file, "File can not be null");
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PROTECTED METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a log file helper. The change listener notifies the Prefer listeners through
+     * {@link #handlePrefChanged(String)}.
+     *
+     * @return The helper instance.
+     */
+    @Override
+    protected PreferHelper createHelper() {
+        return new LogFilePreferHelper(file, new OnStoredValueChanged() {
+            @Override
+            public void onStoredValueChanged(String serializedKey) {
+                handlePrefChanged(serializedKey);
+            }
+        }, compactionThreshold);
+    }
+
+}
@@ -0,0 +1,998 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import com.cookingfox.android.prefer.api.exception.PreferLoadException;
+import com.cookingfox.android.prefer.api.exception.PreferStorageException;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkArgument;
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * {@link PreferHelper} that appends every change as a small record to a log file, instead of
+ * rewriting an XML file on every change like {@link android.content.SharedPreferences}. The
+ * current values are kept in memory, so reads do not touch the file.
+ * <p>
+ * A record consists of its payload length, a CRC32 of the payload and the payload: a type tag, a
+ * key id and the value. The first record of a key in a file defines its id, so the serialized key
+ * is only written once per file. The records of an editor with more than one change are preceded
+ * by a batch record with their number, so they are applied all or none. When the log exceeds the
+ * compaction threshold, it is compacted in
+ * the background: the current values are written to a snapshot file, which replaces the previous
+ * snapshot through a rename, after which the log is cleared.
+ * <p>
+ * The snapshot and the log are replayed as a stream when the helper is initialized, so only the
+ * current values are kept in memory. Replay stops at the first incomplete or corrupt record, e.g.
+ * one that was being written when the process crashed, and the log is truncated there. Changes are
+ * written to the page cache immediately, which survives a crash of the process;
+ * {@link PreferEditor#commit()} also forces them to the storage device.
+ * <p>
+ * Reading a value with another type than it was stored with throws a {@link ClassCastException},
+ * like {@link android.content.SharedPreferences} does.
+ */
+public class LogFilePreferHelper implements PreferHelper {
+
+    /**
+     * Default log size in bytes, after which the log is compacted.
+     */
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 64 * 1024;
+
+    /**
+     * Maximum payload length of a record, which also limits the length of a string value.
+     */
+    public static final int MAX_PAYLOAD_LENGTH = 1024 * 1024;
+
+    /**
+     * Record header: payload length (4), CRC32 of payload (4).
+     */
+    protected static final int RECORD_HEADER_SIZE = 8;
+
+    /**
+     * Batch record: header (8), tag (1), number of records in the batch (4).
+     */
+    protected static final int BATCH_RECORD_SIZE = RECORD_HEADER_SIZE + 5;
+
+    protected static final byte TAG_KEY = 0;
+    protected static final byte TAG_BOOLEAN = 1;
+    protected static final byte TAG_FLOAT = 2;
+    protected static final byte TAG_INTEGER = 3;
+    protected static final byte TAG_LONG = 4;
+    protected static final byte TAG_STRING = 5;
+    protected static final byte TAG_REMOVE = 6;
+    protected static final byte TAG_BATCH = 7;
+
+    /**
+     * Encoding of keys and strings.
+     */
+    protected static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * The log size in bytes, after which the log is compacted.
+     */
+    protected final long compactionThreshold;
+
+    /**
+     * The log size in bytes, after which a compaction is scheduled: doubled when a background
+     * compaction fails, so a persistent failure does not rewrite the snapshot on every append.
+     */
+    protected long effectiveCompactionThreshold;
+
+    /**
+     * The log file.
+     */
+    protected final File logFile;
+
+    /**
+     * The snapshot file: contains the values at the last compaction.
+     */
+    protected final File snapshotFile;
+
+    /**
+     * Listener that is executed when a stored value changes.
+     */
+    protected final OnStoredValueChanged onChangeListener;
+
+    /**
+     * Current values by serialized key: read without locking.
+     */
+    protected final Map<String, Object> values = new ConcurrentHashMap<>();
+
+    /**
+     * Key ids of the log, by serialized key.
+     */
+    protected final Map<String, Integer> logKeyIds = new HashMap<>();
+
+    /**
+     * Encodes the records that are appended.
+     */
+    protected final RecordBuffer recordBuffer = new RecordBuffer();
+
+    /**
+     * Whether a compaction is scheduled.
+     */
+    protected final AtomicBoolean compactionScheduled = new AtomicBoolean(false);
+
+    /**
+     * Whether the values are loaded.
+     */
+    protected volatile boolean loaded = false;
+
+    /**
+     * The opened log file.
+     */
+    protected RandomAccessFile log;
+
+    /**
+     * The log size in bytes.
+     */
+    protected long logLength;
+
+    /**
+     * Executes the compactions: only set while initialized.
+     */
+    protected volatile ExecutorService executor;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    public LogFilePreferHelper(File file, OnStoredValueChanged listener) {
+        this(file, listener, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Create a new helper. The files are created when they do not exist yet.
+     *
+     * @param file                The log file. The snapshot is stored next to it, with a
+     *                            `.snapshot` suffix.
+     * @param listener            Listener that is executed when a stored value changes.
+     * @param compactionThreshold The log size in bytes, after which the log is compacted.
+     */
+    public LogFilePreferHelper(File file, OnStoredValueChanged listener, long compactionThreshold) {
+        checkArgument(compactionThreshold > 0, "Compaction threshold must be positive");
+
+        this.logFile = checkNotNull(file, "File can not be null");
+        this.snapshotFile = new File(file.getPath() + ".snapshot");
+        this.onChangeListener = checkNotNull(listener, "Listener can not be null");
+        this.compactionThreshold = compactionThreshold;
+        this.effectiveCompactionThreshold = compactionThreshold;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // LIFECYCLE
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Loads the values, if they are not loaded yet, and starts the compaction thread.
+     */
+    @Override
+    public synchronized void initializePrefer() {
+        load();
+
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "Prefer-compaction");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        scheduleCompaction();
+    }
+
+    /**
+     * Stops the compaction thread, forces the changes to the storage device and closes the log.
+     * A running compaction is completed first, a queued one is skipped. The values stay loaded, so
+     * they can still be read and written: the log is opened again when a value is written.
+     */
+    @Override
+    public synchronized void disposePrefer() {
+        final ExecutorService executor = this.executor;
+
+        this.executor = null;
+
+        if (executor != null) {
+            // do not interrupt: a running compaction waits for the lock
+            executor.shutdown();
+        }
+
+        if (log != null) {
+            try {
+                log.getFD().sync();
+                log.close();
+            } catch (IOException e) {
+                // ignore: the changes are in the page cache
+            }
+
+            log = null;
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // BOOLEAN
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public boolean getBoolean(Enum key, boolean defaultValue) {
+        final Object value = getValue(key);
+
+        return value == null ? defaultValue : (Boolean) value;
+    }
+
+    @Override
+    public void putBoolean(Enum key, boolean value) {
+        putValue(key, value);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // FLOAT
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public float getFloat(Enum key, float defaultValue) {
+        final Object value = getValue(key);
+
+        return value == null ? defaultValue : (Float) value;
+    }
+
+    @Override
+    public void putFloat(Enum key, float value) {
+        putValue(key, value);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // INTEGER
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public int getInteger(Enum key, int defaultValue) {
+        final Object value = getValue(key);
+
+        return value == null ? defaultValue : (Integer) value;
+    }
+
+    @Override
+    public void putInteger(Enum key, int value) {
+        putValue(key, value);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // LONG
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public long getLong(Enum key, long defaultValue) {
+        final Object value = getValue(key);
+
+        return value == null ? defaultValue : (Long) value;
+    }
+
+    @Override
+    public void putLong(Enum key, long value) {
+        putValue(key, value);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // STRING
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public String getString(Enum key, String defaultValue) {
+        final Object value = getValue(key);
+
+        return value == null ? defaultValue : (String) value;
+    }
+
+    @Override
+    public void putString(Enum key, String value) {
+        putValue(key, value);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // EDITOR
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public PreferEditor edit() {
+        return new LogFileEditor();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Writes the current values to a new snapshot and clears the log. Blocks writes while it is
+     * running; reads are not blocked.
+     */
+    public synchronized void compact() {
+        compactionScheduled.set(false);
+
+        load();
+
+        if (logLength == 0) {
+            return;
+        }
+
+        final File temporary = new File(snapshotFile.getPath() + ".tmp");
+
+        try {
+            final FileOutputStream output = new FileOutputStream(temporary);
+
+            try {
+                writeSnapshot(output);
+                output.getFD().sync();
+            } finally {
+                output.close();
+            }
+
+            if (!temporary.renameTo(snapshotFile)) {
+                throw new IOException("Could not replace snapshot: " + snapshotFile);
+            }
+
+            // a crash before this point replays the complete log on top of the new snapshot,
+            // which results in the same values
+            openLog().setLength(0);
+
+            logLength = 0;
+            logKeyIds.clear();
+            effectiveCompactionThreshold = compactionThreshold;
+        } catch (IOException e) {
+            throw new PreferStorageException("Could not compact the log: " + logFile, e);
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PROTECTED METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the current value of the key.
+     *
+     * @param key The Pref key.
+     * @return The current value, or null if it is not stored.
+     */
+    protected Object getValue(Enum key) {
+        checkNotNull(key, "Pref key can not be null");
+
+        if (!loaded) {
+            synchronized (this) {
+                load();
+            }
+        }
+
+        return values.get(PreferKeySerializer.serializeKey(key));
+    }
+
+    /**
+     * Appends the value to the log and notifies the listener, if the value changed.
+     *
+     * @param key   The Pref key.
+     * @param value The new value: null removes the value.
+     */
+    protected void putValue(Enum key, Object value) {
+        checkNotNull(key, "Pref key can not be null");
+
+        final List<String> changed;
+
+        synchronized (this) {
+            changed = append(Collections.singletonMap(
+                    PreferKeySerializer.serializeKey(key), value), false);
+        }
+
+        notifyChanged(changed);
+    }
+
+    /**
+     * Appends the changed values to the log in one write and updates the current values. More than
+     * one changed value is written as a batch, so a crash during the write discards all of them.
+     * Must be called while holding the lock.
+     *
+     * @param changes The new values by serialized key: null removes the value.
+     * @param sync    Whether to force the log to the storage device.
+     * @return The serialized keys of the changed values.
+     */
+    protected List<String> append(Map<String, Object> changes, boolean sync) {
+        load();
+
+        final List<String> changed = new ArrayList<>(changes.size());
+        final List<String> newKeys = new ArrayList<>();
+        final RecordBuffer buffer = recordBuffer;
+
+        buffer.beginBatch();
+
+        for (Map.Entry<String, Object> entry : changes.entrySet()) {
+            final Object current = values.get(entry.getKey());
+            final Object value = entry.getValue();
+
+            if (current == null ? value == null : current.equals(value)) {
+                continue;
+            }
+
+            Integer keyId = logKeyIds.get(entry.getKey());
+
+            if (keyId == null) {
+                keyId = logKeyIds.size();
+                logKeyIds.put(entry.getKey(), keyId);
+                newKeys.add(entry.getKey());
+
+                buffer.putKey(entry.getKey());
+            }
+
+            buffer.putValue(keyId, value);
+            changed.add(entry.getKey());
+        }
+
+        if (changed.isEmpty()) {
+            return changed;
+        }
+
+        final int offset = changed.size() > 1 ? buffer.endBatch() : BATCH_RECORD_SIZE;
+
+        try {
+            final RandomAccessFile log = openLog();
+            log.seek(logLength);
+            log.write(buffer.bytes, offset, buffer.length - offset);
+
+            if (sync) {
+                log.getFD().sync();
+            }
+        } catch (IOException e) {
+            // forget the key ids that were not written
+            logKeyIds.keySet().removeAll(newKeys);
+
+            throw new PreferStorageException("Could not append to the log: " + logFile, e);
+        }
+
+        logLength += buffer.length - offset;
+
+        for (String serializedKey : changed) {
+            final Object value = changes.get(serializedKey);
+
+            if (value == null) {
+                values.remove(serializedKey);
+            } else {
+                values.put(serializedKey, value);
+            }
+        }
+
+        if (logLength > effectiveCompactionThreshold) {
+            scheduleCompaction();
+        }
+
+        return changed;
+    }
+
+    /**
+     * Replays the snapshot and the log, if the values are not loaded yet. Must be called while
+     * holding the lock.
+     */
+    protected void load() {
+        if (loaded) {
+            return;
+        }
+
+        try {
+            values.clear();
+            logKeyIds.clear();
+
+            replay(snapshotFile, null);
+            logLength = replay(logFile, logKeyIds);
+
+            // remove the incomplete record of a crash, so the next record is appended after the
+            // last complete one
+            final RandomAccessFile log = openLog();
+
+            if (log.length() > logLength) {
+                log.setLength(logLength);
+            }
+        } catch (IOException e) {
+            throw new PreferLoadException(e);
+        }
+
+        loaded = true;
+    }
+
+    /**
+     * Reads the records of the file as a stream and applies them to the current values, until the
+     * end of the file or the first incomplete or corrupt record. The records of a batch are only
+     * applied when the batch is complete.
+     *
+     * @param file   The file to replay.
+     * @param keyIds Collects the key ids of the file, or null.
+     * @return The length of the complete records.
+     * @throws IOException when the file could not be read.
+     */
+    protected long replay(File file, Map<String, Integer> keyIds) throws IOException {
+        final DataInputStream input;
+
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        } catch (FileNotFoundException e) {
+            return 0;
+        }
+
+        final List<String> keys = new ArrayList<>();
+        final Map<String, Object> changes = new HashMap<>();
+        final CRC32 crc = new CRC32();
+        byte[] payload = new byte[256];
+        long length = 0;
+        long completeLength = 0;
+        int batchRecords = 0;
+        int batchKeys = 0;
+
+        try {
+            while (true) {
+                final int payloadLength = input.readInt();
+                final int checksum = input.readInt();
+
+                if (payloadLength <= 0 || payloadLength > MAX_PAYLOAD_LENGTH) {
+                    break;
+                }
+
+                if (payload.length < payloadLength) {
+                    payload = new byte[Math.max(payloadLength, payload.length * 2)];
+                }
+
+                input.readFully(payload, 0, payloadLength);
+
+                crc.reset();
+                crc.update(payload, 0, payloadLength);
+
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+
+                length += RECORD_HEADER_SIZE + payloadLength;
+
+                if (payload[0] == TAG_BATCH) {
+                    // batches are not nested
+                    if (batchRecords > 0 || payloadLength != 5) {
+                        break;
+                    }
+
+                    batchRecords = getInt(payload, 1);
+                    batchKeys = keys.size();
+
+                    if (batchRecords <= 0) {
+                        break;
+                    }
+
+                    continue;
+                }
+
+                if (!apply(payload, payloadLength, keys, changes)) {
+                    break;
+                }
+
+                if (batchRecords > 0) {
+                    batchRecords--;
+                }
+
+                if (batchRecords == 0) {
+                    for (Map.Entry<String, Object> entry : changes.entrySet()) {
+                        if (entry.getValue() == null) {
+                            values.remove(entry.getKey());
+                        } else {
+                            values.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+
+                    changes.clear();
+                    completeLength = length;
+                }
+            }
+        } catch (EOFException e) {
+            // incomplete record
+        } finally {
+            input.close();
+        }
+
+        // discard the key definitions of an incomplete batch
+        if (batchRecords > 0) {
+            keys.subList(batchKeys, keys.size()).clear();
+        }
+
+        if (keyIds != null) {
+            for (int i = 0; i < keys.size(); i++) {
+                keyIds.put(keys.get(i), i);
+            }
+        }
+
+        return completeLength;
+    }
+
+    /**
+     * Applies a record payload: a key definition is added to the keys, a value to the changes.
+     *
+     * @param payload The record payload.
+     * @param length  The payload length.
+     * @param keys    The serialized keys of the file, by key id.
+     * @param changes The changed values by serialized key: null removes the value.
+     * @return Whether the payload is valid.
+     */
+    protected boolean apply(byte[] payload, int length, List<String> keys,
+                            Map<String, Object> changes) {
+        final byte tag = payload[0];
+
+        if (tag == TAG_KEY) {
+            keys.add(new String(payload, 1, length - 1, UTF_8).intern());
+            return true;
+        }
+
+        if (length < 5) {
+            return false;
+        }
+
+        final int keyId = getInt(payload, 1);
+
+        if (keyId < 0 || keyId >= keys.size()) {
+            return false;
+        }
+
+        final String serializedKey = keys.get(keyId);
+
+        switch (tag) {
+            case TAG_BOOLEAN:
+                changes.put(serializedKey, payload[5] != 0);
+                return length == 6;
+            case TAG_FLOAT:
+                changes.put(serializedKey, Float.intBitsToFloat(getInt(payload, 5)));
+                return length == 9;
+            case TAG_INTEGER:
+                changes.put(serializedKey, getInt(payload, 5));
+                return length == 9;
+            case TAG_LONG:
+                changes.put(serializedKey, ((long) getInt(payload, 5) << 32) |
+                        (getInt(payload, 9) & 0xFFFFFFFFL));
+                return length == 13;
+            case TAG_STRING:
+                changes.put(serializedKey, new String(payload, 5, length - 5, UTF_8));
+                return true;
+            case TAG_REMOVE:
+                changes.put(serializedKey, null);
+                return length == 5;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Writes the key definitions and current values as records. Must be called while holding the
+     * lock.
+     *
+     * @param output The snapshot output.
+     * @throws IOException when the snapshot could not be written.
+     */
+    protected void writeSnapshot(FileOutputStream output) throws IOException {
+        final RecordBuffer buffer = new RecordBuffer();
+        int keyId = 0;
+
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            buffer.putKey(entry.getKey());
+            buffer.putValue(keyId++, entry.getValue());
+
+            if (buffer.length > 8192) {
+                output.write(buffer.bytes, 0, buffer.length);
+                buffer.reset();
+            }
+        }
+
+        output.write(buffer.bytes, 0, buffer.length);
+    }
+
+    /**
+     * Returns the opened log file, and opens it if necessary. Must be called while holding the
+     * lock.
+     *
+     * @return The opened log file.
+     * @throws IOException when the log could not be opened.
+     */
+    protected RandomAccessFile openLog() throws IOException {
+        if (log == null) {
+            log = new RandomAccessFile(logFile, "rw");
+        }
+
+        return log;
+    }
+
+    /**
+     * Schedules a compaction if the log exceeds the threshold and one is not scheduled yet. When
+     * the compaction fails, the log is left as it is and the compaction is retried when the log
+     * has doubled in size. Must be called while holding the lock.
+     */
+    protected void scheduleCompaction() {
+        final ExecutorService executor = this.executor;
+
+        if (executor != null && logLength > effectiveCompactionThreshold &&
+                compactionScheduled.compareAndSet(false, true)) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (LogFilePreferHelper.this) {
+                        // disposed while queued: do not open the closed log again
+                        if (LogFilePreferHelper.this.executor != executor) {
+                            compactionScheduled.set(false);
+                            return;
+                        }
+
+                        try {
+                            compact();
+                        } catch (RuntimeException e) {
+                            // ignore, e.g. a storage or load exception: the log still contains all
+                            // changes
+                            effectiveCompactionThreshold =
+                                    2 * Math.max(effectiveCompactionThreshold, logLength);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Notifies the listener that the values of the keys changed.
+     *
+     * @param serializedKeys The serialized keys of the changed values.
+     */
+    protected void notifyChanged(List<String> serializedKeys) {
+        for (int i = 0; i < serializedKeys.size(); i++) {
+            onChangeListener.onStoredValueChanged(serializedKeys.get(i));
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PRIVATE METHODS
+    //----------------------------------------------------------------------------------------------
+
+    private static int getInt(byte[] bytes, int offset) {
+        return (bytes[offset] << 24) | ((bytes[offset + 1] & 0xFF) << 16) |
+                ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // INNER CLASSES
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Growable buffer that encodes records.
+     */
+    static final class RecordBuffer {
+
+        final CRC32 crc = new CRC32();
+        byte[] bytes = new byte[256];
+        int length = 0;
+        int records = 0;
+
+        void reset() {
+            length = 0;
+            records = 0;
+        }
+
+        /**
+         * Resets the buffer and reserves room for a batch record at its start.
+         */
+        void beginBatch() {
+            length = BATCH_RECORD_SIZE;
+            records = 0;
+        }
+
+        /**
+         * Encodes the batch record in the reserved room, with the number of records after it.
+         *
+         * @return The offset of the bytes to write.
+         */
+        int endBatch() {
+            final int end = length;
+            final int count = records;
+
+            length = 0;
+
+            final int start = begin(5);
+
+            putByte(TAG_BATCH);
+            putInt(count);
+            end(start);
+
+            length = end;
+            records = count;
+            return 0;
+        }
+
+        /**
+         * Encodes a key definition record: its key id is the number of keys defined before it.
+         *
+         * @param serializedKey The serialized key.
+         */
+        void putKey(String serializedKey) {
+            final byte[] keyBytes = serializedKey.getBytes(UTF_8);
+            final int start = begin(1 + keyBytes.length);
+
+            putByte(TAG_KEY);
+            putBytes(keyBytes);
+            end(start);
+        }
+
+        /**
+         * Encodes a value record.
+         *
+         * @param keyId The key id.
+         * @param value The value: null removes the value.
+         */
+        void putValue(int keyId, Object value) {
+            final byte[] stringBytes = value instanceof String ?
+                    ((String) value).getBytes(UTF_8) : null;
+
+            if (stringBytes != null) {
+                checkArgument(5 + stringBytes.length <= MAX_PAYLOAD_LENGTH,
+                        "String value is too long");
+            }
+
+            final int start = begin(13 + (stringBytes == null ? 0 : stringBytes.length));
+
+            if (value == null) {
+                putByte(TAG_REMOVE);
+                putInt(keyId);
+            } else if (value instanceof Boolean) {
+                putByte(TAG_BOOLEAN);
+                putInt(keyId);
+                putByte((Boolean) value ? 1 : 0);
+            } else if (value instanceof Float) {
+                putByte(TAG_FLOAT);
+                putInt(keyId);
+                putInt(Float.floatToIntBits((Float) value));
+            } else if (value instanceof Integer) {
+                putByte(TAG_INTEGER);
+                putInt(keyId);
+                putInt((Integer) value);
+            } else if (value instanceof Long) {
+                putByte(TAG_LONG);
+                putInt(keyId);
+                putInt((int) ((Long) value >>> 32));
+                putInt((int) (long) (Long) value);
+            } else {
+                putByte(TAG_STRING);
+                putInt(keyId);
+                putBytes(stringBytes);
+            }
+
+            end(start);
+        }
+
+        private int begin(int maxPayloadLength) {
+            final int required = length + RECORD_HEADER_SIZE + maxPayloadLength;
+
+            if (bytes.length < required) {
+                final byte[] grown = new byte[Math.max(required, bytes.length * 2)];
+                System.arraycopy(bytes, 0, grown, 0, length);
+                bytes = grown;
+            }
+
+            final int start = length;
+            length += RECORD_HEADER_SIZE;
+            return start;
+        }
+
+        private void end(int start) {
+            final int payloadLength = length - start - RECORD_HEADER_SIZE;
+
+            crc.reset();
+            crc.update(bytes, start + RECORD_HEADER_SIZE, payloadLength);
+
+            final int end = length;
+            length = start;
+            putInt(payloadLength);
+            putInt((int) crc.getValue());
+            length = end;
+            records++;
+        }
+
+        private void putByte(int value) {
+            bytes[length++] = (byte) value;
+        }
+
+        private void putBytes(byte[] value) {
+            System.arraycopy(value, 0, bytes, length, value.length);
+            length += value.length;
+        }
+
+        private void putInt(int value) {
+            bytes[length++] = (byte) (value >>> 24);
+            bytes[length++] = (byte) (value >>> 16);
+            bytes[length++] = (byte) (value >>> 8);
+            bytes[length++] = (byte) value;
+        }
+
+    }
+
+    /**
+     * Collects the changes and appends them in one write, as a batch that is replayed all or none.
+     */
+    class LogFileEditor implements PreferEditor {
+
+        final Map<String, Object> changes = new LinkedHashMap<>();
+
+        @Override
+        public PreferEditor putBoolean(Enum key, boolean value) {
+            return put(key, value);
+        }
+
+        @Override
+        public PreferEditor putFloat(Enum key, float value) {
+            return put(key, value);
+        }
+
+        @Override
+        public PreferEditor putInteger(Enum key, int value) {
+            return put(key, value);
+        }
+
+        @Override
+        public PreferEditor putLong(Enum key, long value) {
+            return put(key, value);
+        }
+
+        @Override
+        public PreferEditor putString(Enum key, String value) {
+            return put(key, value);
+        }
+
+        @Override
+        public void apply() {
+            store(false);
+        }
+
+        @Override
+        public boolean commit() {
+            try {
+                store(true);
+            } catch (PreferStorageException e) {
+                return false;
+            }
+
+            return true;
+        }
+
+        PreferEditor put(Enum key, Object value) {
+            changes.put(PreferKeySerializer.serializeKey(
+                    checkNotNull(key, "Pref key can not be null")), value);
+            return this;
+        }
+
+        void store(boolean sync) {
+            final List<String> changed;
+
+            synchronized (LogFilePreferHelper.this) {
+                changed = append(changes, sync);
+            }
+
+            notifyChanged(changed);
+        }
+
+    }
+
+}
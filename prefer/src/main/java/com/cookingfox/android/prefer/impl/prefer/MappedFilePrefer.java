@@ -0,0 +1,55 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import com.cookingfox.android.prefer.api.prefer.Prefer;
+
+import java.io.File;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Memory-mapped file implementation of {@link Prefer}.
+ *
+ * @see MappedFilePreferHelper
+ */
+public class MappedFilePrefer extends AndroidPrefer {
+
+    /**
+     * The file to store the preferences in.
+     */
+    protected final File file;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Create a new Prefer instance.
+     *
+     * @param file The file to store the preferences in, e.g. in `Context#getFilesDir()`. It is
+     *             created when it does not exist yet.
+     */
+    public MappedFilePrefer(File file) {
+        this.file = checkNotNull(file, "File can not be null");
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PROTECTED METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a memory-mapped file helper. The change listener notifies the Prefer listeners
+     * through {@link #handlePrefChanged(String)}.
+     *
+     * @return The helper instance.
+     */
+    @Override
+    protected PreferHelper createHelper() {
+        return new MappedFilePreferHelper(file, new OnStoredValueChanged() {
+            @Override
+            public void onStoredValueChanged(String serializedKey) {
+                handlePrefChanged(serializedKey);
+            }
+        });
+    }
+
+}
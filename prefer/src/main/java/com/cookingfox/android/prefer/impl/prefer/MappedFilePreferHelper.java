@@ -0,0 +1,1111 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import com.cookingfox.android.prefer.api.exception.PreferLoadException;
+import com.cookingfox.android.prefer.api.exception.PreferStorageException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * {@link PreferHelper} that stores the preferences in a memory-mapped file, instead of rewriting
+ * an XML file on every change like {@link android.content.SharedPreferences}.
+ * <p>
+ * Every preference has a fixed-size slot record in the file, which is located through an index by
+ * enum key class and ordinal. Primitive values are updated in place with a single aligned 8-byte
+ * write, so reading and writing them costs about as much as a memory access. Strings are appended
+ * as separate data records, after which the slot's pointer is updated: a crashed process leaves
+ * either the old or the new string. New slot records only become visible once their length is
+ * written, which is the last write of an append.
+ * <p>
+ * Replaced strings leave unused data in the file, which is compacted when more than half of it is
+ * unused: when the file is opened, or before a write. Changes are written to the page cache
+ * immediately, which survives a crash of the process; {@link PreferEditor#commit()} also forces
+ * them to the storage device.
+ * <p>
+ * The changes of an editor are written while holding the lock, so other threads see them
+ * together, but every value is written separately: a crash while they are written can leave only
+ * some of them stored.
+ * <p>
+ * Reading a value with another type than it was stored with throws a {@link ClassCastException},
+ * like {@link android.content.SharedPreferences} does.
+ */
+public class MappedFilePreferHelper implements PreferHelper {
+
+    /**
+     * Identifies a Prefer mapped file: "PRFR".
+     */
+    protected static final int MAGIC = 0x50524652;
+
+    /**
+     * Version of the file layout.
+     */
+    protected static final int VERSION = 1;
+
+    /**
+     * File header: magic (4), version (4), reserved (8).
+     */
+    protected static final int HEADER_SIZE = 16;
+
+    /**
+     * Record header: length (4), kind (1), value type (1), key length (2).
+     */
+    protected static final int RECORD_HEADER_SIZE = 8;
+
+    /**
+     * Initial size of the mapped file, which is doubled when it is full.
+     */
+    protected static final int INITIAL_CAPACITY = 4096;
+
+    protected static final byte KIND_SLOT = 1;
+    protected static final byte KIND_DATA = 2;
+
+    protected static final byte TYPE_BOOLEAN = 1;
+    protected static final byte TYPE_FLOAT = 2;
+    protected static final byte TYPE_INTEGER = 3;
+    protected static final byte TYPE_LONG = 4;
+    protected static final byte TYPE_STRING = 5;
+
+    /**
+     * String pointer of a null string.
+     */
+    protected static final long NO_DATA = -1;
+
+    /**
+     * Slot index value of a key that has no slot.
+     */
+    protected static final int NO_SLOT = -1;
+
+    /**
+     * Encoding of keys and strings.
+     */
+    protected static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * The mapped file.
+     */
+    protected final File file;
+
+    /**
+     * Listener that is executed when a stored value changes.
+     */
+    protected final OnStoredValueChanged onChangeListener;
+
+    /**
+     * The mapped file and its slot index: null until the file is opened, and replaced when the
+     * file is compacted.
+     */
+    protected volatile Layout layout;
+
+    /**
+     * The opened file: only used to grow and force the mapping.
+     */
+    protected RandomAccessFile randomAccessFile;
+
+    /**
+     * Offset of the first unused byte: new records are appended here.
+     */
+    protected int end;
+
+    /**
+     * Number of bytes used by records that were replaced.
+     */
+    protected int unusedBytes;
+
+    /**
+     * The used size in bytes, from which the file is compacted when more than half of it is
+     * unused. Doubled when a compaction fails, so it is not retried on every write.
+     */
+    protected int compactionThreshold = INITIAL_CAPACITY;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Create a new helper. The file is created when it does not exist yet.
+     *
+     * @param file     The file to store the preferences in.
+     * @param listener Listener that is executed when a stored value changes.
+     */
+    public MappedFilePreferHelper(File file, OnStoredValueChanged listener) {
+        this.file = checkNotNull(file, "File can not be null");
+        this.onChangeListener = checkNotNull(listener, "Listener can not be null");
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // LIFECYCLE
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Opens and maps the file, if it is not opened yet.
+     */
+    @Override
+    public void initializePrefer() {
+        open();
+    }
+
+    /**
+     * Forces the changes to the storage device and closes the file. The mapping stays valid, so
+     * values can still be read and written: the file is opened again when it needs to grow.
+     */
+    @Override
+    public synchronized void disposePrefer() {
+        if (layout == null) {
+            return;
+        }
+
+        try {
+            force();
+        } finally {
+            closeFile();
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // BOOLEAN
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public boolean getBoolean(Enum key, boolean defaultValue) {
+        final Layout layout = getLayout();
+        final int slot = findSlot(layout, key);
+
+        return slot == NO_SLOT ? defaultValue : readValue(layout, slot, TYPE_BOOLEAN) != 0;
+    }
+
+    @Override
+    public void putBoolean(Enum key, boolean value) {
+        putValue(key, TYPE_BOOLEAN, value ? 1 : 0);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // FLOAT
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public float getFloat(Enum key, float defaultValue) {
+        final Layout layout = getLayout();
+        final int slot = findSlot(layout, key);
+
+        return slot == NO_SLOT ? defaultValue :
+                Float.intBitsToFloat((int) readValue(layout, slot, TYPE_FLOAT));
+    }
+
+    @Override
+    public void putFloat(Enum key, float value) {
+        putValue(key, TYPE_FLOAT, Float.floatToIntBits(value));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // INTEGER
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public int getInteger(Enum key, int defaultValue) {
+        final Layout layout = getLayout();
+        final int slot = findSlot(layout, key);
+
+        return slot == NO_SLOT ? defaultValue : (int) readValue(layout, slot, TYPE_INTEGER);
+    }
+
+    @Override
+    public void putInteger(Enum key, int value) {
+        putValue(key, TYPE_INTEGER, value);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // LONG
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public long getLong(Enum key, long defaultValue) {
+        final Layout layout = getLayout();
+        final int slot = findSlot(layout, key);
+
+        return slot == NO_SLOT ? defaultValue : readValue(layout, slot, TYPE_LONG);
+    }
+
+    @Override
+    public void putLong(Enum key, long value) {
+        putValue(key, TYPE_LONG, value);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // STRING
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public String getString(Enum key, String defaultValue) {
+        final Layout layout = getLayout();
+        final int slot = findSlot(layout, key);
+
+        if (slot == NO_SLOT) {
+            return defaultValue;
+        }
+
+        final long pointer = readValue(layout, slot, TYPE_STRING);
+        final DecodedString decoded = layout.decodedStrings.get(key);
+
+        if (decoded != null && decoded.pointer == pointer) {
+            return decoded.value;
+        }
+
+        final String value = readData(layout.buffer, pointer);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        layout.decodedStrings.put(key, new DecodedString(pointer, value));
+
+        return value;
+    }
+
+    @Override
+    public void putString(Enum key, String value) {
+        final boolean changed;
+
+        synchronized (this) {
+            compactIfUnused();
+            changed = writeString(key, value);
+        }
+
+        if (changed) {
+            notifyChanged(key);
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // EDITOR
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public PreferEditor edit() {
+        return new MappedFileEditor();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PROTECTED METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Opens and maps the file, and builds the slot index. Compacts the file first when more than
+     * half of it is unused.
+     */
+    protected synchronized void open() {
+        if (layout != null) {
+            return;
+        }
+
+        try {
+            mapFile();
+        } catch (IOException e) {
+            closeFile();
+
+            throw new PreferLoadException(e);
+        }
+
+        compactIfUnused();
+    }
+
+    /**
+     * Returns the current layout, and opens the file first if it is not opened yet.
+     *
+     * @return The current layout.
+     */
+    protected Layout getLayout() {
+        final Layout current = layout;
+
+        if (current != null) {
+            return current;
+        }
+
+        open();
+
+        return layout;
+    }
+
+    /**
+     * Opens the file, maps it and reads the slot records.
+     *
+     * @throws IOException when the file could not be opened or is not a Prefer mapped file.
+     */
+    protected void mapFile() throws IOException {
+        randomAccessFile = new RandomAccessFile(file, "rw");
+
+        final long length = randomAccessFile.length();
+
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("File is too large: " + file);
+        }
+
+        final int capacity = Math.max(INITIAL_CAPACITY, (int) length);
+        final MappedByteBuffer mapped = randomAccessFile.getChannel()
+                .map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+
+        // new file: write header
+        if (mapped.getInt(0) == 0 && mapped.getInt(4) == 0) {
+            mapped.putInt(4, VERSION);
+            mapped.putInt(0, MAGIC);
+        } else if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+            throw new IOException("Not a Prefer mapped file: " + file);
+        }
+
+        index(mapped);
+    }
+
+    /**
+     * Reads the slot records of the mapped file into a new layout, which replaces the current one.
+     * Must be called while holding the lock.
+     *
+     * @param mapped The mapped file.
+     */
+    protected void index(MappedByteBuffer mapped) {
+        final Layout indexed = new Layout(mapped);
+        final int used = scan(mapped, indexed.slotsBySerializedKey);
+        int liveBytes = 0;
+
+        for (int slot : indexed.slotsBySerializedKey.values()) {
+            liveBytes += mapped.getInt(slot);
+
+            if (mapped.get(slot + 5) == TYPE_STRING) {
+                final long pointer = mapped.getLong(valueOffset(mapped, slot));
+
+                // validated by the scan
+                if (pointer != NO_DATA) {
+                    liveBytes += mapped.getInt((int) pointer);
+                }
+            }
+        }
+
+        end = used;
+        unusedBytes = used - HEADER_SIZE - liveBytes;
+        layout = indexed;
+    }
+
+    /**
+     * Reads the records and adds the slots to the index, where later slots of the same key replace
+     * earlier ones. Stops at the first incomplete or invalid record, e.g. one that was being
+     * written when the process crashed, and clears the rest of the file. A string slot that does
+     * not point to a complete data record is set to a null string.
+     *
+     * @param mapped               The mapped file.
+     * @param slotsBySerializedKey The index to add the slots to.
+     * @return The offset of the first unused byte.
+     */
+    protected int scan(ByteBuffer mapped, Map<String, Integer> slotsBySerializedKey) {
+        final int capacity = mapped.capacity();
+        int offset = HEADER_SIZE;
+
+        while (offset + RECORD_HEADER_SIZE <= capacity) {
+            final int length = mapped.getInt(offset);
+
+            if (length < RECORD_HEADER_SIZE + 8 || length % 8 != 0 || length > capacity - offset) {
+                break;
+            }
+
+            final byte kind = mapped.get(offset + 4);
+
+            if (kind == KIND_SLOT) {
+                final int keyLength = mapped.getShort(offset + 6);
+
+                if (keyLength <= 0 || length != slotLength(keyLength)) {
+                    break;
+                }
+
+                final byte[] keyBytes = new byte[keyLength];
+                final ByteBuffer duplicate = mapped.duplicate();
+                duplicate.position(offset + RECORD_HEADER_SIZE);
+                duplicate.get(keyBytes);
+
+                slotsBySerializedKey.put(new String(keyBytes, UTF_8).intern(), offset);
+            } else if (kind != KIND_DATA ||
+                    length != dataLength(mapped.getInt(offset + RECORD_HEADER_SIZE))) {
+                break;
+            }
+
+            offset += length;
+        }
+
+        for (int slot : slotsBySerializedKey.values()) {
+            if (mapped.get(slot + 5) == TYPE_STRING) {
+                final int valueOffset = valueOffset(mapped, slot);
+                final long pointer = mapped.getLong(valueOffset);
+
+                if (pointer != NO_DATA && !isData(mapped, pointer, offset)) {
+                    mapped.putLong(valueOffset, NO_DATA);
+                }
+            }
+        }
+
+        // clear the remains of an incomplete record, so they are not read as part of a new one
+        for (int i = offset; i + 8 <= capacity; i += 8) {
+            if (mapped.getLong(i) != 0) {
+                mapped.putLong(i, 0);
+            }
+        }
+
+        return offset;
+    }
+
+    /**
+     * Compacts the file if more than half of it is unused. When the compaction fails, the file is
+     * left as it is and the compaction is retried once the used size has doubled. Must be called
+     * while holding the lock, before a write determines its offsets.
+     */
+    protected void compactIfUnused() {
+        if (end <= compactionThreshold || unusedBytes <= (end - HEADER_SIZE) / 2) {
+            return;
+        }
+
+        try {
+            compact();
+
+            compactionThreshold = INITIAL_CAPACITY;
+        } catch (IOException e) {
+            // ignore: the file and its mapping are unchanged
+            compactionThreshold = (int) Math.min(Integer.MAX_VALUE, 2L * end);
+        }
+    }
+
+    /**
+     * Rewrites the file with only the current values, through a temporary file that replaces the
+     * file when it is complete. The current mapping is only replaced when the file is replaced, so
+     * it stays in use when the compaction fails. Must be called while holding the lock.
+     *
+     * @throws IOException when the file could not be rewritten.
+     */
+    protected void compact() throws IOException {
+        final Layout source = layout;
+        final ByteBuffer sourceBuffer = source.buffer;
+        final ByteBuffer compacted = ByteBuffer.allocate(end);
+        compacted.putInt(0, MAGIC);
+        compacted.putInt(4, VERSION);
+
+        int offset = HEADER_SIZE;
+
+        for (Map.Entry<String, Integer> entry : source.slotsBySerializedKey.entrySet()) {
+            final int slot = entry.getValue();
+            final byte type = sourceBuffer.get(slot + 5);
+            long value = sourceBuffer.getLong(valueOffset(sourceBuffer, slot));
+
+            if (type == TYPE_STRING) {
+                final String string = readData(sourceBuffer, value);
+
+                if (string == null) {
+                    value = NO_DATA;
+                } else {
+                    value = offset;
+                    offset = putData(compacted, offset, string.getBytes(UTF_8));
+                }
+            }
+
+            offset = putSlot(compacted, offset, entry.getKey().getBytes(UTF_8), type, value);
+        }
+
+        final File temporary = new File(file.getPath() + ".tmp");
+        final RandomAccessFile compactedFile = new RandomAccessFile(temporary, "rw");
+        final MappedByteBuffer mapped;
+
+        try {
+            compactedFile.setLength(0);
+            compactedFile.write(compacted.array(), 0, offset);
+            compactedFile.getFD().sync();
+
+            // map before replacing the file, so a replaced file can always be used
+            mapped = compactedFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.max(INITIAL_CAPACITY, offset));
+
+            if (!temporary.renameTo(file)) {
+                throw new IOException("Could not replace file: " + file);
+            }
+        } catch (IOException e) {
+            try {
+                compactedFile.close();
+            } catch (IOException closeException) {
+                // ignore: the temporary file is deleted
+            }
+
+            //noinspection ResultOfMethodCallIgnored
+            temporary.delete();
+
+            throw e;
+        }
+
+        // reads of the previous layout can still use its mapping
+        closeFile();
+        randomAccessFile = compactedFile;
+
+        index(mapped);
+    }
+
+    /**
+     * Closes the file, if it is opened.
+     */
+    protected void closeFile() {
+        if (randomAccessFile != null) {
+            try {
+                randomAccessFile.close();
+            } catch (IOException e) {
+                // ignore: the mapping stays valid
+            }
+
+            randomAccessFile = null;
+        }
+    }
+
+    /**
+     * Returns the offset of the key's slot record in the layout, or {@link #NO_SLOT} if it has no
+     * slot.
+     *
+     * @param layout The layout to find the slot in.
+     * @param key    The Pref key.
+     * @return The slot offset, or {@link #NO_SLOT}.
+     */
+    protected int findSlot(Layout layout, Enum key) {
+        checkNotNull(key, "Pref key can not be null");
+
+        int[] slots = layout.slotsByKeyClass.get(key.getDeclaringClass());
+
+        if (slots == null) {
+            slots = createSlots(layout, key.getDeclaringClass());
+        }
+
+        return slots[key.ordinal()];
+    }
+
+    /**
+     * Creates the slot index of the enum key class.
+     *
+     * @param layout   The layout to create the index in.
+     * @param keyClass The enum key class.
+     * @return The slot offsets, indexed by ordinal.
+     */
+    protected synchronized int[] createSlots(Layout layout, Class<?> keyClass) {
+        int[] slots = layout.slotsByKeyClass.get(keyClass);
+
+        if (slots == null) {
+            final String[] serializedKeys = PreferKeySerializer.getSerializedKeys(keyClass);
+            slots = new int[serializedKeys.length];
+
+            for (int i = 0; i < serializedKeys.length; i++) {
+                final Integer slot = layout.slotsBySerializedKey.get(serializedKeys[i]);
+                slots[i] = slot == null ? NO_SLOT : slot;
+            }
+
+            layout.slotsByKeyClass.put(keyClass, slots);
+        }
+
+        return slots;
+    }
+
+    /**
+     * Reads the value of the slot.
+     *
+     * @param layout The layout that contains the slot.
+     * @param slot   The slot offset.
+     * @param type   The expected value type.
+     * @return The stored value.
+     * @throws ClassCastException when the value was stored with another type.
+     */
+    protected long readValue(Layout layout, int slot, byte type) {
+        // the slot was found first, so this mapping contains it
+        final ByteBuffer mapped = layout.buffer;
+
+        if (mapped.get(slot + 5) != type) {
+            throw new ClassCastException("Pref value was stored with another type");
+        }
+
+        return mapped.getLong(valueOffset(mapped, slot));
+    }
+
+    /**
+     * Stores the value and notifies the listener if the value changed.
+     *
+     * @param key   The Pref key.
+     * @param type  The value type.
+     * @param value The value to store.
+     */
+    protected void putValue(Enum key, byte type, long value) {
+        final boolean changed;
+
+        synchronized (this) {
+            compactIfUnused();
+            changed = writeValue(key, type, value);
+        }
+
+        if (changed) {
+            notifyChanged(key);
+        }
+    }
+
+    /**
+     * Writes the value in place, or appends a new slot when the key has no slot for this type yet.
+     * Must be called while holding the lock.
+     *
+     * @param key   The Pref key.
+     * @param type  The value type.
+     * @param value The value to store.
+     * @return Whether the stored value changed.
+     */
+    protected boolean writeValue(Enum key, byte type, long value) {
+        final Layout layout = getLayout();
+        final int slot = findSlot(layout, key);
+
+        if (slot != NO_SLOT && layout.buffer.get(slot + 5) == type) {
+            final ByteBuffer mapped = layout.buffer;
+            final int valueOffset = valueOffset(mapped, slot);
+
+            if (mapped.getLong(valueOffset) == value) {
+                return false;
+            }
+
+            if (type == TYPE_STRING) {
+                unusedBytes += dataLengthAt(mapped.getLong(valueOffset));
+            }
+
+            mapped.putLong(valueOffset, value);
+
+            return true;
+        }
+
+        final String serializedKey = PreferKeySerializer.serializeKey(key);
+        final byte[] keyBytes = serializedKey.getBytes(UTF_8);
+        final int offset = end;
+
+        ensureCapacity(slotLength(keyBytes.length));
+
+        final ByteBuffer mapped = layout.buffer;
+
+        end = putSlot(mapped, offset, keyBytes, type, value);
+
+        if (slot != NO_SLOT) {
+            if (mapped.get(slot + 5) == TYPE_STRING) {
+                unusedBytes += dataLengthAt(mapped.getLong(valueOffset(mapped, slot)));
+            }
+
+            unusedBytes += mapped.getInt(slot);
+        }
+
+        layout.slotsBySerializedKey.put(serializedKey, offset);
+
+        // publish the slot in a copy of the index
+        final int[] slots = layout.slotsByKeyClass.get(key.getDeclaringClass()).clone();
+        slots[key.ordinal()] = offset;
+        layout.slotsByKeyClass.put(key.getDeclaringClass(), slots);
+
+        return true;
+    }
+
+    /**
+     * Appends the string and points the key's slot to it. Must be called while holding the lock.
+     *
+     * @param key   The Pref key.
+     * @param value The string to store.
+     * @return Whether the stored value changed.
+     */
+    protected boolean writeString(Enum key, String value) {
+        final Layout layout = getLayout();
+        final int slot = findSlot(layout, key);
+
+        if (slot != NO_SLOT && layout.buffer.get(slot + 5) == TYPE_STRING) {
+            final ByteBuffer mapped = layout.buffer;
+            final String current = readData(mapped, mapped.getLong(valueOffset(mapped, slot)));
+
+            if (current == null ? value == null : current.equals(value)) {
+                return false;
+            }
+        }
+
+        long pointer = NO_DATA;
+
+        if (value != null) {
+            final byte[] bytes = value.getBytes(UTF_8);
+
+            ensureCapacity(dataLength(bytes.length));
+
+            pointer = end;
+            end = putData(layout.buffer, end, bytes);
+        }
+
+        return writeValue(key, TYPE_STRING, pointer);
+    }
+
+    /**
+     * Maps a larger part of the file if the record does not fit. Must be called while holding the
+     * lock.
+     *
+     * @param recordLength The length of the record to append.
+     */
+    protected void ensureCapacity(int recordLength) {
+        final Layout layout = this.layout;
+        final int capacity = layout.buffer.capacity();
+
+        if (recordLength <= capacity - end) {
+            return;
+        }
+
+        int newCapacity = capacity * 2;
+
+        while (recordLength > newCapacity - end) {
+            newCapacity *= 2;
+        }
+
+        try {
+            if (randomAccessFile == null) {
+                randomAccessFile = new RandomAccessFile(file, "rw");
+            }
+
+            layout.buffer = randomAccessFile.getChannel()
+                    .map(FileChannel.MapMode.READ_WRITE, 0, newCapacity);
+        } catch (IOException e) {
+            throw new PreferStorageException("Could not grow the mapped file: " + file, e);
+        }
+    }
+
+    /**
+     * Forces the mapped changes to the storage device.
+     *
+     * @throws PreferStorageException when the changes could not be forced.
+     */
+    protected void force() {
+        final Layout current = layout;
+
+        if (current != null) {
+            try {
+                current.buffer.force();
+            } catch (Exception e) {
+                // not declared, but an I/O error can be thrown
+                throw new PreferStorageException("Could not force the mapped file: " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Notifies the listener that the value of the key changed.
+     *
+     * @param key The Pref key.
+     */
+    protected void notifyChanged(Enum key) {
+        onChangeListener.onStoredValueChanged(PreferKeySerializer.serializeKey(key));
+    }
+
+    /**
+     * Returns the length of the data record that the string pointer points to, or 0 for a null
+     * string. Must be called while holding the lock.
+     *
+     * @param pointer The string pointer.
+     * @return The data record length, or 0.
+     */
+    protected int dataLengthAt(long pointer) {
+        return pointer == NO_DATA ? 0 : layout.buffer.getInt((int) pointer);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // RECORD LAYOUT
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the length of a slot record: header, key padded to 8 bytes, value.
+     *
+     * @param keyLength The length of the UTF-8 encoded key.
+     * @return The slot record length.
+     */
+    static int slotLength(int keyLength) {
+        return RECORD_HEADER_SIZE + align(keyLength) + 8;
+    }
+
+    /**
+     * Returns the length of a data record: header, data length, data padded to 8 bytes.
+     *
+     * @param dataLength The length of the data.
+     * @return The data record length.
+     */
+    static int dataLength(int dataLength) {
+        return RECORD_HEADER_SIZE + align(4 + dataLength);
+    }
+
+    /**
+     * Returns the offset of the slot's value.
+     *
+     * @param mapped The mapped file.
+     * @param slot   The slot offset.
+     * @return The value offset.
+     */
+    static int valueOffset(ByteBuffer mapped, int slot) {
+        return slot + mapped.getInt(slot) - 8;
+    }
+
+    /**
+     * Writes a slot record. The length is written last, which makes the record visible.
+     *
+     * @param mapped   The mapped file.
+     * @param offset   The offset to write the record at.
+     * @param keyBytes The UTF-8 encoded serialized key.
+     * @param type     The value type.
+     * @param value    The value.
+     * @return The offset after the record.
+     */
+    static int putSlot(ByteBuffer mapped, int offset, byte[] keyBytes, byte type, long value) {
+        final int length = slotLength(keyBytes.length);
+        final ByteBuffer duplicate = mapped.duplicate();
+        duplicate.position(offset + RECORD_HEADER_SIZE);
+        duplicate.put(keyBytes);
+
+        mapped.put(offset + 4, KIND_SLOT);
+        mapped.put(offset + 5, type);
+        mapped.putShort(offset + 6, (short) keyBytes.length);
+        mapped.putLong(offset + length - 8, value);
+        mapped.putInt(offset, length);
+
+        return offset + length;
+    }
+
+    /**
+     * Writes a data record. The length is written last, which makes the record visible.
+     *
+     * @param mapped The mapped file.
+     * @param offset The offset to write the record at.
+     * @param data   The data.
+     * @return The offset after the record.
+     */
+    static int putData(ByteBuffer mapped, int offset, byte[] data) {
+        final ByteBuffer duplicate = mapped.duplicate();
+        duplicate.position(offset + RECORD_HEADER_SIZE + 4);
+        duplicate.put(data);
+
+        mapped.put(offset + 4, KIND_DATA);
+        mapped.putInt(offset + RECORD_HEADER_SIZE, data.length);
+        mapped.putInt(offset, dataLength(data.length));
+
+        return offset + dataLength(data.length);
+    }
+
+    /**
+     * Returns whether the pointer points to a complete data record, which ends before the end
+     * offset.
+     *
+     * @param mapped  The mapped file.
+     * @param pointer The string pointer.
+     * @param end     The offset of the first unused byte.
+     * @return Whether the pointer points to a data record.
+     */
+    static boolean isData(ByteBuffer mapped, long pointer, int end) {
+        if (pointer < HEADER_SIZE || pointer > end - RECORD_HEADER_SIZE - 4) {
+            return false;
+        }
+
+        final int offset = (int) pointer;
+        final int length = mapped.getInt(offset + RECORD_HEADER_SIZE);
+
+        return mapped.get(offset + 4) == KIND_DATA && length >= 0 &&
+                length <= end - offset - RECORD_HEADER_SIZE - 4 &&
+                mapped.getInt(offset) == dataLength(length);
+    }
+
+    /**
+     * Decodes the string that the pointer points to.
+     *
+     * @param mapped  The mapped file.
+     * @param pointer The string pointer.
+     * @return The decoded string, or null for a null string or an invalid pointer.
+     */
+    static String readData(ByteBuffer mapped, long pointer) {
+        if (!isData(mapped, pointer, mapped.capacity())) {
+            return null;
+        }
+
+        final byte[] bytes = new byte[mapped.getInt((int) pointer + RECORD_HEADER_SIZE)];
+        final ByteBuffer duplicate = mapped.duplicate();
+        duplicate.position((int) pointer + RECORD_HEADER_SIZE + 4);
+        duplicate.get(bytes);
+
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Rounds up to a multiple of 8.
+     *
+     * @param length The length to round up.
+     * @return The aligned length.
+     */
+    static int align(int length) {
+        return (length + 7) & ~7;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // INNER CLASSES
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * The mapped file and the slot index of its records. A compaction moves the records to a new
+     * layout, so a read that uses one layout throughout is consistent.
+     */
+    static final class Layout {
+
+        /**
+         * The mapped file contents: replaced by a larger mapping when the file grows, after which
+         * the previous mapping is still valid for the existing records.
+         */
+        volatile MappedByteBuffer buffer;
+
+        /**
+         * Slot record offsets by serialized key: only used while holding the lock.
+         */
+        final Map<String, Integer> slotsBySerializedKey = new HashMap<>();
+
+        /**
+         * Slot record offsets by enum key class, indexed by ordinal. An array is replaced by an
+         * updated copy when a slot is added, so it can be read without locking.
+         */
+        final Map<Class, int[]> slotsByKeyClass = new ConcurrentHashMap<>();
+
+        /**
+         * Decoded strings by key, so reading an unchanged string does not allocate.
+         */
+        final Map<Enum, DecodedString> decodedStrings = new ConcurrentHashMap<>();
+
+        Layout(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+    }
+
+    /**
+     * A decoded string and the pointer it was read from.
+     */
+    static final class DecodedString {
+        final long pointer;
+        final String value;
+
+        DecodedString(long pointer, String value) {
+            this.pointer = pointer;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Collects the changes and writes them while holding the lock, so other threads see them
+     * together. The writes are not atomic across a crash: see the class doc.
+     */
+    class MappedFileEditor implements PreferEditor {
+
+        /**
+         * The changed values, which are written in the order they were put.
+         */
+        final Map<Enum, Object> values = new LinkedHashMap<>();
+
+        @Override
+        public PreferEditor putBoolean(Enum key, boolean value) {
+            values.put(checkNotNull(key, "Pref key can not be null"), value);
+            return this;
+        }
+
+        @Override
+        public PreferEditor putFloat(Enum key, float value) {
+            values.put(checkNotNull(key, "Pref key can not be null"), value);
+            return this;
+        }
+
+        @Override
+        public PreferEditor putInteger(Enum key, int value) {
+            values.put(checkNotNull(key, "Pref key can not be null"), value);
+            return this;
+        }
+
+        @Override
+        public PreferEditor putLong(Enum key, long value) {
+            values.put(checkNotNull(key, "Pref key can not be null"), value);
+            return this;
+        }
+
+        @Override
+        public PreferEditor putString(Enum key, String value) {
+            // wrap, so a null string is distinguished from the other types
+            values.put(checkNotNull(key, "Pref key can not be null"), new StringValue(value));
+            return this;
+        }
+
+        @Override
+        public void apply() {
+            final List<Enum> changed = new ArrayList<>();
+
+            try {
+                synchronized (MappedFilePreferHelper.this) {
+                    compactIfUnused();
+
+                    for (Map.Entry<Enum, Object> entry : values.entrySet()) {
+                        if (write(entry.getKey(), entry.getValue())) {
+                            changed.add(entry.getKey());
+                        }
+                    }
+                }
+            } finally {
+                // also when a write failed: the values before it are stored
+                for (Enum key : changed) {
+                    notifyChanged(key);
+                }
+            }
+        }
+
+        @Override
+        public boolean commit() {
+            try {
+                apply();
+                force();
+
+                return true;
+            } catch (PreferStorageException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Writes the value. Must be called while holding the lock.
+         *
+         * @param key   The Pref key.
+         * @param value The value.
+         * @return Whether the stored value changed.
+         */
+        boolean write(Enum key, Object value) {
+            if (value instanceof Boolean) {
+                return writeValue(key, TYPE_BOOLEAN, (Boolean) value ? 1 : 0);
+            } else if (value instanceof Float) {
+                return writeValue(key, TYPE_FLOAT, Float.floatToIntBits((Float) value));
+            } else if (value instanceof Integer) {
+                return writeValue(key, TYPE_INTEGER, (Integer) value);
+            } else if (value instanceof Long) {
+                return writeValue(key, TYPE_LONG, (Long) value);
+            }
+
+            return writeString(key, ((StringValue) value).value);
+        }
+
+    }
+
+    /**
+     * A string value of an editor, which can be null.
+     */
+    static final class StringValue {
+        final String value;
+
+        StringValue(String value) {
+            this.value = value;
+        }
+    }
+
+}
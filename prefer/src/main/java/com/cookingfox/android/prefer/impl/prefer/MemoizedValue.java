@@ -0,0 +1,38 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import com.cookingfox.android.prefer.api.pref.LazyValue;
+import com.cookingfox.android.prefer.api.pref.Pref;
+
+/**
+ * {@link LazyValue} that reads the Pref's value on the first request. Created per change, so all
+ * listeners of one Pref share one read.
+ *
+ * @param <V> Indicates the Pref's value type.
+ */
+final class MemoizedValue<V> implements LazyValue<V> {
+
+    /**
+     * The Pref whose value changed: cleared once the value is read.
+     */
+    private Pref<?, V> pref;
+
+    /**
+     * The value, once it is read.
+     */
+    private V value;
+
+    MemoizedValue(Pref<?, V> pref) {
+        this.pref = pref;
+    }
+
+    @Override
+    public synchronized V get() {
+        if (pref != null) {
+            value = pref.getValue();
+            pref = null;
+        }
+
+        return value;
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+/**
+ * Listener for {@link PreferHelper} implementations that manage their own storage, which is
+ * executed when a stored value changes.
+ */
+public interface OnStoredValueChanged {
+
+    /**
+     * Called after the stored value of a preference was changed.
+     *
+     * @param serializedKey The serialized key of the changed preference.
+     * @see PreferKeySerializer#serializeKey(Enum)
+     */
+    void onStoredValueChanged(String serializedKey);
+
+}
@@ -0,0 +1,68 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+/**
+ * Collects typed preference changes, which are stored together by {@link #apply()} or
+ * {@link #commit()}.
+ *
+ * @see PreferHelper#edit()
+ */
+public interface PreferEditor {
+
+    /**
+     * Sets the new value of the preference with the provided key.
+     *
+     * @param key   The unique preference enum key.
+     * @param value The new value to set.
+     * @return The editor, for chaining.
+     */
+    PreferEditor putBoolean(Enum key, boolean value);
+
+    /**
+     * Sets the new value of the preference with the provided key.
+     *
+     * @param key   The unique preference enum key.
+     * @param value The new value to set.
+     * @return The editor, for chaining.
+     */
+    PreferEditor putFloat(Enum key, float value);
+
+    /**
+     * Sets the new value of the preference with the provided key.
+     *
+     * @param key   The unique preference enum key.
+     * @param value The new value to set.
+     * @return The editor, for chaining.
+     */
+    PreferEditor putInteger(Enum key, int value);
+
+    /**
+     * Sets the new value of the preference with the provided key.
+     *
+     * @param key   The unique preference enum key.
+     * @param value The new value to set.
+     * @return The editor, for chaining.
+     */
+    PreferEditor putLong(Enum key, long value);
+
+    /**
+     * Sets the new value of the preference with the provided key.
+     *
+     * @param key   The unique preference enum key.
+     * @param value The new value to set.
+     * @return The editor, for chaining.
+     */
+    PreferEditor putString(Enum key, String value);
+
+    /**
+     * Stores the changes asynchronously.
+     */
+    void apply();
+
+    /**
+     * Stores the changes synchronously.
+     *
+     * @return Whether the changes were stored successfully.
+     */
+    boolean commit();
+
+}
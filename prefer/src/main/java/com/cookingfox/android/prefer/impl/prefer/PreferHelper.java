@@ -7,4 +7,12 @@ import com.cookingfox.android.prefer.api.prefer.TypedPrefer;
  * Wrapper interface for relevant Prefer operations.
  */
 public interface PreferHelper extends PreferLifecycle, TypedPrefer {
+
+    /**
+     * Creates an editor for storing multiple preference values at once.
+     *
+     * @return A new editor.
+     */
+    PreferEditor edit();
+
 }
@@ -1,5 +1,8 @@
 package com.cookingfox.android.prefer.impl.prefer;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Provides (de-)serialization functionality for enum keys.
  */
@@ -10,6 +13,12 @@ public class PreferKeySerializer {
      */
     protected static final String ENUM_KEY_SEPARATOR = "-";
 
+    /**
+     * Serialized keys per enum key class, indexed by the key's ordinal. A table is created once per
+     * key class, so serializing a key does not allocate.
+     */
+    private static final Map<Class, String[]> serializedKeys = new ConcurrentHashMap<>();
+
     /**
      * Not supposed to be instantiated.
      */
@@ -24,9 +33,26 @@ public class PreferKeySerializer {
      * @throws ClassNotFoundException when the enum class could not be found.
      */
     public static Enum deserializeKey(String serialized) throws ClassNotFoundException {
-        String[] split = serialized.split(ENUM_KEY_SEPARATOR);
+        final int separatorIndex = serialized.indexOf(ENUM_KEY_SEPARATOR);
+        final String className = separatorIndex < 0 ?
+                serialized : serialized.substring(0, separatorIndex);
+
+        Class keyClass = Class.forName(className);
 
-        return Enum.valueOf((Class) Class.forName(split[0]), split[1]);
+        // constant with a body: use declaring enum class
+        if (!keyClass.isEnum() && keyClass.getSuperclass() != null &&
+                keyClass.getSuperclass().isEnum()) {
+            keyClass = keyClass.getSuperclass();
+        }
+
+        if (separatorIndex < 0) {
+            throw new IllegalArgumentException("No enum name in serialized key: " + serialized);
+        }
+
+        @SuppressWarnings("unchecked")
+        final Enum key = Enum.valueOf(keyClass, serialized.substring(separatorIndex + 1));
+
+        return key;
     }
 
     /**
@@ -36,7 +62,38 @@ public class PreferKeySerializer {
      * @return Serialized string.
      */
     public static String serializeKey(Enum key) {
-        return key.getClass().getName() + ENUM_KEY_SEPARATOR + key.name();
+        return getSerializedKeys(key.getDeclaringClass())[key.ordinal()];
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PACKAGE-PRIVATE METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the serialized keys for all constants of the enum key class, indexed by ordinal. The
+     * returned array is shared and must not be modified.
+     *
+     * @param keyClass The enum key class.
+     * @return The serialized keys, indexed by ordinal.
+     */
+    static String[] getSerializedKeys(Class<?> keyClass) {
+        String[] keys = serializedKeys.get(keyClass);
+
+        if (keys == null) {
+            final Object[] constants = keyClass.getEnumConstants();
+            keys = new String[constants.length];
+
+            for (int i = 0; i < constants.length; i++) {
+                // use the constant's class (not the declaring class) for compatibility with
+                // previously stored keys
+                keys[i] = (constants[i].getClass().getName() + ENUM_KEY_SEPARATOR +
+                        ((Enum) constants[i]).name()).intern();
+            }
+
+            serializedKeys.put(keyClass, keys);
+        }
+
+        return keys;
     }
 
 }
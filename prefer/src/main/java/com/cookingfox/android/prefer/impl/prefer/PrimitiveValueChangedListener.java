@@ -0,0 +1,167 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import com.cookingfox.android.prefer.api.pref.OnValueChanged;
+import com.cookingfox.android.prefer.api.pref.Pref;
+import com.cookingfox.android.prefer.api.pref.typed.OnBooleanValueChanged;
+import com.cookingfox.android.prefer.api.pref.typed.OnFloatValueChanged;
+import com.cookingfox.android.prefer.api.pref.typed.OnIntegerValueChanged;
+import com.cookingfox.android.prefer.api.pref.typed.OnLongValueChanged;
+
+/**
+ * Stores a primitive value changed listener with the value changed listeners: the dispatch lets
+ * the first one read the primitive value from the helper once, and passes the value to all
+ * primitive listeners of the Pref in order of registration, as the bits of a long, so the value is
+ * not boxed.
+ *
+ * @param <V> Indicates the Pref's (boxed) value type.
+ */
+abstract class PrimitiveValueChangedListener<V> implements OnValueChanged<V>, ListenerWrapper {
+
+    /**
+     * Reads the Pref's value as a primitive.
+     *
+     * @param helper The helper to read the value from.
+     * @param pref   The Pref whose value changed.
+     * @return The bits of the value.
+     */
+    abstract long read(PreferHelper helper, Pref<?, V> pref);
+
+    /**
+     * Notifies the wrapped listener of the value.
+     *
+     * @param bits The bits of the value, as returned by {@link #read(PreferHelper, Pref)}.
+     */
+    abstract void onValueChanged(long bits);
+
+    /**
+     * Equal to a wrapper of the same type and listener, so it is not added twice.
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o != null && o.getClass() == getClass() &&
+                getWrappedListener().equals(((ListenerWrapper) o).getWrappedListener());
+    }
+
+    @Override
+    public int hashCode() {
+        return getWrappedListener().hashCode();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TYPED LISTENERS
+    //----------------------------------------------------------------------------------------------
+
+    static final class BooleanListener extends PrimitiveValueChangedListener<Boolean> {
+        final OnBooleanValueChanged listener;
+
+        BooleanListener(OnBooleanValueChanged listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public Object getWrappedListener() {
+            return listener;
+        }
+
+        @Override
+        long read(PreferHelper helper, Pref<?, Boolean> pref) {
+            return helper.getBoolean(pref.getKey(), pref.getDefaultValue()) ? 1 : 0;
+        }
+
+        @Override
+        void onValueChanged(long bits) {
+            listener.onValueChanged(bits != 0);
+        }
+
+        @Override
+        public void onValueChanged(Boolean value) {
+            listener.onValueChanged(value);
+        }
+    }
+
+    static final class FloatListener extends PrimitiveValueChangedListener<Float> {
+        final OnFloatValueChanged listener;
+
+        FloatListener(OnFloatValueChanged listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public Object getWrappedListener() {
+            return listener;
+        }
+
+        @Override
+        long read(PreferHelper helper, Pref<?, Float> pref) {
+            return Float.floatToRawIntBits(
+                    helper.getFloat(pref.getKey(), pref.getDefaultValue()));
+        }
+
+        @Override
+        void onValueChanged(long bits) {
+            listener.onValueChanged(Float.intBitsToFloat((int) bits));
+        }
+
+        @Override
+        public void onValueChanged(Float value) {
+            listener.onValueChanged(value);
+        }
+    }
+
+    static final class IntegerListener extends PrimitiveValueChangedListener<Integer> {
+        final OnIntegerValueChanged listener;
+
+        IntegerListener(OnIntegerValueChanged listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public Object getWrappedListener() {
+            return listener;
+        }
+
+        @Override
+        long read(PreferHelper helper, Pref<?, Integer> pref) {
+            return helper.getInteger(pref.getKey(), pref.getDefaultValue());
+        }
+
+        @Override
+        void onValueChanged(long bits) {
+            listener.onValueChanged((int) bits);
+        }
+
+        @Override
+        public void onValueChanged(Integer value) {
+            listener.onValueChanged(value);
+        }
+    }
+
+    static final class LongListener extends PrimitiveValueChangedListener<Long> {
+        final OnLongValueChanged listener;
+
+        LongListener(OnLongValueChanged listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public Object getWrappedListener() {
+            return listener;
+        }
+
+        @Override
+        long read(PreferHelper helper, Pref<?, Long> pref) {
+            return helper.getLong(pref.getKey(), pref.getDefaultValue());
+        }
+
+        @Override
+        void onValueChanged(long bits) {
+            listener.onValueChanged(bits);
+        }
+
+        @Override
+        public void onValueChanged(Long value) {
+            listener.onValueChanged(value);
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * Executor that runs its tasks one at a time and in order of submission, on a wrapped executor
+ * that may use multiple threads.
+ */
+final class SerialExecutor implements Executor {
+
+    /**
+     * The wrapped executor.
+     */
+    private final Executor executor;
+
+    /**
+     * Tasks that are not run yet.
+     */
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The number of submitted tasks that are not finished: a drain is scheduled when it becomes
+     * non-zero.
+     */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    /**
+     * Runs the queued tasks until there are none left.
+     */
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            boolean finished = false;
+
+            try {
+                do {
+                    final Runnable task = tasks.poll();
+
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        // a failing task should not stop the next tasks
+                        report(e);
+                    }
+                } while (wip.decrementAndGet() != 0);
+
+                finished = true;
+            } finally {
+                // an error thrown by a task: the next tasks are run by a new drain
+                if (!finished) {
+                    release();
+                }
+            }
+        }
+    };
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    SerialExecutor(Executor executor) {
+        this.executor = checkNotNull(executor, "Executor can not be null");
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // IMPLEMENTATION: Executor
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Queues the task and schedules a drain if none is running.
+     *
+     * @param task The task to run.
+     * @throws java.util.concurrent.RejectedExecutionException when the wrapped executor rejects
+     *                                                         the drain: the task is not queued.
+     */
+    @Override
+    public void execute(Runnable task) {
+        tasks.offer(checkNotNull(task, "Task can not be null"));
+
+        if (wip.getAndIncrement() == 0) {
+            try {
+                executor.execute(drain);
+            } catch (RuntimeException e) {
+                // the drain did not start: remove the task, so a next task schedules a new drain
+                tasks.remove(task);
+                release();
+
+                throw e;
+            }
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PACKAGE METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Reports an exception to the uncaught exception handler of the current thread, without
+     * throwing it.
+     *
+     * @param e The exception to report.
+     */
+    static void report(RuntimeException e) {
+        final Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PRIVATE METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Releases a task that was removed or finished outside a drain. When tasks were submitted in
+     * the meantime, a new drain is scheduled for them; when the wrapped executor rejects it too,
+     * they are dropped one by one, so the executor never waits for a drain that does not run.
+     */
+    private void release() {
+        while (wip.decrementAndGet() != 0) {
+            try {
+                executor.execute(drain);
+                return;
+            } catch (RuntimeException e) {
+                tasks.poll();
+            }
+        }
+    }
+
+}
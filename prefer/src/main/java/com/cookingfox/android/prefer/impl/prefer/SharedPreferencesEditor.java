@@ -0,0 +1,116 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import android.content.SharedPreferences;
+import android.content.SharedPreferences.Editor;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * {@link PreferEditor} implementation that collects the changes in one {@link SharedPreferences}
+ * {@link Editor}. Values are stored like {@link SharedPreferencesHelper} does.
+ */
+public class SharedPreferencesEditor implements PreferEditor {
+
+    /**
+     * The shared preferences editor.
+     */
+    protected final Editor editor;
+
+    /**
+     * Whether integer, long and float values are stored natively, instead of as strings.
+     */
+    protected final boolean nativeNumberStorage;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Create a new editor.
+     *
+     * @param editor              The shared preferences editor.
+     * @param nativeNumberStorage Whether integer, long and float values should be stored natively
+     *                            instead of as strings.
+     */
+    public SharedPreferencesEditor(Editor editor, boolean nativeNumberStorage) {
+        this.editor = checkNotNull(editor, "Editor can not be null");
+        this.nativeNumberStorage = nativeNumberStorage;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // IMPLEMENTATION: PreferEditor
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public PreferEditor putBoolean(Enum key, boolean value) {
+        // boolean is stored without conversion to string
+        editor.putBoolean(serializeKey(key), value);
+
+        return this;
+    }
+
+    @Override
+    public PreferEditor putFloat(Enum key, float value) {
+        if (nativeNumberStorage) {
+            editor.putFloat(serializeKey(key), value);
+        } else {
+            editor.putString(serializeKey(key), String.valueOf(value));
+        }
+
+        return this;
+    }
+
+    @Override
+    public PreferEditor putInteger(Enum key, int value) {
+        if (nativeNumberStorage) {
+            editor.putInt(serializeKey(key), value);
+        } else {
+            editor.putString(serializeKey(key), String.valueOf(value));
+        }
+
+        return this;
+    }
+
+    @Override
+    public PreferEditor putLong(Enum key, long value) {
+        if (nativeNumberStorage) {
+            editor.putLong(serializeKey(key), value);
+        } else {
+            editor.putString(serializeKey(key), String.valueOf(value));
+        }
+
+        return this;
+    }
+
+    @Override
+    public PreferEditor putString(Enum key, String value) {
+        editor.putString(serializeKey(key), String.valueOf(value));
+
+        return this;
+    }
+
+    @Override
+    public void apply() {
+        editor.apply();
+    }
+
+    @Override
+    public boolean commit() {
+        return editor.commit();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PROTECTED METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns a serialized string representation of the enum key.
+     *
+     * @param key The enum value.
+     * @return Serialized string.
+     */
+    protected String serializeKey(Enum key) {
+        return PreferKeySerializer.serializeKey(checkNotNull(key, "Pref key can not be null"));
+    }
+
+}
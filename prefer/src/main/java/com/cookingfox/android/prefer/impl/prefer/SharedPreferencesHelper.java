@@ -4,6 +4,12 @@ import android.content.SharedPreferences;
 import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
 import android.preference.EditTextPreference;
 
+import com.cookingfox.android.prefer.api.pref.Pref;
+import com.cookingfox.android.prefer.api.pref.typed.StringPref;
+
+import java.util.List;
+import java.util.Map;
+
 import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
 
 /**
@@ -16,6 +22,11 @@ public class SharedPreferencesHelper implements PreferHelper {
      */
     protected final OnSharedPreferenceChangeListener onChangeListener;
 
+    /**
+     * Whether integer, long and float values are stored natively, instead of as strings.
+     */
+    protected final boolean nativeNumberStorage;
+
     /**
      * References the actual shared preferences instance.
      */
@@ -27,8 +38,27 @@ public class SharedPreferencesHelper implements PreferHelper {
 
     public SharedPreferencesHelper(SharedPreferences preferences,
                                    OnSharedPreferenceChangeListener listener) {
+        this(preferences, listener, false);
+    }
+
+    /**
+     * Create a new helper.
+     *
+     * @param preferences         The shared preferences instance.
+     * @param listener            Listener that is executed when a SharedPreference value changes.
+     * @param nativeNumberStorage Whether integer, long and float values should be stored natively
+     *                            using e.g. {@link SharedPreferences#getInt(String, int)}, instead
+     *                            of as strings. Values that were previously stored as strings are
+     *                            migrated the first time they are read. Note that an
+     *                            {@link EditTextPreference} can only edit values that are stored as
+     *                            strings.
+     */
+    public SharedPreferencesHelper(SharedPreferences preferences,
+                                   OnSharedPreferenceChangeListener listener,
+                                   boolean nativeNumberStorage) {
         this.onChangeListener = checkNotNull(listener, "Listener can not be null");
         this.preferences = checkNotNull(preferences, "Preferences can not be null");
+        this.nativeNumberStorage = nativeNumberStorage;
     }
 
     //----------------------------------------------------------------------------------------------
@@ -69,12 +99,37 @@ public class SharedPreferencesHelper implements PreferHelper {
 
     @Override
     public float getFloat(Enum key, float defaultValue) {
-        return Float.parseFloat(getFromString(key, defaultValue));
+        final String stringKey = serializeKey(key);
+
+        if (nativeNumberStorage) {
+            try {
+                return preferences.getFloat(stringKey, defaultValue);
+            } catch (ClassCastException e) {
+                // stored as string: migrate to native storage
+                final float value = Float.parseFloat(preferences.getString(stringKey, null));
+
+                preferences.edit()
+                        .putFloat(stringKey, value)
+                        .apply();
+
+                return value;
+            }
+        }
+
+        final String stored = preferences.getString(stringKey, null);
+
+        return stored == null ? defaultValue : Float.parseFloat(stored);
     }
 
     @Override
     public void putFloat(Enum key, float value) {
-        putFromString(key, value);
+        if (nativeNumberStorage) {
+            preferences.edit()
+                    .putFloat(serializeKey(key), value)
+                    .apply();
+        } else {
+            putFromString(key, value);
+        }
     }
 
     //----------------------------------------------------------------------------------------------
@@ -83,12 +138,37 @@ public class SharedPreferencesHelper implements PreferHelper {
 
     @Override
     public int getInteger(Enum key, int defaultValue) {
-        return Integer.parseInt(getFromString(key, defaultValue));
+        final String stringKey = serializeKey(key);
+
+        if (nativeNumberStorage) {
+            try {
+                return preferences.getInt(stringKey, defaultValue);
+            } catch (ClassCastException e) {
+                // stored as string: migrate to native storage
+                final int value = Integer.parseInt(preferences.getString(stringKey, null));
+
+                preferences.edit()
+                        .putInt(stringKey, value)
+                        .apply();
+
+                return value;
+            }
+        }
+
+        final String stored = preferences.getString(stringKey, null);
+
+        return stored == null ? defaultValue : Integer.parseInt(stored);
     }
 
     @Override
     public void putInteger(Enum key, int value) {
-        putFromString(key, value);
+        if (nativeNumberStorage) {
+            preferences.edit()
+                    .putInt(serializeKey(key), value)
+                    .apply();
+        } else {
+            putFromString(key, value);
+        }
     }
 
     //----------------------------------------------------------------------------------------------
@@ -97,12 +177,37 @@ public class SharedPreferencesHelper implements PreferHelper {
 
     @Override
     public long getLong(Enum key, long defaultValue) {
-        return Long.parseLong(getFromString(key, defaultValue));
+        final String stringKey = serializeKey(key);
+
+        if (nativeNumberStorage) {
+            try {
+                return preferences.getLong(stringKey, defaultValue);
+            } catch (ClassCastException e) {
+                // stored as string: migrate to native storage
+                final long value = Long.parseLong(preferences.getString(stringKey, null));
+
+                preferences.edit()
+                        .putLong(stringKey, value)
+                        .apply();
+
+                return value;
+            }
+        }
+
+        final String stored = preferences.getString(stringKey, null);
+
+        return stored == null ? defaultValue : Long.parseLong(stored);
     }
 
     @Override
     public void putLong(Enum key, long value) {
-        putFromString(key, value);
+        if (nativeNumberStorage) {
+            preferences.edit()
+                    .putLong(serializeKey(key), value)
+                    .apply();
+        } else {
+            putFromString(key, value);
+        }
     }
 
     //----------------------------------------------------------------------------------------------
@@ -119,10 +224,111 @@ public class SharedPreferencesHelper implements PreferHelper {
         putFromString(key, value);
     }
 
+    //----------------------------------------------------------------------------------------------
+    // EDITOR
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public PreferEditor edit() {
+        return new SharedPreferencesEditor(preferences.edit(), nativeNumberStorage);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PRELOAD
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Reads the values of these Prefs at once from one {@link SharedPreferences#getAll()} snapshot,
+     * decoded like the typed getters with the default value of the Pref. A stored value that the
+     * getter would not decode as is, e.g. a number that is migrated to native storage or a value
+     * of another type, is left out, so it is read on its own.
+     *
+     * @param prefs The Prefs to read.
+     * @return The values in the order of the Prefs, boxed in the value type of the Pref, or null
+     * for a value that is left out.
+     */
+    public Object[] readAll(List<? extends Pref<?, ?>> prefs) {
+        final Map<String, ?> stored = preferences.getAll();
+        final Object[] values = new Object[prefs.size()];
+
+        for (int i = 0; i < values.length; i++) {
+            final Pref<?, ?> pref = prefs.get(i);
+
+            values[i] = decode(pref, stored.get(serializeKey(pref.getKey())));
+        }
+
+        return values;
+    }
+
     //----------------------------------------------------------------------------------------------
     // PROTECTED METHODS
     //----------------------------------------------------------------------------------------------
 
+    /**
+     * Decodes a value from a {@link SharedPreferences#getAll()} snapshot, like the typed getter for
+     * this Pref.
+     *
+     * @param pref   The Pref to decode the value for.
+     * @param stored The stored value, or null if no value is stored.
+     * @return The decoded value, or null if the getter would not decode the stored value as is.
+     */
+    protected Object decode(Pref<?, ?> pref, Object stored) {
+        final Object defaultValue = pref.getDefaultValue();
+
+        // the type of the default value is the value type, except for a null string
+        if (defaultValue instanceof String || (defaultValue == null && pref instanceof StringPref)) {
+            // see `getFromString`
+            return stored == null ? String.valueOf(defaultValue) :
+                    stored instanceof String ? stored : null;
+        } else if (defaultValue == null) {
+            return null;
+        } else if (stored == null) {
+            return defaultValue;
+        } else if (defaultValue instanceof Boolean) {
+            // boolean is stored without conversion to string
+            return stored instanceof Boolean ? stored : null;
+        } else if (defaultValue instanceof Float) {
+            return decodeNumber(stored, Float.class);
+        } else if (defaultValue instanceof Integer) {
+            return decodeNumber(stored, Integer.class);
+        } else if (defaultValue instanceof Long) {
+            return decodeNumber(stored, Long.class);
+        }
+
+        return null;
+    }
+
+    /**
+     * Decodes a stored number like the typed getters.
+     *
+     * @param stored      The stored value.
+     * @param numberClass The number type of the Pref.
+     * @return The decoded number, or null if the getter would not decode the stored value as is.
+     */
+    protected Object decodeNumber(Object stored, Class<? extends Number> numberClass) {
+        if (nativeNumberStorage) {
+            // stored as string: migrated by the getter
+            return numberClass.isInstance(stored) ? stored : null;
+        } else if (!(stored instanceof String)) {
+            return null;
+        }
+
+        final String string = (String) stored;
+
+        try {
+            if (numberClass == Float.class) {
+                return Float.parseFloat(string);
+            } else if (numberClass == Integer.class) {
+                return Integer.parseInt(string);
+            }
+
+            return Long.parseLong(string);
+        } catch (NumberFormatException e) {
+            // the getter reports the invalid value
+            return null;
+        }
+    }
+
     /**
      * Fetch the persisted value from the shared preferences. The {@link EditTextPreference} stores
      * user input (also numeric values) as strings, so it is more straightforward to assume here
@@ -12,6 +12,11 @@ import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
  */
 public class SharedPreferencesPrefer extends AndroidPrefer {
 
+    /**
+     * Whether integer, long and float values are stored natively, instead of as strings.
+     */
+    protected final boolean nativeNumberStorage;
+
     /**
      * References the actual shared preferences instance.
      */
@@ -22,21 +27,44 @@ public class SharedPreferencesPrefer extends AndroidPrefer {
     //----------------------------------------------------------------------------------------------
 
     public SharedPreferencesPrefer(SharedPreferences preferences) {
+        this(preferences, false);
+    }
+
+    /**
+     * Create a new Prefer instance.
+     *
+     * @param preferences         The shared preferences instance.
+     * @param nativeNumberStorage Whether integer, long and float values should be stored natively
+     *                            instead of as strings.
+     * @see SharedPreferencesHelper#SharedPreferencesHelper(SharedPreferences,
+     * OnSharedPreferenceChangeListener, boolean)
+     */
+    public SharedPreferencesPrefer(SharedPreferences preferences, boolean nativeNumberStorage) {
         this.preferences = checkNotNull(preferences, "Preferences can not be null");
+        this.nativeNumberStorage = nativeNumberStorage;
     }
 
     //----------------------------------------------------------------------------------------------
     // PROTECTED METHODS
     //----------------------------------------------------------------------------------------------
 
+    /**
+     * Creates a shared preferences helper, wrapped in a {@link CachingPreferHelper}. The change
+     * listener invalidates the cached values through {@link #handlePrefChanged(String)}.
+     *
+     * @return The helper instance.
+     */
     @Override
     protected PreferHelper createHelper() {
-        return new SharedPreferencesHelper(preferences, new OnSharedPreferenceChangeListener() {
+        final OnSharedPreferenceChangeListener listener = new OnSharedPreferenceChangeListener() {
             @Override
             public void onSharedPreferenceChanged(SharedPreferences ignored, String serializedKey) {
                 handlePrefChanged(serializedKey);
             }
-        });
+        };
+
+        return new CachingPreferHelper(
+                new SharedPreferencesHelper(preferences, listener, nativeNumberStorage));
     }
 
 }
@@ -0,0 +1,503 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.cookingfox.guava_preconditions.Preconditions.checkArgument;
+import static com.cookingfox.guava_preconditions.Preconditions.checkNotNull;
+
+/**
+ * {@link PreferHelper} decorator that delays writes: the latest value of a changed preference is
+ * kept in memory and served on read, and all changed values are stored using one
+ * {@link PreferEditor} after the flush interval, or when the helper is disposed. This reduces the
+ * storage writes for preferences that change very often, e.g. a scroll position.
+ * <p>
+ * Value changed listeners are notified when the values are flushed, which happens on a background
+ * thread. Writes are only delayed while the helper is initialized. A null string is not delayed,
+ * so it is read with the semantics of the wrapped helper, e.g. as the default value or as "null".
+ */
+public class WriteBehindPreferHelper implements PreferHelper {
+
+    /**
+     * The flush interval in milliseconds.
+     */
+    protected final long flushIntervalMs;
+
+    /**
+     * Whether a flush is scheduled.
+     */
+    protected final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    /**
+     * The wrapped helper.
+     */
+    protected final PreferHelper helper;
+
+    /**
+     * Values that are not stored yet, by Pref key.
+     */
+    protected final Map<Enum, PendingValue> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Orders the writes to the wrapped helper, so a flushed value never overwrites a newer one.
+     * Held instead of this helper's lock while writing, so the listeners that the wrapped helper
+     * notifies synchronously can put values.
+     */
+    protected final Object writeLock = new Object();
+
+    /**
+     * Executes the flushes: only set while initialized. Guarded by this helper's lock: values are
+     * stored directly once it is cleared, so a value is never kept after the final flush of
+     * {@link #disposePrefer()}.
+     */
+    protected ScheduledExecutorService executor;
+
+    //----------------------------------------------------------------------------------------------
+    // CONSTRUCTOR
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Create a new write-behind helper.
+     *
+     * @param helper        The helper to wrap.
+     * @param flushInterval The time to wait after a value changed, before it is stored.
+     * @param unit          The unit of the flush interval.
+     */
+    public WriteBehindPreferHelper(PreferHelper helper, long flushInterval, TimeUnit unit) {
+        checkArgument(flushInterval > 0, "Flush interval must be positive");
+
+        this.helper = checkNotNull(helper, "Helper can not be null");
+        this.flushIntervalMs = checkNotNull(unit, "Unit can not be null").toMillis(flushInterval);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // LIFECYCLE
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public void initializePrefer() {
+        helper.initializePrefer();
+
+        final ScheduledExecutorService created =
+                Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "Prefer-write-behind");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+
+        synchronized (this) {
+            executor = created;
+        }
+    }
+
+    @Override
+    public void disposePrefer() {
+        synchronized (this) {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+
+        // store the remaining values before the wrapped helper is disposed: values that are put
+        // from now on are stored directly
+        flush();
+
+        helper.disposePrefer();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // BOOLEAN
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public boolean getBoolean(Enum key, boolean defaultValue) {
+        final PendingValue value = pending.get(key);
+
+        if (value instanceof PendingBoolean) {
+            return ((PendingBoolean) value).value;
+        }
+
+        return helper.getBoolean(key, defaultValue);
+    }
+
+    @Override
+    public void putBoolean(Enum key, boolean value) {
+        if (!putPending(key, new PendingBoolean(value))) {
+            synchronized (writeLock) {
+                pending.remove(key);
+                helper.putBoolean(key, value);
+            }
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // FLOAT
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public float getFloat(Enum key, float defaultValue) {
+        final PendingValue value = pending.get(key);
+
+        if (value instanceof PendingFloat) {
+            return ((PendingFloat) value).value;
+        }
+
+        return helper.getFloat(key, defaultValue);
+    }
+
+    @Override
+    public void putFloat(Enum key, float value) {
+        if (!putPending(key, new PendingFloat(value))) {
+            synchronized (writeLock) {
+                pending.remove(key);
+                helper.putFloat(key, value);
+            }
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // INTEGER
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public int getInteger(Enum key, int defaultValue) {
+        final PendingValue value = pending.get(key);
+
+        if (value instanceof PendingInteger) {
+            return ((PendingInteger) value).value;
+        }
+
+        return helper.getInteger(key, defaultValue);
+    }
+
+    @Override
+    public void putInteger(Enum key, int value) {
+        if (!putPending(key, new PendingInteger(value))) {
+            synchronized (writeLock) {
+                pending.remove(key);
+                helper.putInteger(key, value);
+            }
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // LONG
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public long getLong(Enum key, long defaultValue) {
+        final PendingValue value = pending.get(key);
+
+        if (value instanceof PendingLong) {
+            return ((PendingLong) value).value;
+        }
+
+        return helper.getLong(key, defaultValue);
+    }
+
+    @Override
+    public void putLong(Enum key, long value) {
+        if (!putPending(key, new PendingLong(value))) {
+            synchronized (writeLock) {
+                pending.remove(key);
+                helper.putLong(key, value);
+            }
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // STRING
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public String getString(Enum key, String defaultValue) {
+        final PendingValue value = pending.get(key);
+
+        if (value instanceof PendingString) {
+            return ((PendingString) value).value;
+        }
+
+        return helper.getString(key, defaultValue);
+    }
+
+    @Override
+    public void putString(Enum key, String value) {
+        // a null string is stored directly, so it is read with the wrapped helper's semantics
+        if (value == null || !putPending(key, new PendingString(value))) {
+            synchronized (writeLock) {
+                pending.remove(key);
+                helper.putString(key, value);
+            }
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // EDITOR
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns an editor of the wrapped helper. The edited values replace the pending values of the
+     * same keys once the changes are stored.
+     *
+     * @return A new editor.
+     */
+    @Override
+    public PreferEditor edit() {
+        final PreferEditor editor = helper.edit();
+        final Set<Enum> keys = new HashSet<>();
+
+        return new PreferEditor() {
+            @Override
+            public PreferEditor putBoolean(Enum key, boolean value) {
+                editor.putBoolean(key, value);
+                keys.add(key);
+                return this;
+            }
+
+            @Override
+            public PreferEditor putFloat(Enum key, float value) {
+                editor.putFloat(key, value);
+                keys.add(key);
+                return this;
+            }
+
+            @Override
+            public PreferEditor putInteger(Enum key, int value) {
+                editor.putInteger(key, value);
+                keys.add(key);
+                return this;
+            }
+
+            @Override
+            public PreferEditor putLong(Enum key, long value) {
+                editor.putLong(key, value);
+                keys.add(key);
+                return this;
+            }
+
+            @Override
+            public PreferEditor putString(Enum key, String value) {
+                editor.putString(key, value);
+                keys.add(key);
+                return this;
+            }
+
+            @Override
+            public void apply() {
+                synchronized (writeLock) {
+                    final Map<Enum, PendingValue> replaced = getPending(keys);
+
+                    editor.apply();
+                    removePending(replaced);
+                }
+            }
+
+            @Override
+            public boolean commit() {
+                synchronized (writeLock) {
+                    final Map<Enum, PendingValue> replaced = getPending(keys);
+                    final boolean committed = editor.commit();
+
+                    removePending(replaced);
+                    return committed;
+                }
+            }
+        };
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PUBLIC METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Stores all pending values using one editor. The values are taken while holding this
+     * helper's lock, and stored without it.
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            final Map<Enum, PendingValue> values;
+
+            synchronized (this) {
+                flushScheduled.set(false);
+
+                if (pending.isEmpty()) {
+                    return;
+                }
+
+                values = new HashMap<>(pending);
+            }
+
+            final PreferEditor editor = helper.edit();
+
+            for (Map.Entry<Enum, PendingValue> entry : values.entrySet()) {
+                entry.getValue().put(editor, entry.getKey());
+            }
+
+            editor.apply();
+            removePending(values);
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PROTECTED METHODS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Keeps the value in memory and schedules a flush, if one is not scheduled yet. Locks, so the
+     * value can not be kept after {@link #disposePrefer()} did its final flush.
+     *
+     * @param key   The Pref key.
+     * @param value The pending value.
+     * @return Whether the value is kept: false when the helper is not initialized, in which case
+     * the value must be stored directly.
+     */
+    protected synchronized boolean putPending(Enum key, PendingValue value) {
+        checkNotNull(key, "Pref key can not be null");
+
+        if (executor == null) {
+            return false;
+        }
+
+        pending.put(key, value);
+
+        if (flushScheduled.compareAndSet(false, true)) {
+            executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            }, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the pending values of the keys.
+     *
+     * @param keys The Pref keys.
+     * @return The pending values by Pref key.
+     */
+    protected Map<Enum, PendingValue> getPending(Set<Enum> keys) {
+        final Map<Enum, PendingValue> values = new HashMap<>();
+
+        for (Enum key : keys) {
+            final PendingValue value = pending.get(key);
+
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Removes the pending values that were stored, and keeps the values that were changed in the
+     * meantime.
+     *
+     * @param values The stored values by Pref key.
+     */
+    protected void removePending(Map<Enum, PendingValue> values) {
+        for (Map.Entry<Enum, PendingValue> entry : values.entrySet()) {
+            pending.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // PENDING VALUES
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * A value that is not stored yet.
+     */
+    protected static abstract class PendingValue {
+
+        /**
+         * Adds the value to the editor.
+         *
+         * @param editor The editor to add the value to.
+         * @param key    The Pref key.
+         */
+        abstract void put(PreferEditor editor, Enum key);
+
+    }
+
+    protected static final class PendingBoolean extends PendingValue {
+        final boolean value;
+
+        PendingBoolean(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        void put(PreferEditor editor, Enum key) {
+            editor.putBoolean(key, value);
+        }
+    }
+
+    protected static final class PendingFloat extends PendingValue {
+        final float value;
+
+        PendingFloat(float value) {
+            this.value = value;
+        }
+
+        @Override
+        void put(PreferEditor editor, Enum key) {
+            editor.putFloat(key, value);
+        }
+    }
+
+    protected static final class PendingInteger extends PendingValue {
+        final int value;
+
+        PendingInteger(int value) {
+            this.value = value;
+        }
+
+        @Override
+        void put(PreferEditor editor, Enum key) {
+            editor.putInteger(key, value);
+        }
+    }
+
+    protected static final class PendingLong extends PendingValue {
+        final long value;
+
+        PendingLong(long value) {
+            this.value = value;
+        }
+
+        @Override
+        void put(PreferEditor editor, Enum key) {
+            editor.putLong(key, value);
+        }
+    }
+
+    protected static final class PendingString extends PendingValue {
+        final String value;
+
+        PendingString(String value) {
+            this.value = value;
+        }
+
+        @Override
+        void put(PreferEditor editor, Enum key) {
+            editor.putString(key, value);
+        }
+    }
+
+}
@@ -7,6 +7,7 @@ import com.cookingfox.android.prefer.api.pref.PrefValidator;
 import com.cookingfox.android.prefer.api.prefer.Prefer;
 import com.cookingfox.android.prefer.impl.pref.AbstractAndroidPref;
 import com.cookingfox.android.prefer.impl.pref.PreferenceModifier;
+import com.cookingfox.android.prefer.impl.prefer.PreferKeySerializer;
 import com.cookingfox.android.prefer.impl.prefer.SharedPreferencesPrefer;
 import com.cookingfox.android.prefer_testing.fixtures.Key;
 import com.cookingfox.android.prefer_testing.shared_preferences.InMemorySharedPreferences;
@@ -17,6 +18,7 @@ import org.junit.Test;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -90,6 +92,15 @@ public class AndroidStringPrefTest {
         pref.addValueChangedListener(null);
     }
 
+    //----------------------------------------------------------------------------------------------
+    // TESTS: getSerializedKey
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void getSerializedKey_should_return_serialized_key() throws Exception {
+        assertEquals(PreferKeySerializer.serializeKey(Key.Username), pref.getSerializedKey());
+    }
+
     //----------------------------------------------------------------------------------------------
     // TESTS: removeValueChangedListener
     //----------------------------------------------------------------------------------------------
@@ -1,14 +1,28 @@
 package com.cookingfox.android.prefer.impl.prefer;
 
+import android.content.SharedPreferences;
+
+import com.cookingfox.android.prefer.api.pref.OnValueChanged;
+import com.cookingfox.android.prefer.impl.pref.typed.AndroidIntegerPref;
+import com.cookingfox.android.prefer.impl.prefer.DeferredSharedPreferencesTest.QueueExecutor;
+import com.cookingfox.android.prefer_testing.fixtures.Key;
 import com.cookingfox.android.prefer_testing.shared_preferences.InMemorySharedPreferences;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -30,6 +44,7 @@ public class AndroidPreferProviderTest {
     @After
     public void tearDown() throws Exception {
         AndroidPreferProvider.defaultInstance = null;
+        AndroidPreferProvider.defaultLoading = null;
     }
 
     //----------------------------------------------------------------------------------------------
@@ -61,6 +76,101 @@ public class AndroidPreferProviderTest {
         AndroidPreferProvider.getDefault(null);
     }
 
+    //----------------------------------------------------------------------------------------------
+    // TESTS: getDefaultAsync
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void getDefaultAsync_should_throw_if_context_null() throws Exception {
+        AndroidPreferProvider.getDefaultAsync(null);
+    }
+
+    @Test
+    public void getDefaultAsync_should_set_default_instance_before_loaded() throws Exception {
+        final QueueExecutor executor = new QueueExecutor();
+        final InMemorySharedPreferences preferences = new InMemorySharedPreferences();
+        final List<Integer> values = new LinkedList<>();
+
+        final Future<AndroidPrefer> future = AndroidPreferProvider.getDefaultAsync(
+                new Callable<SharedPreferences>() {
+                    @Override
+                    public SharedPreferences call() throws Exception {
+                        return preferences;
+                    }
+                }, executor);
+
+        assertFalse(future.isDone());
+
+        // groups and listeners can be added before the preferences are loaded
+        final AndroidPrefer prefer = AndroidPreferProvider.defaultInstance;
+        final AndroidIntegerPref<Key> pref = prefer.addNewGroup(Key.class).addNewInteger(Key.IntervalMs, 0);
+
+        pref.addValueChangedListener(new OnValueChanged<Integer>() {
+            @Override
+            public void onValueChanged(Integer value) {
+                values.add(value);
+            }
+        });
+
+        executor.runAll();
+
+        assertTrue(future.isDone());
+        assertSame(prefer, future.get());
+        assertSame(prefer, AndroidPreferProvider.getDefaultAsync(loaderNotCalled, executor).get());
+        assertSame(pref, prefer.findGroup(Key.class).findPref(Key.IntervalMs));
+
+        pref.setValue(123);
+
+        assertEquals(123, (int) pref.getValue());
+        assertEquals(Arrays.asList(123), values);
+        assertEquals("123", preferences.getString(pref.getSerializedKey(), null));
+    }
+
+    @Test
+    public void getDefaultAsync_should_return_same_loading_future_if_called_again() throws Exception {
+        final QueueExecutor executor = new QueueExecutor();
+        final Future<AndroidPrefer> first = AndroidPreferProvider.getDefaultAsync(
+                new Callable<SharedPreferences>() {
+                    @Override
+                    public SharedPreferences call() throws Exception {
+                        return new InMemorySharedPreferences();
+                    }
+                }, executor);
+        final Future<AndroidPrefer> second =
+                AndroidPreferProvider.getDefaultAsync(loaderNotCalled, executor);
+
+        // still loading: the second call must not report the instance as loaded
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+        assertEquals(1, executor.tasks.size());
+
+        executor.runAll();
+
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertSame(first.get(), second.get());
+    }
+
+    @Test
+    public void getDefaultAsync_should_not_cancel_loading() throws Exception {
+        final QueueExecutor executor = new QueueExecutor();
+        final Future<AndroidPrefer> future = AndroidPreferProvider.getDefaultAsync(
+                new Callable<SharedPreferences>() {
+                    @Override
+                    public SharedPreferences call() throws Exception {
+                        return new InMemorySharedPreferences();
+                    }
+                }, executor);
+
+        assertFalse(future.cancel(true));
+        assertFalse(future.isCancelled());
+
+        executor.runAll();
+
+        assertSame(AndroidPreferProvider.defaultInstance, future.get());
+        assertEquals(0, future.get().getInteger(Key.IntervalMs, 0));
+    }
+
     //----------------------------------------------------------------------------------------------
     // TESTS: setDefault
     //----------------------------------------------------------------------------------------------
@@ -85,4 +195,15 @@ public class AndroidPreferProviderTest {
         assertTrue(prefer.initialized);
     }
 
+    //----------------------------------------------------------------------------------------------
+    // HELPERS
+    //----------------------------------------------------------------------------------------------
+
+    private final Callable<SharedPreferences> loaderNotCalled = new Callable<SharedPreferences>() {
+        @Override
+        public SharedPreferences call() throws Exception {
+            throw new UnsupportedOperationException("Default instance is already set");
+        }
+    };
+
 }
@@ -0,0 +1,231 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import android.content.SharedPreferences;
+import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
+
+import com.cookingfox.android.prefer.impl.prefer.WriteBehindPreferHelperTest.CountingSharedPreferences;
+import com.cookingfox.android.prefer_testing.fixtures.Key;
+import com.cookingfox.android.prefer_testing.shared_preferences.InMemorySharedPreferences;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link CachingPreferHelper}.
+ */
+public class CachingPreferHelperTest {
+
+    private CachingPreferHelper helper;
+    private InMemorySharedPreferences preferences;
+    private final String serializedKey = PreferKeySerializer.serializeKey(Key.Username);
+
+    @Before
+    public void setUp() throws Exception {
+        preferences = new InMemorySharedPreferences();
+        helper = new CachingPreferHelper(new SharedPreferencesHelper(preferences, onChangeListener));
+        helper.initializePrefer();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: constructor
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_should_throw_if_helper_null() throws Exception {
+        new CachingPreferHelper(null);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: get
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void get_should_return_cached_value() throws Exception {
+        preferences.edit().putString(serializedKey, "foo").apply();
+        assertEquals("foo", helper.getString(Key.Username, null));
+
+        // changed without invalidation: cached value is returned
+        preferences.edit().putString(serializedKey, "bar").apply();
+        assertEquals("foo", helper.getString(Key.Username, null));
+    }
+
+    @Test
+    public void get_should_read_again_for_other_default_value() throws Exception {
+        assertEquals(1, helper.getInteger(Key.IsEnabled, 1));
+        assertEquals(2, helper.getInteger(Key.IsEnabled, 2));
+    }
+
+    @Test
+    public void get_should_read_again_for_other_type() throws Exception {
+        helper.putInteger(Key.IsEnabled, 3);
+
+        assertEquals(3L, helper.getLong(Key.IsEnabled, 0L));
+        assertEquals(3f, helper.getFloat(Key.IsEnabled, 0f), 0f);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: put
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void put_should_write_through() throws Exception {
+        helper.putBoolean(Key.IsEnabled, true);
+
+        assertTrue(helper.getBoolean(Key.IsEnabled, false));
+        assertTrue(preferences.getBoolean(PreferKeySerializer.serializeKey(Key.IsEnabled), false));
+    }
+
+    @Test
+    public void put_should_skip_value_that_is_stored() throws Exception {
+        CountingSharedPreferences preferences = new CountingSharedPreferences();
+        CachingPreferHelper helper = new CachingPreferHelper(new SharedPreferencesHelper(preferences, onChangeListener));
+        helper.initializePrefer();
+
+        helper.putInteger(Key.IntervalMs, 1);
+        helper.putInteger(Key.IntervalMs, 1);
+        helper.putString(Key.Username, "foo");
+        helper.putString(Key.Username, "foo");
+
+        assertEquals(2, preferences.numApplyCalls);
+    }
+
+    @Test
+    public void put_should_skip_read_value_that_differs_from_default() throws Exception {
+        CountingSharedPreferences preferences = new CountingSharedPreferences();
+        preferences.edit().putBoolean(PreferKeySerializer.serializeKey(Key.IsEnabled), true).apply();
+
+        CachingPreferHelper helper = new CachingPreferHelper(new SharedPreferencesHelper(preferences, onChangeListener));
+        helper.initializePrefer();
+
+        assertTrue(helper.getBoolean(Key.IsEnabled, false));
+
+        helper.putBoolean(Key.IsEnabled, true);
+
+        assertEquals(1, preferences.numApplyCalls);
+    }
+
+    @Test
+    public void put_should_write_default_value_that_is_not_stored() throws Exception {
+        CountingSharedPreferences preferences = new CountingSharedPreferences();
+        CachingPreferHelper helper = new CachingPreferHelper(new SharedPreferencesHelper(preferences, onChangeListener));
+        helper.initializePrefer();
+
+        assertEquals(5L, helper.getLong(Key.IntervalMs, 5L));
+
+        helper.putLong(Key.IntervalMs, 5L);
+
+        assertEquals(1, preferences.numApplyCalls);
+    }
+
+    @Test
+    public void putString_should_not_cache_null() throws Exception {
+        helper.putString(Key.Username, "foo");
+        helper.putString(Key.Username, null);
+
+        // the wrapped helper stores null as a string
+        assertEquals("null", helper.getString(Key.Username, "bar"));
+        assertEquals("null", preferences.getString(serializedKey, null));
+    }
+
+    @Test
+    public void put_should_not_cache_value_if_writes_overlap() throws Exception {
+        final CachingPreferHelper[] caching = new CachingPreferHelper[1];
+
+        // a second write starts and finishes before the first write updates the cache
+        caching[0] = new CachingPreferHelper(new SharedPreferencesHelper(preferences, onChangeListener) {
+            @Override
+            public void putInteger(Enum key, int value) {
+                super.putInteger(key, value);
+
+                if (value == 1) {
+                    caching[0].putInteger(key, 2);
+                }
+            }
+        });
+        caching[0].initializePrefer();
+
+        caching[0].putInteger(Key.IntervalMs, 1);
+
+        assertEquals(2, caching[0].getInteger(Key.IntervalMs, 0));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: edit
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void edit_should_not_store_if_all_values_are_stored() throws Exception {
+        CountingSharedPreferences preferences = new CountingSharedPreferences();
+        CachingPreferHelper helper = new CachingPreferHelper(new SharedPreferencesHelper(preferences, onChangeListener));
+        helper.initializePrefer();
+
+        helper.edit().putFloat(Key.IntervalMs, 1f).putString(Key.Username, "foo").apply();
+
+        assertEquals(1, preferences.numApplyCalls);
+
+        assertTrue(helper.edit().putFloat(Key.IntervalMs, 1f).putString(Key.Username, "foo").commit());
+
+        assertEquals(1, preferences.numApplyCalls);
+
+        helper.edit().putFloat(Key.IntervalMs, 1f).putString(Key.Username, "bar").apply();
+
+        assertEquals(2, preferences.numApplyCalls);
+        assertEquals("bar", helper.getString(Key.Username, null));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: invalidate
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void invalidate_should_remove_cached_value() throws Exception {
+        helper.putString(Key.Username, "foo");
+        preferences.edit().putString(serializedKey, "bar").apply();
+
+        helper.invalidate(serializedKey);
+
+        assertEquals("bar", helper.getString(Key.Username, null));
+    }
+
+    @Test
+    public void invalidateAll_should_remove_all_cached_values() throws Exception {
+        helper.putString(Key.Username, "foo");
+        helper.putLong(Key.IntervalMs, 1L);
+
+        helper.invalidateAll();
+
+        assertTrue(helper.cache.isEmpty());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: disposePrefer
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void disposePrefer_should_bypass_cache() throws Exception {
+        helper.putString(Key.Username, "foo");
+        helper.disposePrefer();
+
+        preferences.edit().putString(serializedKey, "bar").apply();
+
+        assertFalse(helper.enabled);
+        assertEquals("bar", helper.getString(Key.Username, null));
+        assertTrue(helper.cache.isEmpty());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPERS
+    //----------------------------------------------------------------------------------------------
+
+    private final OnSharedPreferenceChangeListener onChangeListener = new OnSharedPreferenceChangeListener() {
+        @Override
+        public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+            // ignore
+        }
+    };
+
+}
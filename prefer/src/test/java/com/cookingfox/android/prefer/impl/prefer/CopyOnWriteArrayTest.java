@@ -0,0 +1,83 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link CopyOnWriteArray}.
+ */
+public class CopyOnWriteArrayTest {
+
+    private CopyOnWriteArray<String> array;
+
+    @Before
+    public void setUp() throws Exception {
+        array = new CopyOnWriteArray<>();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: add
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void add_should_throw_if_element_null() throws Exception {
+        array.add(null);
+    }
+
+    @Test
+    public void add_should_keep_elements_unique_and_ordered() throws Exception {
+        assertTrue(array.add("a"));
+        assertTrue(array.add("b"));
+        assertFalse(array.add("a"));
+
+        assertArrayEquals(new Object[]{"a", "b"}, array.snapshot());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: remove
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void remove_should_remove_element() throws Exception {
+        array.add("a");
+        array.add("b");
+        array.add("c");
+
+        assertTrue(array.remove("b"));
+        assertFalse(array.remove("b"));
+
+        assertArrayEquals(new Object[]{"a", "c"}, array.snapshot());
+        assertEquals(2, array.size());
+        assertFalse(array.contains("b"));
+    }
+
+    @Test
+    public void remove_should_empty_array() throws Exception {
+        array.add("a");
+        array.remove("a");
+
+        assertTrue(array.isEmpty());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: snapshot
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void snapshot_should_not_change_after_modification() throws Exception {
+        array.add("a");
+
+        Object[] snapshot = array.snapshot();
+
+        array.add("b");
+        array.remove("a");
+
+        assertArrayEquals(new Object[]{"a"}, snapshot);
+    }
+
+}
@@ -0,0 +1,184 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import android.content.SharedPreferences;
+import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
+
+import com.cookingfox.android.prefer.api.exception.PreferLoadException;
+import com.cookingfox.android.prefer_testing.shared_preferences.InMemorySharedPreferences;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link DeferredSharedPreferences}.
+ */
+public class DeferredSharedPreferencesTest {
+
+    //----------------------------------------------------------------------------------------------
+    // TEST SETUP
+    //----------------------------------------------------------------------------------------------
+
+    private DeferredSharedPreferences deferred;
+    private QueueExecutor executor;
+    private InMemorySharedPreferences preferences;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = new QueueExecutor();
+        preferences = new InMemorySharedPreferences();
+        deferred = new DeferredSharedPreferences(new Callable<SharedPreferences>() {
+            @Override
+            public SharedPreferences call() throws Exception {
+                return preferences;
+            }
+        }, executor);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: constructor
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_should_throw_if_loader_null() throws Exception {
+        new DeferredSharedPreferences(null, executor);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_should_throw_if_executor_null() throws Exception {
+        new DeferredSharedPreferences(new Callable<SharedPreferences>() {
+            @Override
+            public SharedPreferences call() throws Exception {
+                return preferences;
+            }
+        }, null);
+    }
+
+    @Test
+    public void constructor_should_not_load_on_calling_thread() throws Exception {
+        assertFalse(deferred.isLoaded());
+        assertFalse(deferred.getFuture().isDone());
+        assertEquals(1, executor.tasks.size());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: registerOnSharedPreferenceChangeListener
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void register_should_register_pending_listener_when_loaded() throws Exception {
+        final AtomicInteger counter = new AtomicInteger();
+
+        deferred.registerOnSharedPreferenceChangeListener(new OnSharedPreferenceChangeListener() {
+            @Override
+            public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+                counter.incrementAndGet();
+            }
+        });
+
+        executor.runAll();
+
+        assertTrue(deferred.isLoaded());
+
+        deferred.edit().putString("foo", "bar").apply();
+
+        assertEquals(1, counter.get());
+    }
+
+    @Test
+    public void unregister_should_remove_pending_listener() throws Exception {
+        final AtomicInteger counter = new AtomicInteger();
+        final OnSharedPreferenceChangeListener listener = new OnSharedPreferenceChangeListener() {
+            @Override
+            public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+                counter.incrementAndGet();
+            }
+        };
+
+        deferred.registerOnSharedPreferenceChangeListener(listener);
+        deferred.unregisterOnSharedPreferenceChangeListener(listener);
+
+        executor.runAll();
+
+        deferred.edit().putString("foo", "bar").apply();
+
+        assertEquals(0, counter.get());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: await
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void read_should_block_until_loaded() throws Exception {
+        preferences.edit().putString("foo", "bar").apply();
+
+        final AtomicReference<String> result = new AtomicReference<>();
+        final Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                result.set(deferred.getString("foo", null));
+            }
+        });
+
+        reader.start();
+        reader.join(50);
+
+        assertTrue(reader.isAlive());
+
+        executor.runAll();
+        reader.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertEquals("bar", result.get());
+    }
+
+    @Test(expected = PreferLoadException.class)
+    public void read_should_throw_if_load_failed() throws Exception {
+        deferred = new DeferredSharedPreferences(new Callable<SharedPreferences>() {
+            @Override
+            public SharedPreferences call() throws Exception {
+                throw new IllegalStateException("failed");
+            }
+        }, executor);
+
+        executor.runAll();
+
+        deferred.getAll();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPERS
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Queues the tasks until {@link #runAll()} is called.
+     */
+    static class QueueExecutor implements Executor {
+        final Queue<Runnable> tasks = new LinkedList<>();
+
+        @Override
+        public void execute(Runnable runnable) {
+            tasks.add(runnable);
+        }
+
+        void runAll() {
+            Runnable task;
+
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+}
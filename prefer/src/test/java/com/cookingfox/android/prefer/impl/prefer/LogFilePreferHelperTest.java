@@ -0,0 +1,402 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import com.cookingfox.android.prefer_testing.fixtures.Key;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link LogFilePreferHelper}.
+ */
+public class LogFilePreferHelperTest {
+
+    //----------------------------------------------------------------------------------------------
+    // TEST SETUP
+    //----------------------------------------------------------------------------------------------
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private LogFilePreferHelper helper;
+    private final List<String> changedKeys = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "prefer.log");
+        helper = createHelper(LogFilePreferHelper.DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        helper.disposePrefer();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: constructor
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_should_throw_if_file_null() throws Exception {
+        new LogFilePreferHelper(null, listener);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_should_throw_if_threshold_not_positive() throws Exception {
+        new LogFilePreferHelper(file, listener, 0);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: get / put
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void get_should_return_default_if_not_stored() throws Exception {
+        assertTrue(helper.getBoolean(Key.IsEnabled, true));
+        assertEquals(2, helper.getInteger(Key.IntervalMs, 2));
+        assertEquals("foo", helper.getString(Key.Username, "foo"));
+    }
+
+    @Test
+    public void put_should_replay_values_from_log() throws Exception {
+        helper.putBoolean(Key.IsEnabled, true);
+        helper.putFloat(Key.IntervalMs, 1.5f);
+        helper.putLong(Key.IntervalMs, -123456789012L);
+        helper.putString(Key.Username, "foo");
+        helper.putString(Key.Username, "b\u00e4r");
+        helper.disposePrefer();
+
+        helper = createHelper(LogFilePreferHelper.DEFAULT_COMPACTION_THRESHOLD);
+
+        assertTrue(helper.getBoolean(Key.IsEnabled, false));
+        assertEquals(-123456789012L, helper.getLong(Key.IntervalMs, 0L));
+        assertEquals("b\u00e4r", helper.getString(Key.Username, null));
+    }
+
+    @Test
+    public void put_should_remove_null_string() throws Exception {
+        helper.putString(Key.Username, "foo");
+        helper.putString(Key.Username, null);
+        helper.disposePrefer();
+
+        helper = createHelper(LogFilePreferHelper.DEFAULT_COMPACTION_THRESHOLD);
+
+        assertNull(helper.getString(Key.Username, null));
+    }
+
+    @Test
+    public void put_should_append_only_changed_values() throws Exception {
+        helper.putInteger(Key.IntervalMs, 1);
+
+        final long length = helper.logLength;
+
+        helper.putInteger(Key.IntervalMs, 1);
+
+        assertEquals(length, helper.logLength);
+        assertEquals(1, changedKeys.size());
+
+        helper.putInteger(Key.IntervalMs, 2);
+
+        // one value record, without a key definition
+        assertEquals(length + 17, helper.logLength);
+        assertEquals(length + 17, file.length());
+    }
+
+    @Test(expected = ClassCastException.class)
+    public void get_should_throw_if_stored_with_other_type() throws Exception {
+        helper.putInteger(Key.IntervalMs, 1);
+
+        helper.getString(Key.IntervalMs, null);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: crash recovery
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void initializePrefer_should_truncate_incomplete_tail() throws Exception {
+        helper.putInteger(Key.IntervalMs, 1);
+
+        final long length = helper.logLength;
+
+        helper.putInteger(Key.IntervalMs, 2);
+        helper.disposePrefer();
+
+        // simulate a crash during the append
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.setLength(file.length() - 3);
+        randomAccessFile.close();
+
+        helper = createHelper(LogFilePreferHelper.DEFAULT_COMPACTION_THRESHOLD);
+
+        assertEquals(1, helper.getInteger(Key.IntervalMs, 0));
+        assertEquals(length, file.length());
+
+        helper.putInteger(Key.IntervalMs, 3);
+        helper.disposePrefer();
+
+        helper = createHelper(LogFilePreferHelper.DEFAULT_COMPACTION_THRESHOLD);
+
+        assertEquals(3, helper.getInteger(Key.IntervalMs, 0));
+    }
+
+    @Test
+    public void initializePrefer_should_stop_at_corrupt_record() throws Exception {
+        helper.putInteger(Key.IntervalMs, 1);
+
+        final long length = helper.logLength;
+
+        helper.putInteger(Key.IntervalMs, 2);
+        helper.disposePrefer();
+
+        // corrupt the last byte of the value
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.seek(file.length() - 1);
+        randomAccessFile.write(9);
+        randomAccessFile.close();
+
+        helper = createHelper(LogFilePreferHelper.DEFAULT_COMPACTION_THRESHOLD);
+
+        assertEquals(1, helper.getInteger(Key.IntervalMs, 0));
+        assertEquals(length, helper.logLength);
+    }
+
+    @Test
+    public void initializePrefer_should_discard_incomplete_batch() throws Exception {
+        helper.putString(Key.Username, "foo");
+
+        final long length = helper.logLength;
+
+        assertTrue(helper.edit()
+                .putString(Key.Username, "bar")
+                .putInteger(Key.IntervalMs, 1)
+                .commit());
+        helper.disposePrefer();
+
+        // simulate a crash during the append of the last record of the batch
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.setLength(file.length() - 3);
+        randomAccessFile.close();
+
+        helper = createHelper(LogFilePreferHelper.DEFAULT_COMPACTION_THRESHOLD);
+
+        assertEquals("foo", helper.getString(Key.Username, null));
+        assertEquals(0, helper.getInteger(Key.IntervalMs, 0));
+        assertEquals(length, file.length());
+
+        // the key definition of the discarded batch is written again
+        helper.putInteger(Key.IntervalMs, 2);
+        helper.disposePrefer();
+
+        helper = createHelper(LogFilePreferHelper.DEFAULT_COMPACTION_THRESHOLD);
+
+        assertEquals("foo", helper.getString(Key.Username, null));
+        assertEquals(2, helper.getInteger(Key.IntervalMs, 0));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: compact
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void compact_should_write_snapshot_and_clear_log() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            helper.putInteger(Key.IntervalMs, i);
+        }
+
+        helper.putString(Key.Username, "foo");
+        helper.compact();
+
+        assertEquals(0, file.length());
+        assertTrue(new File(file.getPath() + ".snapshot").exists());
+
+        helper.putBoolean(Key.IsEnabled, true);
+        helper.disposePrefer();
+
+        helper = createHelper(LogFilePreferHelper.DEFAULT_COMPACTION_THRESHOLD);
+
+        assertEquals(99, helper.getInteger(Key.IntervalMs, 0));
+        assertEquals("foo", helper.getString(Key.Username, null));
+        assertTrue(helper.getBoolean(Key.IsEnabled, false));
+    }
+
+    @Test
+    public void put_should_compact_in_background_after_threshold() throws Exception {
+        helper.disposePrefer();
+        helper = createHelper(100);
+
+        for (int i = 0; i < 10; i++) {
+            helper.putInteger(Key.IntervalMs, i);
+        }
+
+        final long timeout = System.currentTimeMillis() + 5000;
+
+        while (file.length() > 100 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(file.length() <= 100);
+        assertEquals(9, helper.getInteger(Key.IntervalMs, 0));
+    }
+
+    @Test
+    public void put_should_retry_failed_background_compaction() throws Exception {
+        final List<Throwable> uncaught = new ArrayList<>();
+        final Thread.UncaughtExceptionHandler previous =
+                Thread.getDefaultUncaughtExceptionHandler();
+
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread thread, Throwable e) {
+                uncaught.add(e);
+            }
+        });
+
+        try {
+            helper.disposePrefer();
+            helper = createHelper(100);
+
+            // a non-empty directory can not be replaced by the new snapshot
+            final File snapshot = new File(file.getPath() + ".snapshot");
+            assertTrue(new File(snapshot, "blocking").mkdirs());
+
+            for (int i = 0; i < 10; i++) {
+                helper.putInteger(Key.IntervalMs, i);
+            }
+
+            // wait for the failed compaction
+            helper.executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get();
+
+            // retried when the log has doubled, not on every append
+            final long threshold = helper.effectiveCompactionThreshold;
+
+            assertTrue(threshold >= 2 * file.length());
+            assertTrue(new File(snapshot, "blocking").delete());
+            assertTrue(snapshot.delete());
+
+            int value = 10;
+
+            while (helper.logLength <= threshold) {
+                assertFalse(helper.compactionScheduled.get());
+
+                helper.putInteger(Key.IntervalMs, value++);
+            }
+
+            // wait for the retried compaction
+            helper.executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get();
+
+            assertTrue(file.length() <= 100);
+            assertEquals(100, helper.effectiveCompactionThreshold);
+            assertEquals(value - 1, helper.getInteger(Key.IntervalMs, 0));
+            assertTrue(uncaught.isEmpty());
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(previous);
+        }
+    }
+
+    @Test
+    public void disposePrefer_should_skip_queued_compaction() throws Exception {
+        helper.disposePrefer();
+        helper = createHelper(100);
+
+        final ExecutorService executor = helper.executor;
+
+        // the compaction waits for the lock until the helper is disposed
+        synchronized (helper) {
+            for (int i = 0; i < 10; i++) {
+                helper.putInteger(Key.IntervalMs, i);
+            }
+
+            helper.disposePrefer();
+        }
+
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertNull(helper.log);
+        assertFalse(helper.compactionScheduled.get());
+        assertTrue(file.length() > 100);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: edit
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void edit_should_append_and_notify_per_changed_key() throws Exception {
+        helper.putBoolean(Key.IsEnabled, true);
+        changedKeys.clear();
+
+        assertTrue(helper.edit()
+                .putBoolean(Key.IsEnabled, true)
+                .putInteger(Key.IntervalMs, 1)
+                .putString(Key.Username, "foo")
+                .commit());
+
+        assertEquals(2, changedKeys.size());
+        assertFalse(changedKeys.contains(PreferKeySerializer.serializeKey(Key.IsEnabled)));
+        assertEquals(1, helper.getInteger(Key.IntervalMs, 0));
+        assertEquals("foo", helper.getString(Key.Username, null));
+    }
+
+    @Test
+    public void commit_should_return_false_if_append_fails() throws Exception {
+        helper.putInteger(Key.IntervalMs, 1);
+        helper.disposePrefer();
+        changedKeys.clear();
+
+        // a directory can not be opened as the log
+        assertTrue(file.delete());
+        assertTrue(file.mkdir());
+
+        assertFalse(helper.edit()
+                .putInteger(Key.IntervalMs, 2)
+                .putString(Key.Username, "foo")
+                .commit());
+
+        assertTrue(changedKeys.isEmpty());
+        assertEquals(1, helper.getInteger(Key.IntervalMs, 0));
+        assertNull(helper.getString(Key.Username, null));
+        assertTrue(file.delete());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPERS
+    //----------------------------------------------------------------------------------------------
+
+    private final OnStoredValueChanged listener = new OnStoredValueChanged() {
+        @Override
+        public void onStoredValueChanged(String serializedKey) {
+            changedKeys.add(serializedKey);
+        }
+    };
+
+    private LogFilePreferHelper createHelper(long compactionThreshold) {
+        final LogFilePreferHelper created =
+                new LogFilePreferHelper(file, listener, compactionThreshold);
+        created.initializePrefer();
+        return created;
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import com.cookingfox.android.prefer.api.pref.OnValueChanged;
+import com.cookingfox.android.prefer.impl.pref.typed.AndroidIntegerPref;
+import com.cookingfox.android.prefer_testing.fixtures.Key;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.LinkedList;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link LogFilePrefer}.
+ */
+public class LogFilePreferTest {
+
+    //----------------------------------------------------------------------------------------------
+    // TEST SETUP
+    //----------------------------------------------------------------------------------------------
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private LogFilePrefer prefer;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "prefer.log");
+        prefer = new LogFilePrefer(file);
+        prefer.initializePrefer();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        prefer.disposePrefer();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: constructor
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_should_throw_if_file_null() throws Exception {
+        new LogFilePrefer(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_should_throw_if_threshold_not_positive() throws Exception {
+        new LogFilePrefer(file, 0);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: addValueChangedListener
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void addValueChangedListener_should_notify_on_change() throws Exception {
+        final AndroidIntegerPref<Key> pref = prefer.newInteger(Key.IntervalMs, 0);
+        final LinkedList<Integer> values = new LinkedList<>();
+
+        prefer.addValueChangedListener(pref, new OnValueChanged<Integer>() {
+            @Override
+            public void onValueChanged(Integer value) {
+                values.add(value);
+            }
+        });
+
+        pref.setValue(1);
+        pref.setValue(1);
+        pref.setValue(2);
+
+        assertEquals(2, values.size());
+        assertEquals(2, (int) values.getLast());
+    }
+
+    @Test
+    public void setValue_should_persist_value() throws Exception {
+        prefer.newInteger(Key.IntervalMs, 0).setValue(123);
+        prefer.disposePrefer();
+
+        prefer = new LogFilePrefer(file);
+        prefer.initializePrefer();
+
+        assertEquals(123, (int) prefer.newInteger(Key.IntervalMs, 0).getValue());
+    }
+
+    @Test
+    public void setValue_should_persist_value_after_compaction() throws Exception {
+        prefer.disposePrefer();
+
+        prefer = new LogFilePrefer(file, 100);
+        prefer.initializePrefer();
+
+        final AndroidIntegerPref<Key> pref = prefer.newInteger(Key.IntervalMs, 0);
+
+        for (int i = 0; i < 100; i++) {
+            pref.setValue(i);
+        }
+
+        prefer.disposePrefer();
+
+        prefer = new LogFilePrefer(file);
+        prefer.initializePrefer();
+
+        assertEquals(99, (int) prefer.newInteger(Key.IntervalMs, 0).getValue());
+    }
+
+}
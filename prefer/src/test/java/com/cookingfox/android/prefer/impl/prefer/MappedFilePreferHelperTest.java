@@ -0,0 +1,436 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import com.cookingfox.android.prefer.api.exception.PreferLoadException;
+import com.cookingfox.android.prefer.api.exception.PreferStorageException;
+import com.cookingfox.android.prefer_testing.fixtures.Key;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.cookingfox.android.prefer.impl.prefer.MappedFilePreferHelper.HEADER_SIZE;
+import static com.cookingfox.android.prefer.impl.prefer.MappedFilePreferHelper.KIND_DATA;
+import static com.cookingfox.android.prefer.impl.prefer.MappedFilePreferHelper.NO_DATA;
+import static com.cookingfox.android.prefer.impl.prefer.MappedFilePreferHelper.RECORD_HEADER_SIZE;
+import static com.cookingfox.android.prefer.impl.prefer.MappedFilePreferHelper.TYPE_STRING;
+import static com.cookingfox.android.prefer.impl.prefer.MappedFilePreferHelper.putData;
+import static com.cookingfox.android.prefer.impl.prefer.MappedFilePreferHelper.putSlot;
+import static com.cookingfox.android.prefer.impl.prefer.MappedFilePreferHelper.readData;
+import static com.cookingfox.android.prefer.impl.prefer.MappedFilePreferHelper.valueOffset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link MappedFilePreferHelper}.
+ */
+public class MappedFilePreferHelperTest {
+
+    //----------------------------------------------------------------------------------------------
+    // TEST SETUP
+    //----------------------------------------------------------------------------------------------
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private MappedFilePreferHelper helper;
+    private final List<String> changedKeys = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "prefer.bin");
+        helper = createHelper();
+        helper.initializePrefer();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        helper.disposePrefer();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: constructor
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_should_throw_if_file_null() throws Exception {
+        new MappedFilePreferHelper(null, listener);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_should_throw_if_listener_null() throws Exception {
+        new MappedFilePreferHelper(file, null);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: initializePrefer
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = PreferLoadException.class)
+    public void initializePrefer_should_throw_if_not_mapped_file() throws Exception {
+        final File other = folder.newFile();
+        final FileOutputStream output = new FileOutputStream(other);
+        output.write("<map></map>".getBytes("UTF-8"));
+        output.close();
+
+        new MappedFilePreferHelper(other, listener).initializePrefer();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: get / put
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void get_should_return_default_if_not_stored() throws Exception {
+        assertTrue(helper.getBoolean(Key.IsEnabled, true));
+        assertEquals(1f, helper.getFloat(Key.IntervalMs, 1f), 0f);
+        assertEquals(2, helper.getInteger(Key.IntervalMs, 2));
+        assertEquals(3L, helper.getLong(Key.IntervalMs, 3L));
+        assertEquals("foo", helper.getString(Key.Username, "foo"));
+    }
+
+    @Test
+    public void put_should_store_typed_values() throws Exception {
+        helper.putBoolean(Key.IsEnabled, true);
+        helper.putInteger(Key.IntervalMs, 123);
+        helper.putString(Key.Username, "foo");
+
+        assertTrue(helper.getBoolean(Key.IsEnabled, false));
+        assertEquals(123, helper.getInteger(Key.IntervalMs, 0));
+        assertEquals("foo", helper.getString(Key.Username, null));
+    }
+
+    @Test
+    public void put_should_persist_values_in_file() throws Exception {
+        helper.putLong(Key.IntervalMs, Long.MAX_VALUE);
+        helper.putString(Key.Username, "foo");
+        helper.putString(Key.Username, "bar");
+        helper.disposePrefer();
+
+        helper = createHelper();
+
+        assertEquals(Long.MAX_VALUE, helper.getLong(Key.IntervalMs, 0L));
+        assertEquals("bar", helper.getString(Key.Username, null));
+    }
+
+    @Test
+    public void put_should_update_primitive_in_place() throws Exception {
+        helper.putInteger(Key.IntervalMs, 1);
+
+        final int end = helper.end;
+
+        helper.putInteger(Key.IntervalMs, 2);
+
+        assertEquals(end, helper.end);
+        assertEquals(2, helper.getInteger(Key.IntervalMs, 0));
+    }
+
+    @Test
+    public void put_should_store_null_string() throws Exception {
+        helper.putString(Key.Username, "foo");
+        helper.putString(Key.Username, null);
+
+        assertNull(helper.getString(Key.Username, null));
+        assertEquals("bar", helper.getString(Key.Username, "bar"));
+    }
+
+    @Test
+    public void put_should_replace_slot_if_type_changed() throws Exception {
+        helper.putString(Key.IntervalMs, "1");
+        helper.putInteger(Key.IntervalMs, 1);
+        helper.disposePrefer();
+
+        helper = createHelper();
+
+        assertEquals(1, helper.getInteger(Key.IntervalMs, 0));
+    }
+
+    @Test(expected = ClassCastException.class)
+    public void get_should_throw_if_stored_with_other_type() throws Exception {
+        helper.putInteger(Key.IntervalMs, 1);
+
+        helper.getString(Key.IntervalMs, null);
+    }
+
+    @Test
+    public void put_should_notify_only_if_value_changed() throws Exception {
+        helper.putInteger(Key.IntervalMs, 1);
+        helper.putInteger(Key.IntervalMs, 1);
+        helper.putString(Key.Username, "foo");
+        helper.putString(Key.Username, "foo");
+
+        assertEquals(2, changedKeys.size());
+        assertEquals(PreferKeySerializer.serializeKey(Key.IntervalMs), changedKeys.get(0));
+    }
+
+    @Test
+    public void put_should_grow_file() throws Exception {
+        final StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < 1000; i++) {
+            builder.append("0123456789");
+        }
+
+        helper.putString(Key.Username, builder.toString());
+        helper.putBoolean(Key.IsEnabled, true);
+        helper.disposePrefer();
+
+        helper = createHelper();
+
+        assertEquals(builder.toString(), helper.getString(Key.Username, null));
+        assertTrue(helper.getBoolean(Key.IsEnabled, false));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: crash recovery
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void initializePrefer_should_ignore_incomplete_record() throws Exception {
+        helper.putInteger(Key.IntervalMs, 1);
+
+        final int end = helper.end;
+
+        helper.putString(Key.Username, "foo");
+        helper.disposePrefer();
+
+        // simulate a crash during the append: corrupt the length of the data record
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.seek(end);
+        randomAccessFile.writeInt(3);
+        randomAccessFile.close();
+
+        helper = createHelper();
+
+        assertEquals(1, helper.getInteger(Key.IntervalMs, 0));
+        assertNull(helper.getString(Key.Username, null));
+        assertEquals(end, helper.end);
+
+        helper.putString(Key.Username, "bar");
+
+        assertEquals("bar", helper.getString(Key.Username, null));
+    }
+
+    @Test
+    public void readData_should_return_null_if_record_invalid() throws Exception {
+        final ByteBuffer mapped = ByteBuffer.allocate(128);
+        putData(mapped, HEADER_SIZE, new byte[]{'f', 'o', 'o'});
+
+        assertEquals("foo", readData(mapped, HEADER_SIZE));
+
+        // negative data length
+        mapped.putInt(HEADER_SIZE + RECORD_HEADER_SIZE, -1);
+        assertNull(readData(mapped, HEADER_SIZE));
+
+        // data length beyond the mapping
+        mapped.putInt(HEADER_SIZE + RECORD_HEADER_SIZE, 1000);
+        assertNull(readData(mapped, HEADER_SIZE));
+
+        // data length that does not match the record length
+        mapped.putInt(HEADER_SIZE + RECORD_HEADER_SIZE, 20);
+        assertNull(readData(mapped, HEADER_SIZE));
+
+        // record header beyond the mapping
+        assertNull(readData(mapped, 124));
+    }
+
+    @Test
+    public void scan_should_clear_string_pointer_to_invalid_record() throws Exception {
+        final ByteBuffer mapped = ByteBuffer.allocate(256);
+
+        // data that looks like a data record header with a negative data length
+        final byte[] data = new byte[16];
+        ByteBuffer.wrap(data).putInt(0, 24).put(4, KIND_DATA).putInt(8, -1);
+
+        final int slot = putData(mapped, HEADER_SIZE, data);
+        final int end = putSlot(mapped, slot, "key".getBytes("UTF-8"), TYPE_STRING,
+                HEADER_SIZE + RECORD_HEADER_SIZE + 4);
+        final Map<String, Integer> slots = new HashMap<>();
+
+        assertEquals(end, helper.scan(mapped, slots));
+        assertEquals(slot, (int) slots.get("key"));
+        assertEquals(NO_DATA, mapped.getLong(valueOffset(mapped, slot)));
+        assertNotNull(readData(mapped, HEADER_SIZE));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: compaction
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void initializePrefer_should_compact_if_mostly_unused() throws Exception {
+        // do not compact while writing
+        helper.compactionThreshold = Integer.MAX_VALUE;
+
+        for (int i = 0; i < 1000; i++) {
+            helper.putString(Key.Username, "value" + i);
+        }
+
+        helper.disposePrefer();
+
+        final long length = file.length();
+
+        helper = createHelper();
+
+        assertTrue(file.length() < length);
+        assertEquals(0, helper.unusedBytes);
+        assertEquals("value999", helper.getString(Key.Username, null));
+    }
+
+    @Test
+    public void put_should_compact_if_mostly_unused() throws Exception {
+        helper.putInteger(Key.IntervalMs, 123);
+
+        for (int i = 0; i < 1000; i++) {
+            helper.putString(Key.Username, "value" + i);
+        }
+
+        assertTrue(helper.end <= 2 * MappedFilePreferHelper.INITIAL_CAPACITY);
+        assertEquals(123, helper.getInteger(Key.IntervalMs, 0));
+        assertEquals("value999", helper.getString(Key.Username, null));
+
+        helper.disposePrefer();
+        helper = createHelper();
+
+        assertEquals(123, helper.getInteger(Key.IntervalMs, 0));
+        assertEquals("value999", helper.getString(Key.Username, null));
+    }
+
+    @Test
+    public void initializePrefer_should_keep_file_if_compaction_fails() throws Exception {
+        helper.compactionThreshold = Integer.MAX_VALUE;
+
+        for (int i = 0; i < 1000; i++) {
+            helper.putString(Key.Username, "value" + i);
+        }
+
+        helper.disposePrefer();
+
+        // a non-empty directory can not be opened as the temporary file
+        final File temporary = new File(file.getPath() + ".tmp");
+        assertTrue(new File(temporary, "blocking").mkdirs());
+
+        final long length = file.length();
+
+        helper = createHelper();
+
+        assertEquals(length, file.length());
+        assertTrue(helper.compactionThreshold > MappedFilePreferHelper.INITIAL_CAPACITY);
+        assertEquals("value999", helper.getString(Key.Username, null));
+
+        helper.putString(Key.Username, "foo");
+        helper.disposePrefer();
+
+        helper = createHelper();
+
+        assertEquals("foo", helper.getString(Key.Username, null));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: edit
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void edit_should_store_values_and_notify_per_changed_key() throws Exception {
+        helper.putBoolean(Key.IsEnabled, true);
+        changedKeys.clear();
+
+        assertTrue(helper.edit()
+                .putBoolean(Key.IsEnabled, true)
+                .putInteger(Key.IntervalMs, 1)
+                .putString(Key.Username, "foo")
+                .commit());
+
+        assertEquals(2, changedKeys.size());
+        assertFalse(changedKeys.contains(PreferKeySerializer.serializeKey(Key.IsEnabled)));
+        assertEquals(1, helper.getInteger(Key.IntervalMs, 0));
+        assertEquals("foo", helper.getString(Key.Username, null));
+    }
+
+    @Test
+    public void commit_should_return_false_and_notify_written_if_write_fails() throws Exception {
+        final boolean[] fail = {false};
+
+        helper.disposePrefer();
+        helper = new MappedFilePreferHelper(file, listener) {
+            @Override
+            protected void ensureCapacity(int recordLength) {
+                if (fail[0]) {
+                    throw new PreferStorageException("Test", null);
+                }
+
+                super.ensureCapacity(recordLength);
+            }
+        };
+        helper.putInteger(Key.IntervalMs, 0);
+        changedKeys.clear();
+        fail[0] = true;
+
+        // the integer is written in place, the string needs to be appended
+        assertFalse(helper.edit()
+                .putInteger(Key.IntervalMs, 1)
+                .putString(Key.Username, "foo")
+                .commit());
+
+        assertEquals(1, changedKeys.size());
+        assertEquals(PreferKeySerializer.serializeKey(Key.IntervalMs), changedKeys.get(0));
+        assertEquals(1, helper.getInteger(Key.IntervalMs, 0));
+        assertNull(helper.getString(Key.Username, null));
+    }
+
+    @Test
+    public void commit_should_return_false_if_force_fails() throws Exception {
+        final boolean[] fail = {true};
+
+        helper.disposePrefer();
+        helper = new MappedFilePreferHelper(file, listener) {
+            @Override
+            protected void force() {
+                if (fail[0]) {
+                    throw new PreferStorageException("Test", null);
+                }
+
+                super.force();
+            }
+        };
+
+        assertFalse(helper.edit().putInteger(Key.IntervalMs, 1).commit());
+        assertEquals(1, changedKeys.size());
+        assertEquals(1, helper.getInteger(Key.IntervalMs, 0));
+
+        fail[0] = false;
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPERS
+    //----------------------------------------------------------------------------------------------
+
+    private final OnStoredValueChanged listener = new OnStoredValueChanged() {
+        @Override
+        public void onStoredValueChanged(String serializedKey) {
+            changedKeys.add(serializedKey);
+        }
+    };
+
+    private MappedFilePreferHelper createHelper() {
+        final MappedFilePreferHelper created = new MappedFilePreferHelper(file, listener);
+        created.initializePrefer();
+        return created;
+    }
+
+}
@@ -5,6 +5,7 @@ import org.junit.Test;
 import com.cookingfox.android.prefer_testing.fixtures.Key;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 /**
  * Unit tests for {@link PreferKeySerializer}.
@@ -30,6 +31,20 @@ public class PreferKeySerializerTest {
         PreferKeySerializer.deserializeKey("foo bar");
     }
 
+    @Test
+    public void deserializeKey_should_return_serialized_key() throws Exception {
+        Enum result = PreferKeySerializer.deserializeKey(PreferKeySerializer.serializeKey(Key.Username));
+
+        assertSame(Key.Username, result);
+    }
+
+    @Test
+    public void deserializeKey_should_return_serialized_constant_with_body() throws Exception {
+        Enum result = PreferKeySerializer.deserializeKey(PreferKeySerializer.serializeKey(KeyWithBody.WithBody));
+
+        assertSame(KeyWithBody.WithBody, result);
+    }
+
     //----------------------------------------------------------------------------------------------
     // TESTS: serializeKey
     //----------------------------------------------------------------------------------------------
@@ -59,4 +74,36 @@ public class PreferKeySerializerTest {
         assertEquals(expected, serialized);
     }
 
+    @Test
+    public void serializeKey_should_return_same_instance() throws Exception {
+        String first = PreferKeySerializer.serializeKey(Key.Username);
+        String second = PreferKeySerializer.serializeKey(Key.Username);
+
+        assertSame(first, second);
+    }
+
+    @Test
+    public void serializeKey_should_use_class_of_constant_with_body() throws Exception {
+        String serialized = PreferKeySerializer.serializeKey(KeyWithBody.WithBody);
+        String expected = KeyWithBody.WithBody.getClass().getName() +
+                PreferKeySerializer.ENUM_KEY_SEPARATOR +
+                KeyWithBody.WithBody.name();
+
+        assertEquals(expected, serialized);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPER CLASSES
+    //----------------------------------------------------------------------------------------------
+
+    enum KeyWithBody {
+        WithoutBody,
+        WithBody {
+            @Override
+            public String toString() {
+                return "body";
+            }
+        }
+    }
+
 }
@@ -3,11 +3,28 @@ package com.cookingfox.android.prefer.impl.prefer;
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
 
+import com.cookingfox.android.prefer.api.pref.Pref;
+import com.cookingfox.android.prefer.impl.pref.typed.AndroidBooleanPref;
+import com.cookingfox.android.prefer.impl.pref.typed.AndroidIntegerPref;
+import com.cookingfox.android.prefer.impl.pref.typed.AndroidStringPref;
+import com.cookingfox.android.prefer_testing.fixtures.Key;
 import com.cookingfox.android.prefer_testing.shared_preferences.InMemorySharedPreferences;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
 /**
  * Unit tests for {@link SharedPreferencesHelper}.
  */
@@ -38,10 +55,133 @@ public class SharedPreferencesHelperTest {
         helper.putFromString(null, null);
     }
 
+    //----------------------------------------------------------------------------------------------
+    // TESTS: readAll
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void readAll_should_decode_stored_and_default_values() throws Exception {
+        SharedPreferencesPrefer prefer = new SharedPreferencesPrefer(new InMemorySharedPreferences());
+        AndroidIntegerPref<Key> integerPref = prefer.newInteger(Key.IntervalMs, 0);
+        AndroidBooleanPref<Key> booleanPref = prefer.newBoolean(Key.IsEnabled, true);
+        AndroidStringPref<Key> stringPref = prefer.newString(Key.Username, "foo");
+
+        helper.putInteger(Key.IntervalMs, 123);
+
+        List<Pref<?, ?>> prefs = Arrays.<Pref<?, ?>>asList(integerPref, booleanPref, stringPref);
+
+        assertArrayEquals(new Object[]{123, true, "foo"}, helper.readAll(prefs));
+    }
+
+    @Test
+    public void readAll_should_leave_out_values_that_can_not_be_decoded() throws Exception {
+        SharedPreferencesPrefer prefer = new SharedPreferencesPrefer(new InMemorySharedPreferences());
+        AndroidIntegerPref<Key> integerPref = prefer.newInteger(Key.IntervalMs, 0);
+        AndroidBooleanPref<Key> booleanPref = prefer.newBoolean(Key.IsEnabled, true);
+
+        helper.putString(Key.IntervalMs, "abc");
+        helper.putString(Key.IsEnabled, "true");
+
+        List<Pref<?, ?>> prefs = Arrays.<Pref<?, ?>>asList(integerPref, booleanPref);
+
+        assertArrayEquals(new Object[]{null, null}, helper.readAll(prefs));
+    }
+
+    @Test
+    public void readAll_should_leave_out_numbers_to_migrate() throws Exception {
+        InMemorySharedPreferences preferences = new InMemorySharedPreferences();
+        SharedPreferencesHelper nativeHelper = new SharedPreferencesHelper(preferences, onChangeListener, true);
+        SharedPreferencesPrefer prefer = new SharedPreferencesPrefer(preferences);
+        AndroidIntegerPref<Key> integerPref = prefer.newInteger(Key.IntervalMs, 0);
+
+        // stored as string
+        new SharedPreferencesHelper(preferences, onChangeListener).putInteger(Key.IntervalMs, 123);
+
+        List<Pref<?, ?>> prefs = Collections.<Pref<?, ?>>singletonList(integerPref);
+
+        assertNull(nativeHelper.readAll(prefs)[0]);
+
+        nativeHelper.putInteger(Key.IntervalMs, 123);
+
+        assertEquals(123, nativeHelper.readAll(prefs)[0]);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: native number storage
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void nativeNumberStorage_should_store_numbers_natively() throws Exception {
+        NativeTrackingSharedPreferences preferences = new NativeTrackingSharedPreferences();
+        SharedPreferencesHelper nativeHelper = new SharedPreferencesHelper(preferences, onChangeListener, true);
+
+        nativeHelper.putFloat(Key.IntervalMs, 1.5f);
+        assertEquals(1.5f, nativeHelper.getFloat(Key.IntervalMs, 0f), 0f);
+
+        nativeHelper.putInteger(Key.IsEnabled, 2);
+        assertEquals(2, nativeHelper.getInteger(Key.IsEnabled, 0));
+
+        nativeHelper.putLong(Key.Username, 3L);
+        assertEquals(3L, nativeHelper.getLong(Key.Username, 0L));
+
+        assertEquals(3, preferences.nativeKeys.size());
+    }
+
+    @Test
+    public void nativeNumberStorage_should_return_default_values() throws Exception {
+        SharedPreferencesHelper nativeHelper = new SharedPreferencesHelper(new NativeTrackingSharedPreferences(), onChangeListener, true);
+
+        assertEquals(1.5f, nativeHelper.getFloat(Key.IntervalMs, 1.5f), 0f);
+        assertEquals(2, nativeHelper.getInteger(Key.IntervalMs, 2));
+        assertEquals(3L, nativeHelper.getLong(Key.IntervalMs, 3L));
+    }
+
+    @Test
+    public void nativeNumberStorage_should_migrate_string_values() throws Exception {
+        NativeTrackingSharedPreferences preferences = new NativeTrackingSharedPreferences();
+
+        // store values as strings
+        helper = new SharedPreferencesHelper(preferences, onChangeListener);
+        helper.putFloat(Key.IntervalMs, 1.5f);
+        helper.putInteger(Key.IsEnabled, 2);
+        helper.putLong(Key.Username, 3L);
+
+        assertTrue(preferences.nativeKeys.isEmpty());
+
+        SharedPreferencesHelper nativeHelper = new SharedPreferencesHelper(preferences, onChangeListener, true);
+
+        assertEquals(1.5f, nativeHelper.getFloat(Key.IntervalMs, 0f), 0f);
+        assertEquals(2, nativeHelper.getInteger(Key.IsEnabled, 0));
+        assertEquals(3L, nativeHelper.getLong(Key.Username, 0L));
+
+        assertEquals(3, preferences.nativeKeys.size());
+    }
+
     //----------------------------------------------------------------------------------------------
     // HELPERS
     //----------------------------------------------------------------------------------------------
 
+    /**
+     * Tracks the keys of numbers that are stored natively. Reading a number natively that was not
+     * stored natively throws a {@link ClassCastException}, like the Android implementation.
+     */
+    static class NativeTrackingSharedPreferences extends InMemorySharedPreferences {
+        final Set<String> nativeKeys = new HashSet<>();
+
+        @Override
+        protected void store(Map<String, Object> changes, boolean clear) {
+            for (Map.Entry<String, Object> entry : changes.entrySet()) {
+                final Object value = entry.getValue();
+
+                if (value instanceof Integer || value instanceof Long || value instanceof Float) {
+                    nativeKeys.add(entry.getKey());
+                }
+            }
+
+            super.store(changes, clear);
+        }
+    }
+
     final OnSharedPreferenceChangeListener onChangeListener = new OnSharedPreferenceChangeListener() {
         @Override
         public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
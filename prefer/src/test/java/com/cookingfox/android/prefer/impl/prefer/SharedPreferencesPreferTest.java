@@ -1,15 +1,25 @@
 package com.cookingfox.android.prefer.impl.prefer;
 
 import com.cookingfox.android.prefer.api.exception.GroupAlreadyAddedException;
+import com.cookingfox.android.prefer.api.exception.InvalidPrefValueException;
 import com.cookingfox.android.prefer.api.exception.PreferNotInitializedException;
+import com.cookingfox.android.prefer.api.pref.LazyValue;
 import com.cookingfox.android.prefer.api.pref.OnGroupValueChanged;
+import com.cookingfox.android.prefer.api.pref.OnLazyValueChanged;
 import com.cookingfox.android.prefer.api.pref.OnValueChanged;
 import com.cookingfox.android.prefer.api.pref.Pref;
 import com.cookingfox.android.prefer.api.pref.PrefGroup;
 import com.cookingfox.android.prefer.api.pref.typed.BooleanPref;
+import com.cookingfox.android.prefer.api.pref.typed.OnBooleanValueChanged;
+import com.cookingfox.android.prefer.api.pref.typed.OnFloatValueChanged;
+import com.cookingfox.android.prefer.api.pref.typed.OnIntegerValueChanged;
+import com.cookingfox.android.prefer.api.pref.typed.OnLongValueChanged;
+import com.cookingfox.android.prefer.api.prefer.PreferTransaction;
 import com.cookingfox.android.prefer.impl.pref.AndroidPrefGroup;
 import com.cookingfox.android.prefer.impl.pref.typed.AndroidBooleanPref;
+import com.cookingfox.android.prefer.impl.pref.typed.AndroidFloatPref;
 import com.cookingfox.android.prefer.impl.pref.typed.AndroidIntegerPref;
+import com.cookingfox.android.prefer.impl.pref.typed.AndroidLongPref;
 import com.cookingfox.android.prefer.impl.pref.typed.AndroidStringPref;
 import com.cookingfox.android.prefer_testing.fixtures.Key;
 import com.cookingfox.android.prefer_testing.shared_preferences.InMemorySharedPreferences;
@@ -19,15 +29,25 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Unit tests for {@link SharedPreferencesPrefer} and {@link AndroidPrefer}.
@@ -111,6 +131,279 @@ public class SharedPreferencesPreferTest {
         });
     }
 
+    @Test
+    public void addValueChangedListener_should_notify_on_executor_in_order() throws Exception {
+        AndroidIntegerPref<Key> pref = prefer.newInteger(Key.IntervalMs, 0);
+        final LinkedList<Runnable> tasks = new LinkedList<>();
+        final LinkedList<Integer> values = new LinkedList<>();
+
+        prefer.addValueChangedListener(pref, new OnValueChanged<Integer>() {
+            @Override
+            public void onValueChanged(Integer value) {
+                values.add(value);
+            }
+        }, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+
+        pref.setValue(1);
+        pref.setValue(2);
+        pref.setValue(3);
+
+        // one drain task is submitted for all pending values
+        assertTrue(values.isEmpty());
+        assertEquals(1, tasks.size());
+
+        tasks.remove().run();
+
+        assertEquals(Arrays.asList(1, 2, 3), values);
+    }
+
+    @Test
+    public void addValueChangedListener_should_keep_order_on_thread_pool() throws Exception {
+        AndroidIntegerPref<Key> pref = prefer.newInteger(Key.IntervalMs, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        final LinkedList<Integer> values = new LinkedList<>();
+        final CountDownLatch latch = new CountDownLatch(100);
+
+        prefer.addValueChangedListener(pref, new OnValueChanged<Integer>() {
+            @Override
+            public void onValueChanged(Integer value) {
+                values.add(value);
+                latch.countDown();
+            }
+        }, executor);
+
+        LinkedList<Integer> expected = new LinkedList<>();
+
+        for (int i = 1; i <= 100; i++) {
+            pref.setValue(i);
+            expected.add(i);
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(expected, values);
+    }
+
+    @Test
+    public void addValueChangedListener_should_report_rejected_executor() throws Exception {
+        AndroidIntegerPref<Key> pref = prefer.newInteger(Key.IntervalMs, 0);
+        final LinkedList<Runnable> tasks = new LinkedList<>();
+        final LinkedList<Integer> values = new LinkedList<>();
+        final LinkedList<Integer> otherValues = new LinkedList<>();
+        final LinkedList<Throwable> uncaught = new LinkedList<>();
+        final AtomicBoolean reject = new AtomicBoolean(true);
+
+        prefer.addValueChangedListener(pref, new OnValueChanged<Integer>() {
+            @Override
+            public void onValueChanged(Integer value) {
+                values.add(value);
+            }
+        }, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                if (reject.get()) {
+                    throw new RejectedExecutionException();
+                }
+
+                tasks.add(command);
+            }
+        });
+        prefer.addValueChangedListener(pref, new OnValueChanged<Integer>() {
+            @Override
+            public void onValueChanged(Integer value) {
+                otherValues.add(value);
+            }
+        });
+
+        final Thread thread = Thread.currentThread();
+        final Thread.UncaughtExceptionHandler previous = thread.getUncaughtExceptionHandler();
+
+        thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+                uncaught.add(e);
+            }
+        });
+
+        try {
+            pref.setValue(1);
+        } finally {
+            thread.setUncaughtExceptionHandler(previous);
+        }
+
+        assertEquals(1, uncaught.size());
+        assertTrue(uncaught.getFirst() instanceof RejectedExecutionException);
+        assertEquals(Collections.singletonList(1), otherValues);
+
+        // the rejected value is dropped, the next value schedules a new drain
+        reject.set(false);
+        pref.setValue(2);
+        tasks.remove().run();
+
+        assertEquals(Collections.singletonList(2), values);
+    }
+
+    @Test
+    public void addValueChangedListener_should_continue_after_error() throws Exception {
+        AndroidIntegerPref<Key> pref = prefer.newInteger(Key.IntervalMs, 0);
+        final LinkedList<Runnable> tasks = new LinkedList<>();
+        final LinkedList<Integer> values = new LinkedList<>();
+
+        prefer.addValueChangedListener(pref, new OnValueChanged<Integer>() {
+            @Override
+            public void onValueChanged(Integer value) {
+                if (value == 1) {
+                    throw new AssertionError("test");
+                }
+
+                values.add(value);
+            }
+        }, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+
+        pref.setValue(1);
+        pref.setValue(2);
+
+        try {
+            tasks.remove().run();
+            fail("Expected an error");
+        } catch (AssertionError e) {
+            assertEquals("test", e.getMessage());
+        }
+
+        // a new drain is scheduled for the next value
+        assertEquals(1, tasks.size());
+
+        tasks.remove().run();
+
+        assertEquals(Collections.singletonList(2), values);
+    }
+
+    @Test
+    public void removeValueChangedListener_should_remove_executor_listener() throws Exception {
+        AndroidIntegerPref<Key> pref = prefer.newInteger(Key.IntervalMs, 0);
+        final AtomicInteger numCalls = new AtomicInteger();
+
+        OnValueChanged<Integer> listener = new OnValueChanged<Integer>() {
+            @Override
+            public void onValueChanged(Integer value) {
+                numCalls.incrementAndGet();
+            }
+        };
+
+        prefer.addValueChangedListener(pref, listener, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        prefer.removeValueChangedListener(pref, listener);
+
+        pref.setValue(1);
+
+        assertEquals(0, numCalls.get());
+        assertTrue(prefer.prefValueChangedListeners.isEmpty());
+    }
+
+    @Test
+    public void addValueChangedListener_should_not_add_executor_listener_twice() throws Exception {
+        AndroidIntegerPref<Key> pref = prefer.newInteger(Key.IntervalMs, 0);
+        final AtomicInteger numCalls = new AtomicInteger();
+
+        OnValueChanged<Integer> listener = new OnValueChanged<Integer>() {
+            @Override
+            public void onValueChanged(Integer value) {
+                numCalls.incrementAndGet();
+            }
+        };
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+
+        prefer.addValueChangedListener(pref, listener, executor);
+        prefer.addValueChangedListener(pref, listener, executor);
+
+        pref.setValue(1);
+
+        assertEquals(1, numCalls.get());
+        assertEquals(1, prefer.prefValueChangedListeners.get(pref).size());
+    }
+
+    @Test
+    public void addGroupValueChangedListener_should_not_add_executor_listener_twice()
+            throws Exception {
+        AndroidPrefGroup<Key> group = prefer.addNewGroup(Key.class);
+        AndroidIntegerPref<Key> pref = group.addNewInteger(Key.IntervalMs, 0);
+        final AtomicInteger numCalls = new AtomicInteger();
+
+        OnGroupValueChanged<Key> listener = new OnGroupValueChanged<Key>() {
+            @Override
+            public void onGroupValueChanged(Pref<Key, ?> pref) {
+                numCalls.incrementAndGet();
+            }
+        };
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+
+        prefer.addGroupValueChangedListener(group, listener, executor);
+        prefer.addGroupValueChangedListener(group, listener, executor);
+
+        pref.setValue(1);
+
+        assertEquals(1, numCalls.get());
+    }
+
+    @Test
+    public void addGroupValueChangedListener_should_notify_on_executor() throws Exception {
+        AndroidPrefGroup<Key> group = prefer.addNewGroup(Key.class);
+        AndroidIntegerPref<Key> pref = group.addNewInteger(Key.IntervalMs, 0);
+        final LinkedList<Runnable> tasks = new LinkedList<>();
+        final AtomicInteger numCalls = new AtomicInteger();
+
+        OnGroupValueChanged<Key> listener = new OnGroupValueChanged<Key>() {
+            @Override
+            public void onGroupValueChanged(Pref<Key, ?> pref) {
+                numCalls.incrementAndGet();
+            }
+        };
+
+        prefer.addGroupValueChangedListener(group, listener, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+
+        pref.setValue(1);
+
+        assertEquals(0, numCalls.get());
+
+        tasks.remove().run();
+
+        assertEquals(1, numCalls.get());
+
+        prefer.removeGroupValueChangedListener(group, listener);
+
+        assertTrue(prefer.prefGroupValueChangedListeners.isEmpty());
+    }
+
     //----------------------------------------------------------------------------------------------
     // TESTS: removeValueChangedListener
     //----------------------------------------------------------------------------------------------
@@ -530,6 +823,469 @@ public class SharedPreferencesPreferTest {
         assertTrue(groups.contains(second));
     }
 
+    //----------------------------------------------------------------------------------------------
+    // TESTS: handlePrefChanged
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void handlePrefChanged_should_ignore_unknown_keys() throws Exception {
+        final AtomicBoolean called = new AtomicBoolean(false);
+
+        prefer.addValueChangedListener(createBooleanPref(false), new OnValueChanged<Boolean>() {
+            @Override
+            public void onValueChanged(Boolean value) {
+                called.set(true);
+            }
+        });
+
+        prefer.handlePrefChanged("foo");
+        prefer.handlePrefChanged("com.example.UnknownKey-IsEnabled");
+        prefer.handlePrefChanged(Key.class.getName() + "-Unknown");
+
+        assertFalse(called.get());
+    }
+
+    @Test
+    public void handlePrefChanged_should_notify_for_registered_key() throws Exception {
+        final AtomicBoolean called = new AtomicBoolean(false);
+
+        prefer.addValueChangedListener(createBooleanPref(false), new OnValueChanged<Boolean>() {
+            @Override
+            public void onValueChanged(Boolean value) {
+                called.set(true);
+            }
+        });
+
+        prefer.handlePrefChanged(PreferKeySerializer.serializeKey(Key.IsEnabled));
+
+        assertTrue(called.get());
+    }
+
+    @Test
+    public void handlePrefChanged_should_notify_only_listeners_of_changed_key() throws Exception {
+        final LinkedList<Object> calls = new LinkedList<>();
+
+        AndroidBooleanPref<Key> isEnabledPref = prefer.newBoolean(Key.IsEnabled, false);
+        AndroidStringPref<Key> usernamePref = prefer.newString(Key.Username, "foo");
+
+        isEnabledPref.addValueChangedListener(new OnValueChanged<Boolean>() {
+            @Override
+            public void onValueChanged(Boolean value) {
+                calls.add(value);
+            }
+        });
+
+        usernamePref.addValueChangedListener(new OnValueChanged<String>() {
+            @Override
+            public void onValueChanged(String value) {
+                calls.add(value);
+            }
+        });
+
+        usernamePref.setValue("bar");
+
+        assertEquals(Arrays.<Object>asList("bar"), calls);
+    }
+
+    @Test
+    public void removeValueChangedListener_should_remove_index_entry_when_empty() throws Exception {
+        BooleanPref<Key> pref = createBooleanPref(false);
+        OnValueChanged<Boolean> listener = new OnValueChanged<Boolean>() {
+            @Override
+            public void onValueChanged(Boolean value) {
+                // ignore
+            }
+        };
+
+        prefer.addValueChangedListener(pref, listener);
+
+        assertTrue(prefer.listenedPrefsByKey.containsKey(Key.IsEnabled));
+
+        prefer.removeValueChangedListener(pref, listener);
+
+        assertFalse(prefer.prefValueChangedListeners.containsKey(pref));
+        assertFalse(prefer.listenedPrefsByKey.containsKey(Key.IsEnabled));
+    }
+
+    @Test
+    public void removeGroupValueChangedListener_should_remove_index_entry_when_empty() throws Exception {
+        AndroidPrefGroup<Key> group = prefer.addNewGroup(Key.class);
+        OnGroupValueChanged<Key> listener = new OnGroupValueChanged<Key>() {
+            @Override
+            public void onGroupValueChanged(Pref<Key, ?> pref) {
+                // ignore
+            }
+        };
+
+        group.addGroupValueChangedListener(listener);
+
+        assertTrue(prefer.listenedGroupsByKeyClass.containsKey(Key.class));
+
+        group.removeGroupValueChangedListener(listener);
+
+        assertFalse(prefer.prefGroupValueChangedListeners.containsKey(group));
+        assertFalse(prefer.listenedGroupsByKeyClass.containsKey(Key.class));
+    }
+
+    @Test
+    public void addGroup_should_register_keys_of_key_class() throws Exception {
+        prefer.addNewGroup(Key.class);
+
+        for (Key key : Key.values()) {
+            assertSame(key, prefer.keysBySerializedKey.get(PreferKeySerializer.serializeKey(key)));
+        }
+    }
+
+    @Test
+    public void disposePrefer_should_clear_registered_keys() throws Exception {
+        prefer.addNewGroup(Key.class);
+
+        prefer.disposePrefer();
+
+        assertTrue(prefer.keysBySerializedKey.isEmpty());
+    }
+
+    @Test
+    public void handlePrefChanged_should_invalidate_cached_value() throws Exception {
+        AndroidStringPref<Key> pref = prefer.newString(Key.Username, "foo");
+
+        assertEquals("foo", pref.getValue());
+
+        // change outside of Prefer
+        prefer.preferences.edit().putString(pref.getSerializedKey(), "bar").apply();
+
+        assertEquals("bar", pref.getValue());
+    }
+
+    @Test
+    public void handlePrefChanged_should_allow_adding_listener_during_dispatch() throws Exception {
+        final BooleanPref<Key> pref = createBooleanPref(false);
+        final AtomicInteger numCalls = new AtomicInteger(0);
+
+        pref.addValueChangedListener(new OnValueChanged<Boolean>() {
+            @Override
+            public void onValueChanged(Boolean value) {
+                numCalls.incrementAndGet();
+
+                pref.addValueChangedListener(new OnValueChanged<Boolean>() {
+                    @Override
+                    public void onValueChanged(Boolean value) {
+                        // ignore
+                    }
+                });
+            }
+        });
+
+        pref.setValue(true);
+        pref.setValue(false);
+
+        assertEquals(2, numCalls.get());
+    }
+
+    @Test
+    public void handlePrefChanged_should_allow_removing_listener_during_dispatch() throws Exception {
+        final BooleanPref<Key> pref = createBooleanPref(false);
+        final LinkedList<String> calls = new LinkedList<>();
+
+        pref.addValueChangedListener(new OnValueChanged<Boolean>() {
+            @Override
+            public void onValueChanged(Boolean value) {
+                calls.add("once");
+                pref.removeValueChangedListener(this);
+            }
+        });
+
+        pref.addValueChangedListener(new OnValueChanged<Boolean>() {
+            @Override
+            public void onValueChanged(Boolean value) {
+                calls.add("always");
+            }
+        });
+
+        pref.setValue(true);
+        pref.setValue(false);
+
+        assertEquals(Arrays.asList("once", "always", "always"), calls);
+    }
+
+    @Test
+    public void addValueChangedListener_should_be_safe_from_multiple_threads() throws Exception {
+        final BooleanPref<Key> pref = createBooleanPref(false);
+        final AtomicInteger numCalls = new AtomicInteger(0);
+        final int numThreads = 8;
+        final int numListenersPerThread = 100;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(numThreads);
+
+        for (int i = 0; i < numThreads; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+
+                        for (int j = 0; j < numListenersPerThread; j++) {
+                            pref.addValueChangedListener(new OnValueChanged<Boolean>() {
+                                @Override
+                                public void onValueChanged(Boolean value) {
+                                    numCalls.incrementAndGet();
+                                }
+                            });
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        start.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        pref.setValue(true);
+
+        assertEquals(numThreads * numListenersPerThread, numCalls.get());
+    }
+
+    @Test
+    public void handlePrefChanged_should_not_read_value_for_lazy_listener() throws Exception {
+        final AtomicInteger numReads = new AtomicInteger();
+        final AtomicInteger numCalls = new AtomicInteger();
+        AndroidIntegerPref<Key> pref = createReadCountingPref(numReads);
+
+        prefer.addLazyValueChangedListener(pref, new OnLazyValueChanged<Integer>() {
+            @Override
+            public void onValueChanged(LazyValue<Integer> value) {
+                numCalls.incrementAndGet();
+            }
+        });
+
+        prefer.handlePrefChanged(pref.getSerializedKey());
+
+        assertEquals(1, numCalls.get());
+        assertEquals(0, numReads.get());
+    }
+
+    @Test
+    public void handlePrefChanged_should_read_value_once_for_all_listeners() throws Exception {
+        final AtomicInteger numReads = new AtomicInteger();
+        final LinkedList<Integer> values = new LinkedList<>();
+        AndroidIntegerPref<Key> pref = createReadCountingPref(numReads);
+
+        for (int i = 0; i < 3; i++) {
+            prefer.addLazyValueChangedListener(pref, new OnLazyValueChanged<Integer>() {
+                @Override
+                public void onValueChanged(LazyValue<Integer> value) {
+                    values.add(value.get());
+                    values.add(value.get());
+                }
+            });
+
+            prefer.addValueChangedListener(pref, new OnValueChanged<Integer>() {
+                @Override
+                public void onValueChanged(Integer value) {
+                    values.add(value);
+                }
+            });
+        }
+
+        prefer.handlePrefChanged(pref.getSerializedKey());
+
+        assertEquals(9, values.size());
+        assertEquals(1, numReads.get());
+    }
+
+    @Test
+    public void addLazyValueChangedListener_should_not_add_listener_twice() throws Exception {
+        AndroidIntegerPref<Key> pref = prefer.newInteger(Key.IntervalMs, 0);
+        final AtomicInteger numCalls = new AtomicInteger();
+
+        OnLazyValueChanged<Integer> listener = new OnLazyValueChanged<Integer>() {
+            @Override
+            public void onValueChanged(LazyValue<Integer> value) {
+                numCalls.incrementAndGet();
+            }
+        };
+
+        prefer.addLazyValueChangedListener(pref, listener);
+        prefer.addLazyValueChangedListener(pref, listener);
+
+        pref.setValue(1);
+
+        assertEquals(1, numCalls.get());
+        assertEquals(1, prefer.prefValueChangedListeners.get(pref).size());
+    }
+
+    @Test
+    public void removeLazyValueChangedListener_should_remove_listener() throws Exception {
+        AndroidIntegerPref<Key> pref = prefer.newInteger(Key.IntervalMs, 0);
+        final AtomicInteger numCalls = new AtomicInteger();
+
+        OnLazyValueChanged<Integer> listener = new OnLazyValueChanged<Integer>() {
+            @Override
+            public void onValueChanged(LazyValue<Integer> value) {
+                numCalls.incrementAndGet();
+            }
+        };
+
+        prefer.addLazyValueChangedListener(pref, listener);
+        prefer.removeLazyValueChangedListener(pref, listener);
+
+        pref.setValue(1);
+
+        assertEquals(0, numCalls.get());
+        assertTrue(prefer.prefValueChangedListeners.isEmpty());
+    }
+
+    @Test
+    public void handlePrefChanged_should_not_be_called_for_unchanged_value() throws Exception {
+        AndroidIntegerPref<Key> pref = prefer.newInteger(Key.IntervalMs, 0);
+        final AtomicInteger numCalls = new AtomicInteger();
+
+        prefer.addValueChangedListener(pref, new OnValueChanged<Integer>() {
+            @Override
+            public void onValueChanged(Integer value) {
+                numCalls.incrementAndGet();
+            }
+        });
+
+        pref.setValue(1);
+        pref.setValue(1);
+
+        PreferTransaction transaction = prefer.beginTransaction();
+        transaction.setValue(pref, 1);
+        transaction.commit();
+
+        assertEquals(1, numCalls.get());
+    }
+
+    @Test
+    public void handlePrefChanged_should_notify_primitive_listeners_without_reading_pref() throws Exception {
+        final AtomicInteger numReads = new AtomicInteger();
+        final AtomicInteger received = new AtomicInteger();
+        AndroidIntegerPref<Key> pref = createReadCountingPref(numReads);
+
+        prefer.addIntegerValueChangedListener(pref, new OnIntegerValueChanged() {
+            @Override
+            public void onValueChanged(int value) {
+                received.set(value);
+            }
+        });
+
+        prefer.putInteger(Key.IntervalMs, 123);
+
+        assertEquals(123, received.get());
+        assertEquals(0, numReads.get());
+    }
+
+    @Test
+    public void addTypedValueChangedListener_should_notify_primitive_listeners() throws Exception {
+        final LinkedList<Object> values = new LinkedList<>();
+
+        AndroidBooleanPref<Key> booleanPref = prefer.newBoolean(Key.IsEnabled, false);
+        AndroidFloatPref<Key> floatPref = prefer.newFloat(Key.IntervalMs, 0f);
+        AndroidLongPref<Key> longPref = prefer.newLong(Key.Username, 0L);
+
+        booleanPref.addBooleanValueChangedListener(new OnBooleanValueChanged() {
+            @Override
+            public void onValueChanged(boolean value) {
+                values.add(value);
+            }
+        });
+        floatPref.addFloatValueChangedListener(new OnFloatValueChanged() {
+            @Override
+            public void onValueChanged(float value) {
+                values.add(value);
+            }
+        });
+        longPref.addLongValueChangedListener(new OnLongValueChanged() {
+            @Override
+            public void onValueChanged(long value) {
+                values.add(value);
+            }
+        });
+
+        booleanPref.setValue(true);
+        floatPref.setValue(1.5f);
+        longPref.setValue(2L);
+
+        assertEquals(Arrays.<Object>asList(true, 1.5f, 2L), values);
+    }
+
+    @Test
+    public void handlePrefChanged_should_notify_primitive_listeners_in_order() throws Exception {
+        final AtomicInteger numReads = new AtomicInteger();
+        final LinkedList<String> calls = new LinkedList<>();
+        AndroidIntegerPref<Key> pref = createReadCountingPref(numReads);
+
+        for (int i = 0; i < 2; i++) {
+            final int index = i;
+
+            prefer.addValueChangedListener(pref, new OnValueChanged<Integer>() {
+                @Override
+                public void onValueChanged(Integer value) {
+                    calls.add("boxed " + index + ": " + value);
+                }
+            });
+            prefer.addIntegerValueChangedListener(pref, new OnIntegerValueChanged() {
+                @Override
+                public void onValueChanged(int value) {
+                    calls.add("primitive " + index + ": " + value);
+                }
+            });
+        }
+
+        prefer.putInteger(Key.IntervalMs, 123);
+
+        assertEquals(Arrays.asList("boxed 0: 123", "primitive 0: 123", "boxed 1: 123",
+                "primitive 1: 123"), calls);
+        assertEquals(1, numReads.get());
+    }
+
+    @Test
+    public void addIntegerValueChangedListener_should_not_add_listener_twice() throws Exception {
+        AndroidIntegerPref<Key> pref = prefer.newInteger(Key.IntervalMs, 0);
+        final AtomicInteger numCalls = new AtomicInteger();
+
+        OnIntegerValueChanged listener = new OnIntegerValueChanged() {
+            @Override
+            public void onValueChanged(int value) {
+                numCalls.incrementAndGet();
+            }
+        };
+
+        pref.addIntegerValueChangedListener(listener);
+        pref.addIntegerValueChangedListener(listener);
+
+        pref.setValue(1);
+
+        assertEquals(1, numCalls.get());
+        assertEquals(1, prefer.prefValueChangedListeners.get(pref).size());
+    }
+
+    @Test
+    public void removeIntegerValueChangedListener_should_remove_listener() throws Exception {
+        AndroidIntegerPref<Key> pref = prefer.newInteger(Key.IntervalMs, 0);
+        final AtomicInteger numCalls = new AtomicInteger();
+
+        OnIntegerValueChanged listener = new OnIntegerValueChanged() {
+            @Override
+            public void onValueChanged(int value) {
+                numCalls.incrementAndGet();
+            }
+        };
+
+        pref.addIntegerValueChangedListener(listener);
+        pref.removeIntegerValueChangedListener(listener);
+
+        pref.setValue(1);
+
+        assertEquals(0, numCalls.get());
+        assertTrue(prefer.prefValueChangedListeners.isEmpty());
+    }
+
     //----------------------------------------------------------------------------------------------
     // TESTS: onChangeListener
     //----------------------------------------------------------------------------------------------
@@ -540,6 +1296,161 @@ public class SharedPreferencesPreferTest {
 //        prefer.onChangeListener.onSharedPreferenceChanged(null, "foo");
 //    }
 
+    //----------------------------------------------------------------------------------------------
+    // TESTS: beginTransaction
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void beginTransaction_should_store_all_values_before_notifying() throws Exception {
+        final AndroidIntegerPref<Key> intervalPref = prefer.newInteger(Key.IntervalMs, 1);
+        final AndroidStringPref<Key> usernamePref = prefer.newString(Key.Username, "foo");
+        final LinkedList<Object> calls = new LinkedList<>();
+
+        intervalPref.addValueChangedListener(new OnValueChanged<Integer>() {
+            @Override
+            public void onValueChanged(Integer value) {
+                calls.add(value);
+                calls.add(usernamePref.getValue());
+            }
+        });
+
+        prefer.beginTransaction()
+                .setValue(intervalPref, 2)
+                .setValue(usernamePref, "bar")
+                .apply();
+
+        assertEquals(Arrays.<Object>asList(2, "bar"), calls);
+        assertEquals(Integer.valueOf(2), intervalPref.getValue());
+        assertEquals("bar", usernamePref.getValue());
+    }
+
+    @Test
+    public void beginTransaction_should_throw_on_invalid_value_before_storing() throws Exception {
+        AndroidStringPref<Key> pref = prefer.newString(Key.Username, "foo");
+        PreferTransaction transaction = prefer.beginTransaction();
+
+        try {
+            transaction.setValue(pref, null);
+        } catch (InvalidPrefValueException e) {
+            assertEquals("foo", pref.getValue());
+            return;
+        }
+
+        throw new AssertionError("Expected " + InvalidPrefValueException.class.getName());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void beginTransaction_should_not_allow_reuse() throws Exception {
+        PreferTransaction transaction = prefer.beginTransaction()
+                .setValue(createBooleanPref(false), true);
+
+        assertTrue(transaction.commit());
+
+        transaction.apply();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: setWriteBehind
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = IllegalStateException.class)
+    public void setWriteBehind_should_throw_if_initialized() throws Exception {
+        prefer.setWriteBehind(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void setWriteBehind_should_store_values_on_dispose() throws Exception {
+        InMemorySharedPreferences preferences = new InMemorySharedPreferences();
+        SharedPreferencesPrefer prefer = new SharedPreferencesPrefer(preferences);
+        prefer.setWriteBehind(1, TimeUnit.HOURS);
+        prefer.initializePrefer();
+
+        AndroidStringPref<Key> pref = prefer.newString(Key.Username, "foo");
+        pref.setValue("bar");
+
+        assertEquals("bar", pref.getValue());
+        assertTrue(preferences.values.isEmpty());
+
+        prefer.disposePrefer();
+
+        assertEquals("bar", preferences.getString(pref.getSerializedKey(), null));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: preload
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = PreferNotInitializedException.class)
+    public void preload_should_throw_if_not_initialized() throws Exception {
+        new SharedPreferencesPrefer(new InMemorySharedPreferences()).preload();
+    }
+
+    @Test
+    public void preload_should_serve_group_values_from_one_snapshot() throws Exception {
+        ReadCountingSharedPreferences preferences = new ReadCountingSharedPreferences();
+        preferences.edit().putString(PreferKeySerializer.serializeKey(Key.IntervalMs), "123").apply();
+
+        SharedPreferencesPrefer prefer = new SharedPreferencesPrefer(preferences);
+        prefer.initializePrefer();
+
+        AndroidPrefGroup<Key> group = prefer.addNewGroup(Key.class);
+        AndroidIntegerPref<Key> integerPref = group.addNewInteger(Key.IntervalMs, 0);
+        AndroidBooleanPref<Key> booleanPref = group.addNewBoolean(Key.IsEnabled, true);
+        AndroidStringPref<Key> stringPref = group.addNewString(Key.Username, "foo");
+
+        prefer.preload();
+
+        assertEquals(1, preferences.numGetAllCalls);
+
+        assertEquals(123, integerPref.getInteger());
+        assertTrue(booleanPref.getBoolean());
+        assertEquals("foo", stringPref.getValue());
+        assertEquals(0, preferences.numGetCalls);
+
+        prefer.disposePrefer();
+    }
+
+    @Test
+    public void preload_should_not_serve_values_that_changed() throws Exception {
+        InMemorySharedPreferences preferences = new InMemorySharedPreferences();
+        SharedPreferencesPrefer prefer = new SharedPreferencesPrefer(preferences);
+        prefer.initializePrefer();
+
+        AndroidStringPref<Key> pref = prefer.addNewGroup(Key.class).addNewString(Key.Username, "foo");
+
+        prefer.preload();
+        preferences.edit().putString(pref.getSerializedKey(), "bar").apply();
+
+        assertEquals("bar", pref.getValue());
+
+        prefer.disposePrefer();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: setPreloadOnInitialize
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = IllegalStateException.class)
+    public void setPreloadOnInitialize_should_throw_if_initialized() throws Exception {
+        prefer.setPreloadOnInitialize(true);
+    }
+
+    @Test
+    public void setPreloadOnInitialize_should_preload_registered_groups() throws Exception {
+        ReadCountingSharedPreferences preferences = new ReadCountingSharedPreferences();
+        SharedPreferencesPrefer prefer = new SharedPreferencesPrefer(preferences);
+        AndroidBooleanPref<Key> pref = prefer.addNewGroup(Key.class).addNewBoolean(Key.IsEnabled, true);
+
+        prefer.setPreloadOnInitialize(true);
+        prefer.initializePrefer();
+
+        assertTrue(pref.getBoolean());
+        assertEquals(1, preferences.numGetAllCalls);
+        assertEquals(0, preferences.numGetCalls);
+
+        prefer.disposePrefer();
+    }
+
     //----------------------------------------------------------------------------------------------
     // TESTS: newBoolean
     //----------------------------------------------------------------------------------------------
@@ -562,6 +1473,30 @@ public class SharedPreferencesPreferTest {
         assertNotNull(pref);
     }
 
+    //----------------------------------------------------------------------------------------------
+    // TESTS: primitive getters
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void primitive_getters_should_return_default_value() throws Exception {
+        assertTrue(prefer.newBoolean(Key.IsEnabled, true).getBoolean());
+        assertEquals(1.5f, prefer.newFloat(Key.IntervalMs, 1.5f).getFloat(), 0f);
+        assertEquals(123, prefer.newInteger(Key.IntervalMs, 123).getInteger());
+        assertEquals(1234567890123L, prefer.newLong(Key.IntervalMs, 1234567890123L).getLong());
+    }
+
+    @Test
+    public void primitive_getters_should_return_stored_value() throws Exception {
+        AndroidBooleanPref<Key> booleanPref = prefer.newBoolean(Key.IsEnabled, false);
+        AndroidLongPref<Key> longPref = prefer.newLong(Key.IntervalMs, 0L);
+
+        booleanPref.setValue(true);
+        longPref.setValue(1234567890123L);
+
+        assertEquals(booleanPref.getValue(), booleanPref.getBoolean());
+        assertEquals(1234567890123L, longPref.getLong());
+    }
+
     //----------------------------------------------------------------------------------------------
     // TESTS: newString
     //----------------------------------------------------------------------------------------------
@@ -581,4 +1516,46 @@ public class SharedPreferencesPreferTest {
         return prefer.newBoolean(Key.IsEnabled, defaultValue);
     }
 
+    private AndroidIntegerPref<Key> createReadCountingPref(final AtomicInteger numReads) {
+        return new AndroidIntegerPref<Key>(prefer, Key.IntervalMs, 0) {
+            @Override
+            public Integer getValue() {
+                numReads.incrementAndGet();
+                return super.getValue();
+            }
+        };
+    }
+
+    /**
+     * Counts the reads of all values and of single values.
+     */
+    static class ReadCountingSharedPreferences extends InMemorySharedPreferences {
+        int numGetAllCalls = 0;
+        int numGetCalls = 0;
+
+        @Override
+        public Map<String, ?> getAll() {
+            numGetAllCalls++;
+            return super.getAll();
+        }
+
+        @Override
+        public String getString(String key, String defValue) {
+            numGetCalls++;
+            return super.getString(key, defValue);
+        }
+
+        @Override
+        public int getInt(String key, int defValue) {
+            numGetCalls++;
+            return super.getInt(key, defValue);
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean defValue) {
+            numGetCalls++;
+            return super.getBoolean(key, defValue);
+        }
+    }
+
 }
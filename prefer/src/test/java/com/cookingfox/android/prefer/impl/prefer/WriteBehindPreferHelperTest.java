@@ -0,0 +1,227 @@
+package com.cookingfox.android.prefer.impl.prefer;
+
+import android.content.SharedPreferences;
+import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
+
+import com.cookingfox.android.prefer_testing.fixtures.Key;
+import com.cookingfox.android.prefer_testing.shared_preferences.InMemorySharedPreferences;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link WriteBehindPreferHelper}.
+ */
+public class WriteBehindPreferHelperTest {
+
+    private WriteBehindPreferHelper helper;
+    private CountingSharedPreferences preferences;
+
+    @Before
+    public void setUp() throws Exception {
+        preferences = new CountingSharedPreferences();
+        helper = new WriteBehindPreferHelper(new SharedPreferencesHelper(preferences, onChangeListener), 1, TimeUnit.HOURS);
+        helper.initializePrefer();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        helper.disposePrefer();
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: constructor
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_should_throw_if_interval_not_positive() throws Exception {
+        new WriteBehindPreferHelper(helper, 0, TimeUnit.SECONDS);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: put
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void put_should_serve_pending_value_without_storing() throws Exception {
+        helper.putInteger(Key.IntervalMs, 1);
+        helper.putInteger(Key.IntervalMs, 2);
+        helper.putString(Key.Username, "foo");
+
+        assertEquals(2, helper.getInteger(Key.IntervalMs, 0));
+        assertEquals("foo", helper.getString(Key.Username, null));
+        assertEquals(0, preferences.numApplyCalls);
+        assertTrue(preferences.values.isEmpty());
+    }
+
+    @Test
+    public void put_should_write_directly_if_not_initialized() throws Exception {
+        helper.disposePrefer();
+
+        helper.putBoolean(Key.IsEnabled, true);
+
+        assertEquals(1, preferences.numApplyCalls);
+    }
+
+    @Test
+    public void put_should_not_lose_values_during_dispose() throws Exception {
+        final int numPuts = 20000;
+        final Throwable[] error = new Throwable[1];
+
+        final Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 1; i <= numPuts; i++) {
+                        helper.putInteger(Key.IntervalMs, i);
+                    }
+                } catch (Throwable e) {
+                    error[0] = e;
+                }
+            }
+        });
+
+        writer.start();
+
+        // dispose while the writer is putting values
+        while (preferences.numApplyCalls == 0 && helper.pending.isEmpty()) {
+            Thread.yield();
+        }
+
+        helper.disposePrefer();
+        writer.join();
+
+        assertEquals(null, error[0]);
+        assertEquals(String.valueOf(numPuts),
+                preferences.getString(PreferKeySerializer.serializeKey(Key.IntervalMs), null));
+    }
+
+    @Test
+    public void putString_should_store_null_directly() throws Exception {
+        helper.putString(Key.Username, "foo");
+        helper.putString(Key.Username, null);
+
+        final String pendingValue = helper.getString(Key.Username, "default");
+
+        helper.flush();
+
+        // the wrapped helper stores a null string as "null"
+        assertEquals("null", pendingValue);
+        assertEquals(pendingValue, helper.getString(Key.Username, "default"));
+        assertTrue(helper.pending.isEmpty());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: flush
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void flush_should_store_pending_values_at_once() throws Exception {
+        helper.putInteger(Key.IntervalMs, 1);
+        helper.putBoolean(Key.IsEnabled, true);
+        helper.putString(Key.Username, "foo");
+
+        helper.flush();
+
+        assertEquals(1, preferences.numApplyCalls);
+        assertEquals(3, preferences.values.size());
+        assertTrue(helper.pending.isEmpty());
+        assertTrue(helper.getBoolean(Key.IsEnabled, false));
+    }
+
+    @Test
+    public void flush_should_notify_without_holding_lock() throws Exception {
+        helper.putInteger(Key.IntervalMs, 1);
+
+        helper.flush();
+
+        assertEquals(1, notifiedHoldingLock.size());
+        assertFalse(notifiedHoldingLock.get(0));
+    }
+
+    @Test
+    public void flush_should_be_scheduled_after_interval() throws Exception {
+        helper.disposePrefer();
+        helper = new WriteBehindPreferHelper(new SharedPreferencesHelper(preferences, onChangeListener), 10, TimeUnit.MILLISECONDS);
+        helper.initializePrefer();
+
+        helper.putLong(Key.IntervalMs, 1L);
+
+        final long timeout = System.currentTimeMillis() + 5000;
+
+        while (!helper.pending.isEmpty() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(helper.pending.isEmpty());
+        assertEquals(1, preferences.numApplyCalls);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: disposePrefer
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void disposePrefer_should_flush() throws Exception {
+        helper.putFloat(Key.IntervalMs, 1f);
+
+        helper.disposePrefer();
+
+        assertEquals(1, preferences.numApplyCalls);
+        assertFalse(preferences.values.isEmpty());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: edit
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void edit_should_replace_pending_values() throws Exception {
+        helper.putString(Key.Username, "foo");
+
+        helper.edit().putString(Key.Username, "bar").apply();
+        helper.flush();
+
+        assertEquals("bar", helper.getString(Key.Username, null));
+        assertEquals(1, preferences.numApplyCalls);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPERS
+    //----------------------------------------------------------------------------------------------
+
+    private final List<Boolean> notifiedHoldingLock =
+            Collections.synchronizedList(new ArrayList<Boolean>());
+
+    private final OnSharedPreferenceChangeListener onChangeListener = new OnSharedPreferenceChangeListener() {
+        @Override
+        public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+            notifiedHoldingLock.add(Thread.holdsLock(helper));
+        }
+    };
+
+    /**
+     * Counts the number of times the changes of an editor are applied.
+     */
+    static class CountingSharedPreferences extends InMemorySharedPreferences {
+        int numApplyCalls = 0;
+
+        @Override
+        protected void store(Map<String, Object> changes, boolean clear) {
+            numApplyCalls++;
+            super.store(changes, clear);
+        }
+    }
+
+}
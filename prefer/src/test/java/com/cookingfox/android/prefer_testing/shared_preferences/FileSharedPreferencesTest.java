@@ -0,0 +1,257 @@
+package com.cookingfox.android.prefer_testing.shared_preferences;
+
+import android.content.SharedPreferences;
+import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link FileSharedPreferences}.
+ */
+public class FileSharedPreferencesTest {
+
+    //----------------------------------------------------------------------------------------------
+    // TEST SETUP
+    //----------------------------------------------------------------------------------------------
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private FileSharedPreferences preferences;
+    private final List<String> changedKeys = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "prefs.xml");
+        preferences = new FileSharedPreferences(file);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: constructor
+    //----------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void constructor_should_throw_if_file_null() throws Exception {
+        new FileSharedPreferences(null);
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: commit
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void commit_should_persist_all_types() throws Exception {
+        final Set<String> set = new HashSet<>(Arrays.asList("a", "b"));
+
+        assertTrue(preferences.edit()
+                .putString("string", "foo")
+                .putStringSet("set", set)
+                .putInt("int", 1)
+                .putLong("long", Long.MAX_VALUE)
+                .putFloat("float", 1.5f)
+                .putBoolean("boolean", true)
+                .commit());
+
+        final FileSharedPreferences reloaded = new FileSharedPreferences(file);
+
+        assertNull(reloaded.getLoadError());
+        assertEquals("foo", reloaded.getString("string", null));
+        assertEquals(set, reloaded.getStringSet("set", null));
+        assertEquals(1, reloaded.getInt("int", 0));
+        assertEquals(Long.MAX_VALUE, reloaded.getLong("long", 0L));
+        assertEquals(1.5f, reloaded.getFloat("float", 0f), 0f);
+        assertTrue(reloaded.getBoolean("boolean", false));
+        assertEquals(6, reloaded.getAll().size());
+    }
+
+    @Test
+    public void commit_should_escape_xml() throws Exception {
+        final String special = "<a href=\"x\">&amp;</a> 'quoted' \u00e4";
+
+        assertTrue(preferences.edit()
+                .putString(special, special)
+                .putStringSet("set", new HashSet<>(Arrays.asList(special, "&")))
+                .commit());
+
+        final FileSharedPreferences reloaded = new FileSharedPreferences(file);
+
+        assertNull(reloaded.getLoadError());
+        assertEquals(special, reloaded.getString(special, null));
+        assertEquals(new HashSet<>(Arrays.asList(special, "&")), reloaded.getStringSet("set", null));
+    }
+
+    @Test
+    public void commit_should_return_false_if_write_fails() throws Exception {
+        final File missingDirectory = new File(folder.getRoot(), "missing");
+        final FileSharedPreferences unwritable =
+                new FileSharedPreferences(new File(missingDirectory, "prefs.xml"));
+
+        assertFalse(unwritable.edit().putInt("int", 1).commit());
+
+        // the value is kept in memory, like on Android
+        assertEquals(1, unwritable.getInt("int", 0));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: apply
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void apply_should_persist_values_in_background() throws Exception {
+        preferences.edit().putString("string", "foo").apply();
+
+        // applied to memory immediately
+        assertEquals("foo", preferences.getString("string", null));
+
+        preferences.awaitWrites();
+
+        assertEquals("foo", new FileSharedPreferences(file).getString("string", null));
+    }
+
+    @Test
+    public void apply_should_be_superseded_by_later_apply() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            preferences.edit().putInt("int", i).apply();
+        }
+
+        preferences.edit().putString("string", "foo").apply();
+        preferences.awaitWrites();
+
+        final FileSharedPreferences reloaded = new FileSharedPreferences(file);
+
+        assertEquals(99, reloaded.getInt("int", 0));
+        assertEquals("foo", reloaded.getString("string", null));
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: edit
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void edit_should_stage_changes_per_editor() throws Exception {
+        final SharedPreferences.Editor first = preferences.edit().putInt("first", 1);
+        final SharedPreferences.Editor second = preferences.edit().putInt("second", 2);
+
+        first.apply();
+
+        assertTrue(preferences.contains("first"));
+        assertFalse(preferences.contains("second"));
+
+        second.apply();
+
+        assertTrue(preferences.contains("second"));
+    }
+
+    @Test
+    public void remove_should_remove_value_and_notify() throws Exception {
+        preferences.edit().putString("string", "foo").commit();
+        preferences.registerOnSharedPreferenceChangeListener(listener);
+
+        assertTrue(preferences.edit().remove("string").remove("other").commit());
+
+        assertFalse(preferences.contains("string"));
+        assertEquals(Arrays.asList("string"), changedKeys);
+        assertNull(new FileSharedPreferences(file).getString("string", null));
+    }
+
+    @Test
+    public void clear_should_remove_values_and_notify_null_key() throws Exception {
+        preferences.edit().putString("string", "foo").putInt("int", 1).commit();
+        preferences.registerOnSharedPreferenceChangeListener(listener);
+
+        assertTrue(preferences.edit().clear().putBoolean("boolean", true).commit());
+
+        assertEquals(Arrays.asList(null, "boolean"), changedKeys);
+        assertEquals(1, preferences.getAll().size());
+
+        final FileSharedPreferences reloaded = new FileSharedPreferences(file);
+
+        assertEquals(1, reloaded.getAll().size());
+        assertTrue(reloaded.getBoolean("boolean", false));
+    }
+
+    @Test
+    public void clear_should_not_notify_if_empty() throws Exception {
+        preferences.registerOnSharedPreferenceChangeListener(listener);
+
+        preferences.edit().clear().commit();
+
+        assertTrue(changedKeys.isEmpty());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: listeners
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void apply_should_notify_only_changed_keys() throws Exception {
+        preferences.edit().putInt("int", 1).commit();
+        preferences.registerOnSharedPreferenceChangeListener(listener);
+
+        preferences.edit().putInt("int", 1).putLong("long", 2L).apply();
+
+        assertEquals(Arrays.asList("long"), changedKeys);
+    }
+
+    @Test
+    public void unregister_should_stop_notifying() throws Exception {
+        preferences.registerOnSharedPreferenceChangeListener(listener);
+        preferences.unregisterOnSharedPreferenceChangeListener(listener);
+
+        preferences.edit().putInt("int", 1).apply();
+
+        assertTrue(changedKeys.isEmpty());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // TESTS: load
+    //----------------------------------------------------------------------------------------------
+
+    @Test
+    public void load_should_report_error_and_use_empty_values_if_file_invalid() throws Exception {
+        final FileOutputStream output = new FileOutputStream(file);
+        output.write("not xml".getBytes("UTF-8"));
+        output.close();
+
+        final FileSharedPreferences invalid = new FileSharedPreferences(file);
+
+        assertNotNull(invalid.getLoadError());
+        assertTrue(invalid.getAll().isEmpty());
+    }
+
+    @Test
+    public void load_should_not_report_error_if_file_missing() throws Exception {
+        assertNull(preferences.getLoadError());
+        assertTrue(preferences.getAll().isEmpty());
+    }
+
+    //----------------------------------------------------------------------------------------------
+    // HELPERS
+    //----------------------------------------------------------------------------------------------
+
+    private final OnSharedPreferenceChangeListener listener = new OnSharedPreferenceChangeListener() {
+        @Override
+        public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+            changedKeys.add(key);
+        }
+    };
+
+}